@@ -0,0 +1,49 @@
+package chess.benchmark;
+
+import chess.ChessGame;
+
+import java.util.Map;
+
+/**
+ * The positions every benchmark runs over, so numbers from before and after a change
+ * are measured on exactly the same boards. There's a couple from each part of the game
+ * since they stress different things: openings have lots of blocked pieces, middlegames
+ * have the most moves, and endgames are mostly long sliding rays.
+ */
+final class BenchmarkPositions {
+
+    // the names JMH's @Param values refer to
+    static final String START = "start";
+    static final String RUY_LOPEZ = "ruyLopez";
+    static final String KIWIPETE = "kiwipete";
+    static final String ITALIAN_MIDDLEGAME = "italianMiddlegame";
+    static final String ROOK_ENDGAME = "rookEndgame";
+    static final String PAWN_ENDGAME = "pawnEndgame";
+
+    private static final Map<String, String> POSITIONS = Map.of(
+            START, "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            // 1. e4 e5 2. Nf3 Nc6 3. Bb5
+            RUY_LOPEZ, "r1bqkbnr/pppp1ppp/2n5/1B2p3/4P3/5N2/PPPP1PPP/RNBQK2R b KQkq - 3 3",
+            KIWIPETE, "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            ITALIAN_MIDDLEGAME, "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+            // the Lucena position
+            ROOK_ENDGAME, "3K4/3P1k2/8/8/8/8/2r5/4R3 w - - 0 1",
+            PAWN_ENDGAME, "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1"
+    );
+
+    private BenchmarkPositions() {
+    }
+
+    /**
+     * Sets up a game at one of the corpus positions
+     *
+     * @param name one of the constants above
+     */
+    static ChessGame game(String name) {
+        String fen = POSITIONS.get(name);
+        if (fen == null) {
+            throw new IllegalArgumentException("No benchmark position called " + name);
+        }
+        return ChessGame.fromFen(fen);
+    }
+}
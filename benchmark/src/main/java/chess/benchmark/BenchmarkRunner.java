@@ -0,0 +1,34 @@
+package chess.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs every benchmark with the gc profiler turned on, so each result has both
+ * throughput and how much it allocated (gc.alloc.rate.norm is bytes per call).
+ * Results also get written to a JSON file so runs before and after a change can
+ * be compared side by side.
+ * <p>
+ * Pass a regex as the first argument to only run some of them, e.g. "GameBenchmark.validMoves",
+ * and a file name as the second to change where the results go.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        String include = (args.length > 0) ? args[0] : "chess\\.benchmark\\..*";
+        String resultFile = (args.length > 1) ? args[1] : "benchmark-results.json";
+
+        Options options = new OptionsBuilder()
+                .include(include)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(resultFile)
+                .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,67 @@
+package chess.benchmark;
+
+import chess.ChessBoard;
+import chess.ChessBoardJSONAdapter;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for ChessBoard itself: copying, comparing, hashing, and the JSON
+ * round trip that every game save and websocket message goes through.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class BoardBenchmark {
+
+    @Param({BenchmarkPositions.START, BenchmarkPositions.RUY_LOPEZ, BenchmarkPositions.KIWIPETE,
+            BenchmarkPositions.ITALIAN_MIDDLEGAME, BenchmarkPositions.ROOK_ENDGAME, BenchmarkPositions.PAWN_ENDGAME})
+    public String position;
+
+    private ChessBoard board;
+    // an equal board that isn't the same object, so equals has to actually compare
+    private ChessBoard sameBoard;
+    private Gson gson;
+    private String boardJson;
+
+    @Setup
+    public void setup() {
+        board = BenchmarkPositions.game(position).getBoard();
+        sameBoard = board.copy();
+
+        // same setup the client and the database use
+        gson = new GsonBuilder().registerTypeAdapter(ChessBoard.class, new ChessBoardJSONAdapter()).create();
+        boardJson = gson.toJson(board, ChessBoard.class);
+    }
+
+    @Benchmark
+    public ChessBoard copy() {
+        return board.copy();
+    }
+
+    @Benchmark
+    public boolean equalsBoard() {
+        return board.equals(sameBoard);
+    }
+
+    @Benchmark
+    public int hashCodeBoard() {
+        return board.hashCode();
+    }
+
+    @Benchmark
+    public String toJson() {
+        return gson.toJson(board, ChessBoard.class);
+    }
+
+    @Benchmark
+    public ChessBoard fromJson() {
+        return gson.fromJson(boardJson, ChessBoard.class);
+    }
+}
@@ -0,0 +1,91 @@
+package chess.benchmark;
+
+import chess.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the ChessGame rules: move lists, making moves, and check/checkmate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class GameBenchmark {
+
+    @Param({BenchmarkPositions.START, BenchmarkPositions.RUY_LOPEZ, BenchmarkPositions.KIWIPETE,
+            BenchmarkPositions.ITALIAN_MIDDLEGAME, BenchmarkPositions.ROOK_ENDGAME, BenchmarkPositions.PAWN_ENDGAME})
+    public String position;
+
+    private ChessGame game;
+    private ChessGame.TeamColor sideToMove;
+    // every square the side to move has a piece on
+    private List<ChessPosition> ownPieceSquares;
+    // a legal move to make
+    private ChessMove move;
+
+    /**
+     * A fresh copy of the game for every makeMove call. A move a game keeps can't be taken back, and
+     * putting the board back by hand would leave the move counters and repetition history growing,
+     * so every call would be a little slower than the last
+     */
+    @State(Scope.Thread)
+    public static class FreshGame {
+        ChessGame game;
+
+        @Setup(Level.Invocation)
+        public void setup(GameBenchmark benchmark) {
+            game = new ChessGame(benchmark.game);
+        }
+    }
+
+    @Setup
+    public void setup() {
+        game = BenchmarkPositions.game(position);
+        sideToMove = game.getTeamTurn();
+        ChessBoard board = game.getBoard();
+
+        ownPieceSquares = new ArrayList<>();
+        for (int row = 1; row <= 8; row++) {
+            for (int column = 1; column <= 8; column++) {
+                ChessPosition square = new ChessPosition(row, column);
+                ChessPiece piece = board.getPiece(square);
+                if (piece != null && piece.getTeamColor() == sideToMove) {
+                    ownPieceSquares.add(square);
+                    if (move == null && !game.validMoves(square).isEmpty()) {
+                        move = game.validMoves(square).iterator().next();
+                    }
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void validMoves(Blackhole blackhole) {
+        for (ChessPosition square : ownPieceSquares) {
+            blackhole.consume(game.validMoves(square));
+        }
+    }
+
+    @Benchmark
+    public ChessGame makeMove(FreshGame fresh) throws InvalidMoveException {
+        fresh.game.makeMove(move);
+        return fresh.game;
+    }
+
+    @Benchmark
+    public boolean isInCheck() {
+        return game.isInCheck(sideToMove);
+    }
+
+    @Benchmark
+    public boolean isInCheckmate() {
+        return game.isInCheckmate(sideToMove);
+    }
+}
@@ -0,0 +1,430 @@
+package dataaccess;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps database connections open between uses, so each DAO call borrows one that's already
+ * connected instead of doing a whole new TCP connection and login.
+ * <p>
+ * The connections it hands out are wrappers, so closing one (like at the end of a
+ * try-with-resources block) puts it back in the pool instead of really closing it. Using a
+ * wrapper after closing it throws, the same as a real closed connection would.
+ * <p>
+ * Besides that it:
+ * <ul>
+ *   <li>opens connections as they're needed, up to maxSize, and makes callers wait when
+ *   they're all in use</li>
+ *   <li>closes connections that have been idle too long, down to minSize, and opens more to
+ *   get back up to minSize</li>
+ *   <li>checks a connection still works before handing it out, if it's been sitting idle</li>
+ *   <li>reports a connection that's been out too long, since that's almost always a missing
+ *   close, and where it was borrowed from if leak stack traces are turned on</li>
+ *   <li>keeps counts of how many connections are in use and how long callers waited (see
+ *   getStats)</li>
+ * </ul>
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    /**
+     * Opens a brand-new connection for the pool, like DriverManager.getConnection
+     */
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection open() throws SQLException;
+    }
+
+    /**
+     * @param minSize           connections to keep open even when nothing's using them
+     * @param maxSize           the most connections to ever have open at once
+     * @param borrowTimeout     how long getConnection waits for one to free up before giving up
+     * @param idleTimeout       how long a connection above minSize can sit unused before it's closed
+     * @param validateAfterIdle connections idle longer than this get checked before being handed out
+     * @param leakThreshold     how long a connection can be borrowed before it's reported as a leak
+     * @param leakStackTraces   whether to remember where each connection was borrowed from, so a leak
+     *                          report can say. That costs a stack trace every borrow, so it's for debugging
+     * @param maintenanceEvery  how often idle connections and leaks get looked for
+     */
+    public record Settings(int minSize, int maxSize, Duration borrowTimeout, Duration idleTimeout,
+                           Duration validateAfterIdle, Duration leakThreshold, boolean leakStackTraces,
+                           Duration maintenanceEvery) {
+
+        public Settings {
+            if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+                throw new IllegalArgumentException("Pool sizes have to be 0 <= min <= max and max >= 1");
+            }
+        }
+
+        public static Settings defaults() {
+            return new Settings(2, 16, Duration.ofSeconds(30), Duration.ofMinutes(5),
+                    Duration.ofMillis(500), Duration.ofMinutes(1), false, Duration.ofSeconds(30));
+        }
+    }
+
+    /**
+     * A snapshot of what the pool is doing
+     *
+     * @param active          connections borrowed right now
+     * @param idle            connections open and waiting to be borrowed
+     * @param waiting         callers waiting for a connection right now
+     * @param borrows         how many times a connection has been handed out
+     * @param created         how many real connections have been opened
+     * @param closed          how many real connections have been closed
+     * @param leaksDetected   how many borrowed connections were reported for being out too long
+     * @param totalWaitNanos  how long callers spent waiting for connections, added up
+     * @param maxWaitNanos    the longest any one caller waited
+     */
+    public record Stats(int active, int idle, int waiting, long borrows, long created, long closed,
+                        long leaksDetected, long totalWaitNanos, long maxWaitNanos) {
+
+        public double averageWaitMillis() {
+            return (borrows == 0) ? 0 : totalWaitNanos / 1e6 / borrows;
+        }
+    }
+
+    private final ConnectionFactory factory;
+    private final Settings settings;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition connectionFreed = lock.newCondition();
+    // most recently returned last, so the busy ones get reused and the rest can go idle and be closed
+    private final ArrayDeque<PooledConnection> idle = new ArrayDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    // open connections plus ones being opened right now, which is what maxSize limits
+    private int openCount = 0;
+    private int waitingCount = 0;
+    private boolean shutDown = false;
+
+    private final AtomicLong borrows = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong closedCount = new AtomicLong();
+    private final AtomicLong leaksDetected = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    private final ScheduledExecutorService maintenance;
+
+    public ConnectionPool(ConnectionFactory factory, Settings settings) {
+        this.factory = factory;
+        this.settings = settings;
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long every = settings.maintenanceEvery().toMillis();
+        maintenance.scheduleWithFixedDelay(this::maintain, 0, every, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection. Close it when you're done with it to give it back.
+     *
+     * @throws SQLException if none frees up within the borrow timeout, or a new one can't be opened
+     */
+    public Connection getConnection() throws SQLException {
+        long startTime = System.nanoTime();
+        long deadline = startTime + settings.borrowTimeout().toNanos();
+        while (true) {
+            PooledConnection pooled = null;
+            boolean openNew = false;
+            lock.lock();
+            try {
+                while (!shutDown && idle.isEmpty() && openCount >= settings.maxSize()) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        throw new SQLException("Timed out after " + settings.borrowTimeout().toMillis()
+                                + " ms waiting for a database connection, all " + settings.maxSize() + " are in use");
+                    }
+                    waitingCount++;
+                    try {
+                        connectionFreed.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted waiting for a database connection", e);
+                    } finally {
+                        waitingCount--;
+                    }
+                }
+                if (shutDown) {
+                    throw new SQLException("The connection pool has been shut down");
+                }
+                if (!idle.isEmpty()) {
+                    pooled = idle.pollLast();
+                } else {
+                    // save a spot for the new one so nobody else goes over the max while it's opening
+                    openCount++;
+                    openNew = true;
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (openNew) {
+                pooled = openConnection();
+            } else if (!isUsable(pooled)) {
+                discard(pooled);
+                continue;
+            }
+            return lend(pooled, startTime);
+        }
+    }
+
+    /**
+     * @return what the pool is doing right now
+     */
+    public Stats getStats() {
+        lock.lock();
+        try {
+            return new Stats(borrowed.size(), idle.size(), waitingCount, borrows.get(), created.get(), closedCount.get(),
+                    leaksDetected.get(), totalWaitNanos.get(), maxWaitNanos.get());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes every idle connection and stops handing out new ones. Borrowed connections get
+     * really closed when they're given back.
+     */
+    @Override
+    public void close() {
+        List<PooledConnection> toClose;
+        lock.lock();
+        try {
+            shutDown = true;
+            toClose = new ArrayList<>(idle);
+            idle.clear();
+            connectionFreed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        maintenance.shutdownNow();
+        toClose.forEach(this::discard);
+    }
+
+    // closes connections that have been idle too long, tops back up to minSize, and reports leaks
+    void maintain() {
+        try {
+            long now = System.nanoTime();
+            List<PooledConnection> expired = new ArrayList<>();
+            int missing;
+            lock.lock();
+            try {
+                if (shutDown) {
+                    return;
+                }
+                // the oldest are at the front
+                while (openCount - expired.size() > settings.minSize() && !idle.isEmpty()
+                        && now - idle.peekFirst().lastUsed > settings.idleTimeout().toNanos()) {
+                    expired.add(idle.pollFirst());
+                }
+                missing = settings.minSize() - (openCount - expired.size());
+                if (missing > 0) {
+                    openCount += missing;
+                }
+            } finally {
+                lock.unlock();
+            }
+            expired.forEach(this::discard);
+
+            for (int i = 0; i < missing; i++) {
+                try {
+                    giveBack(openConnection());
+                } catch (SQLException e) {
+                    // openConnection gave back its own spot, so just give back the ones after it
+                    unreserve(missing - i - 1);
+                    throw e;
+                }
+            }
+
+            for (PooledConnection pooled : borrowed) {
+                if (!pooled.leakReported && now - pooled.borrowedAt > settings.leakThreshold().toNanos()) {
+                    pooled.leakReported = true;
+                    leaksDetected.incrementAndGet();
+                    String borrowedAgo = Duration.ofNanos(now - pooled.borrowedAt).toSeconds() + " s ago";
+                    Throwable borrowedFrom = pooled.borrowedFrom;
+                    if (borrowedFrom != null) {
+                        System.out.println("Possible database connection leak: borrowed " + borrowedAgo + " and never closed, from:");
+                        borrowedFrom.printStackTrace(System.out);
+                    } else {
+                        System.out.println("Possible database connection leak: borrowed " + borrowedAgo
+                                + " and never closed. Set db.pool.leakStackTraces=true to see where it was borrowed from");
+                    }
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            // the database being down shouldn't kill the maintenance thread, it'll try again next time
+            System.out.println("Connection pool maintenance failed: " + e.getMessage());
+        }
+    }
+
+    // opens a connection for a spot that's already been counted in openCount
+    private PooledConnection openConnection() throws SQLException {
+        try {
+            PooledConnection pooled = new PooledConnection(factory.open());
+            created.incrementAndGet();
+            return pooled;
+        } catch (SQLException | RuntimeException e) {
+            unreserve(1);
+            throw e;
+        }
+    }
+
+    // gives back spots counted in openCount for connections that never got opened
+    private void unreserve(int spots) {
+        lock.lock();
+        try {
+            openCount -= spots;
+            connectionFreed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isUsable(PooledConnection pooled) {
+        if (System.nanoTime() - pooled.lastUsed < settings.validateAfterIdle().toNanos()) {
+            return true;
+        }
+        try {
+            return pooled.real.isValid(1);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private Connection lend(PooledConnection pooled, long startTime) {
+        long now = System.nanoTime();
+        long waited = now - startTime;
+        borrows.incrementAndGet();
+        totalWaitNanos.addAndGet(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+
+        pooled.borrowedAt = now;
+        pooled.borrowedFrom = settings.leakStackTraces() ? new Throwable("borrowed here") : null;
+        pooled.leakReported = false;
+        borrowed.add(pooled);
+        return pooled.lend();
+    }
+
+    // called when a borrowed connection's wrapper is closed
+    private void release(PooledConnection pooled) {
+        borrowed.remove(pooled);
+        pooled.borrowedFrom = null;
+        try {
+            // don't hand the next borrower someone else's half finished transaction
+            if (!pooled.real.getAutoCommit()) {
+                pooled.real.rollback();
+                pooled.real.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            discard(pooled);
+            return;
+        }
+        giveBack(pooled);
+    }
+
+    private void giveBack(PooledConnection pooled) {
+        pooled.lastUsed = System.nanoTime();
+        lock.lock();
+        try {
+            if (!shutDown) {
+                idle.addLast(pooled);
+                connectionFreed.signal();
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        discard(pooled);
+    }
+
+    // really closes the connection and frees up its spot
+    private void discard(PooledConnection pooled) {
+        try {
+            pooled.real.close();
+        } catch (SQLException e) {
+            // it's being thrown away anyway
+        }
+        closedCount.incrementAndGet();
+        unreserve(1);
+    }
+
+    // a real connection and its bookkeeping. Every time it's borrowed it gets a new wrapper, so a
+    // wrapper someone already closed can't be used to get at it after someone else borrows it
+    private class PooledConnection {
+        private final Connection real;
+        private volatile long lastUsed = System.nanoTime();
+        private volatile long borrowedAt;
+        private volatile Throwable borrowedFrom;
+        private volatile boolean leakReported;
+
+        PooledConnection(Connection real) {
+            this.real = real;
+        }
+
+        Connection lend() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new Handler(this));
+        }
+    }
+
+    private class Handler implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean closed = false;
+
+        Handler(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public synchronized Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!closed) {
+                        closed = true;
+                        release(pooled);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return closed || pooled.real.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "Pooled " + pooled.real;
+                }
+                default -> {
+                }
+            }
+            if (closed) {
+                throw new SQLException("Connection is closed");
+            }
+            try {
+                return method.invoke(pooled.real, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
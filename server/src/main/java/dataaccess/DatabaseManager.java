@@ -1,6 +1,7 @@
 package dataaccess;
 
 import java.sql.*;
+import java.time.Duration;
 import java.util.Properties;
 
 public class DatabaseManager {
@@ -8,6 +9,10 @@ public class DatabaseManager {
     private static final String USER;
     private static final String PASSWORD;
     private static final String CONNECTION_URL;
+    private static final ConnectionPool.Settings POOL_SETTINGS;
+
+    // made the first time anyone asks for a connection, which is also when the database gets created
+    private static volatile ConnectionPool pool;
 
     /*
      * Load the database information for the db.properties file.
@@ -27,32 +32,57 @@ public class DatabaseManager {
                 var host = props.getProperty("db.host");
                 var port = Integer.parseInt(props.getProperty("db.port"));
                 CONNECTION_URL = String.format("jdbc:mysql://%s:%d", host, port);
+
+                // the pool settings are all optional
+                ConnectionPool.Settings defaults = ConnectionPool.Settings.defaults();
+                POOL_SETTINGS = new ConnectionPool.Settings(
+                        intProperty(props, "db.pool.minSize", defaults.minSize()),
+                        intProperty(props, "db.pool.maxSize", defaults.maxSize()),
+                        millisProperty(props, "db.pool.borrowTimeoutMillis", defaults.borrowTimeout()),
+                        millisProperty(props, "db.pool.idleTimeoutMillis", defaults.idleTimeout()),
+                        millisProperty(props, "db.pool.validateAfterIdleMillis", defaults.validateAfterIdle()),
+                        millisProperty(props, "db.pool.leakThresholdMillis", defaults.leakThreshold()),
+                        booleanProperty(props, "db.pool.leakStackTraces", defaults.leakStackTraces()),
+                        millisProperty(props, "db.pool.maintenanceMillis", defaults.maintenanceEvery()));
             }
         } catch (Exception ex) {
             throw new RuntimeException("unable to process db.properties. " + ex.getMessage());
         }
     }
 
+    private static int intProperty(Properties props, String name, int defaultValue) {
+        String value = props.getProperty(name);
+        return (value == null) ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    private static Duration millisProperty(Properties props, String name, Duration defaultValue) {
+        String value = props.getProperty(name);
+        return (value == null) ? defaultValue : Duration.ofMillis(Long.parseLong(value.trim()));
+    }
+
+    private static boolean booleanProperty(Properties props, String name, boolean defaultValue) {
+        String value = props.getProperty(name);
+        return (value == null) ? defaultValue : Boolean.parseBoolean(value.trim());
+    }
+
     /**
      * Creates the database if it does not already exist.
      */
     public static void createDatabase() throws DataAccessException {
-        try {
-            var statement = "CREATE DATABASE IF NOT EXISTS " + DATABASE_NAME;
-            var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
-            try (var preparedStatement = conn.prepareStatement(statement)) {
-                preparedStatement.executeUpdate();
-            }
+        var statement = "CREATE DATABASE IF NOT EXISTS " + DATABASE_NAME;
+        try (var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
+             var preparedStatement = conn.prepareStatement(statement)) {
+            preparedStatement.executeUpdate();
         } catch (SQLException e) {
             throw new DataAccessException(e.getMessage());
         }
     }
 
     /**
-     * Create a connection to the database and sets the catalog based upon the
-     * properties specified in db.properties. Connections to the database should
-     * be short-lived, and you must close the connection when you are done with it.
-     * The easiest way to do that is with a try-with-resource block.
+     * Borrows a connection to the database from the pool, with the catalog already set based
+     * upon the properties specified in db.properties. Connections to the database should
+     * be short-lived, and you must close the connection when you are done with it, which gives
+     * it back to the pool. The easiest way to do that is with a try-with-resource block.
      * <br/>
      * <code>
      * try (var conn = DbInfo.getConnection(databaseName)) {
@@ -62,13 +92,38 @@ public class DatabaseManager {
      */
     public static Connection getConnection() throws DataAccessException {
         try {
-            createDatabase();
-
-            var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
-            conn.setCatalog(DATABASE_NAME);
-            return conn;
+            return getPool().getConnection();
         } catch (SQLException e) {
             throw new DataAccessException(e.getMessage());
         }
     }
+
+    /**
+     * @return how many connections are in use, how long callers have waited for them, and so on
+     */
+    public static ConnectionPool.Stats getPoolStats() throws DataAccessException {
+        return getPool().getStats();
+    }
+
+    private static ConnectionPool getPool() throws DataAccessException {
+        ConnectionPool connectionPool = pool;
+        if (connectionPool == null) {
+            synchronized (DatabaseManager.class) {
+                connectionPool = pool;
+                if (connectionPool == null) {
+                    // only once, instead of before every connection like it used to be
+                    createDatabase();
+                    connectionPool = new ConnectionPool(DatabaseManager::openConnection, POOL_SETTINGS);
+                    pool = connectionPool;
+                }
+            }
+        }
+        return connectionPool;
+    }
+
+    private static Connection openConnection() throws SQLException {
+        var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
+        conn.setCatalog(DATABASE_NAME);
+        return conn;
+    }
 }
@@ -1,17 +1,22 @@
 package dataaccess;
 
 import model.GameData;
+import model.GameSummary;
 
-import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 public final class GameDataAccessMemory implements GameDataAccessObject {
-    final private List<GameData> games = new ArrayList<GameData>();
+    // keyed by game ID, so looking up one game doesn't go through all of them
+    final private Map<Integer, GameData> games = new ConcurrentHashMap<>();
 
     @Override
     public GameData makeGame(GameData gameData) throws DataAccessException {
         try {
-            games.add(gameData);
+            games.put(gameData.gameID(), gameData);
             return gameData;
         } catch (Exception e) {
             throw new DataAccessException("Couldn't add the game for some reason");
@@ -20,40 +25,48 @@ public final class GameDataAccessMemory implements GameDataAccessObject {
 
     @Override
     public GameData getGame(int gameID) throws DataAccessException {
-        for (GameData game : games) {
-            if (game.gameID() == gameID) {
-                return game;
-            }
-        }
-        throw new DataAccessException("Game not found");
+        // null if it isn't there, same as the SQL version
+        return games.get(gameID);
     }
 
     @Override
     public GameData updateGameWithNewData(GameData gameData) {
-        GameData gameToUpdate = null;
-        for (GameData game : games) {
-            if (game.gameID() == gameData.gameID()) {
-                gameToUpdate = game;
-            }
-        }
-        games.remove(gameToUpdate);
-        games.add(gameData);
+        games.put(gameData.gameID(), gameData);
         return gameData;
     }
 
+    @Override
+    public void updateGameStates(List<GameData> gameStates) {
+        for (GameData gameData : gameStates) {
+            games.put(gameData.gameID(), gameData);
+        }
+    }
+
     @Override
     public GameData[] getActiveGames() throws DataAccessException {
-        return games.toArray(new GameData[0]);
+        return games.values().toArray(new GameData[0]);
     }
 
     @Override
     public int[] getGameIDs() throws DataAccessException {
-        int[] ids = new int[games.size()];
-        int counter = 0;
-        for (GameData game : games) {
-            ids[counter] = game.gameID();
-            counter++;
-        }
-        return ids;
+        return games.keySet().stream().mapToInt(id -> id).toArray();
+    }
+
+    @Override
+    public GameSummary[] getGameSummaries(GameListFilter filter, String username, int afterGameID, int limit) {
+        return games.values().stream()
+                .filter(game -> game.gameID() > afterGameID)
+                .map(game -> new GameSummary(game.gameID(), game.whiteUsername(), game.blackUsername(), game.gameName(),
+                        game.game() != null && game.game().isFinished()))
+                .filter(summary -> switch (filter) {
+                    case ALL -> true;
+                    case OPEN -> !summary.gameOver() && (summary.whiteUsername() == null || summary.blackUsername() == null);
+                    case MINE -> username != null && (Objects.equals(username, summary.whiteUsername())
+                            || Objects.equals(username, summary.blackUsername()));
+                    case FINISHED -> summary.gameOver();
+                })
+                .sorted(Comparator.comparingInt(GameSummary::gameID))
+                .limit(limit)
+                .toArray(GameSummary[]::new);
     }
 }
@@ -5,6 +5,7 @@ import chess.ChessGame;
 import com.google.gson.GsonBuilder;
 import chess.ChessBoardJSONAdapter;
 import model.GameData;
+import model.GameSummary;
 import com.google.gson.Gson;
 
 import java.sql.*;
@@ -22,7 +23,7 @@ public class GameDataAccessMySql implements GameDataAccessObject {
 
     @Override
     public GameData makeGame(GameData gameData) throws DataAccessException {
-        String sqlCommand = "INSERT INTO GameData (game_id, white_username, black_username, game_name, game_json) VALUES (?, ?, ?, ?, ?)";
+        String sqlCommand = "INSERT INTO GameData (game_id, white_username, black_username, game_name, game_json, game_over) VALUES (?, ?, ?, ?, ?, ?)";
 
         try (Connection conn = DatabaseManager.getConnection();
              PreparedStatement statement = conn.prepareStatement(sqlCommand, Statement.RETURN_GENERATED_KEYS)) {
@@ -33,9 +34,12 @@ public class GameDataAccessMySql implements GameDataAccessObject {
             statement.setString(3, gameData.blackUsername());
             statement.setString(4, gameData.gameName());
 
-            // turn the ChessGame into JSON so it can be uploaded
-            String jsonChessGame = gson.toJson(gameData.game());
-            statement.setString(5, jsonChessGame);
+            // turn the ChessGame into JSON so it can be uploaded. It can be the live game, so hold it
+            // like updateGameStates does, so a move can't happen halfway through
+            synchronized (gameData.game()) {
+                statement.setString(5, gson.toJson(gameData.game()));
+                statement.setBoolean(6, isGameOver(gameData));
+            }
 
             // Run the command
             statement.executeUpdate();
@@ -57,29 +61,30 @@ public class GameDataAccessMySql implements GameDataAccessObject {
 
             statement.setInt(1, gameID);
 
-            ResultSet results = statement.executeQuery();
-
-            if (results.next()) {
-                String whiteUsername = results.getString("white_username");
-                String blackUsername = results.getString("black_username");
-                String gameName = results.getString("game_name");
-
-                ChessGame game = gson.fromJson(results.getString("game_json"), ChessGame.class);
-
-                // it worked! So, return the new Game Data
-                return new GameData(gameID, whiteUsername, blackUsername, gameName, game);
-            } else {
-                // we didn't find anything, so return null
-                return null;
+            // game_id is the primary key, so this only ever reads (and deserializes) the one row
+            try (ResultSet results = statement.executeQuery()) {
+                if (results.next()) {
+                    String whiteUsername = results.getString("white_username");
+                    String blackUsername = results.getString("black_username");
+                    String gameName = results.getString("game_name");
+
+                    ChessGame game = gson.fromJson(results.getString("game_json"), ChessGame.class);
+
+                    // it worked! So, return the new Game Data
+                    return new GameData(gameID, whiteUsername, blackUsername, gameName, game);
+                } else {
+                    // we didn't find anything, so return null
+                    return null;
+                }
             }
         } catch (SQLException e) {
-            throw new RuntimeException("Error getting the game from SQL database, is the id correct?");
+            throw new DataAccessException("Error getting the game from SQL database, is the id correct?");
         }
     }
 
     @Override
     public GameData updateGameWithNewData(GameData gameData) {
-        String sqlCommand = "UPDATE GameData SET game_id = ?, white_username = ?, black_username = ?, game_name = ?, game_json = ? WHERE game_id = ?";
+        String sqlCommand = "UPDATE GameData SET game_id = ?, white_username = ?, black_username = ?, game_name = ?, game_json = ?, game_over = ? WHERE game_id = ?";
 
         try (Connection conn = DatabaseManager.getConnection();
              PreparedStatement statement = conn.prepareStatement(sqlCommand)) {
@@ -90,12 +95,15 @@ public class GameDataAccessMySql implements GameDataAccessObject {
             statement.setString(3, gameData.blackUsername());
             statement.setString(4, gameData.gameName());
 
-            // turn the ChessGame into JSON so it can be uploaded
-            String jsonChessGame = gson.toJson(gameData.game());
-            statement.setString(5, jsonChessGame);
+            // turn the ChessGame into JSON so it can be uploaded. It can be the live game, so hold it
+            // like updateGameStates does, so a move can't happen halfway through
+            synchronized (gameData.game()) {
+                statement.setString(5, gson.toJson(gameData.game()));
+                statement.setBoolean(6, isGameOver(gameData));
+            }
 
             // set the parameter so that it knows which row to update
-            statement.setInt(6, gameData.gameID());
+            statement.setInt(7, gameData.gameID());
 
             // full send
             int rows = statement.executeUpdate();
@@ -107,6 +115,39 @@ public class GameDataAccessMySql implements GameDataAccessObject {
         }
     }
 
+    @Override
+    public void updateGameStates(List<GameData> games) throws DataAccessException {
+        String sqlCommand = "UPDATE GameData SET game_json = ?, game_over = ? WHERE game_id = ?";
+
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement statement = conn.prepareStatement(sqlCommand)) {
+
+            for (GameData gameData : games) {
+                // games get changed in place, so hold the game while it's turned into JSON, so a move can't happen halfway through
+                synchronized (gameData.game()) {
+                    statement.setString(1, gson.toJson(gameData.game()));
+                    statement.setBoolean(2, isGameOver(gameData));
+                }
+                statement.setInt(3, gameData.gameID());
+                statement.addBatch();
+            }
+
+            // one transaction, so either every game in the batch gets saved or none of them do
+            conn.setAutoCommit(false);
+            try {
+                statement.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Error saving the game boards to the SQL database");
+        }
+    }
+
     @Override
     public GameData[] getActiveGames() throws DataAccessException {
         String sqlCommand = "SELECT * FROM GameData";
@@ -156,4 +197,82 @@ public class GameDataAccessMySql implements GameDataAccessObject {
             throw new DataAccessException("Error getting the active game ids");
         }
     }
+
+    @Override
+    public GameSummary[] getGameSummaries(GameListFilter filter, String username, int afterGameID, int limit) throws DataAccessException {
+        // only the small columns, so game_json never gets read or parsed, and the primary key does the paging
+        String where = switch (filter) {
+            case ALL -> "";
+            case OPEN -> " AND game_over = FALSE AND (white_username IS NULL OR black_username IS NULL)";
+            case MINE -> " AND (white_username = ? OR black_username = ?)";
+            case FINISHED -> " AND game_over = TRUE";
+        };
+        String sqlCommand = "SELECT game_id, white_username, black_username, game_name, game_over FROM GameData "
+                + "WHERE game_id > ?" + where + " ORDER BY game_id LIMIT ?";
+        List<GameSummary> summaries = new ArrayList<>();
+
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement statement = conn.prepareStatement(sqlCommand)) {
+
+            int parameter = 1;
+            statement.setInt(parameter++, afterGameID);
+            if (filter == GameListFilter.MINE) {
+                statement.setString(parameter++, username);
+                statement.setString(parameter++, username);
+            }
+            statement.setInt(parameter, limit);
+
+            try (ResultSet results = statement.executeQuery()) {
+                while (results.next()) {
+                    summaries.add(new GameSummary(results.getInt("game_id"), results.getString("white_username"),
+                            results.getString("black_username"), results.getString("game_name"),
+                            results.getBoolean("game_over")));
+                }
+            }
+
+            return summaries.toArray(new GameSummary[0]);
+        } catch (SQLException e) {
+            throw new DataAccessException("Error listing the games from the SQL server");
+        }
+    }
+
+    /**
+     * Works out which saved games are already over and marks them, for rows saved before
+     * game_over was kept. Only meant to be run once, when that column gets added.
+     *
+     * @return how many games it marked as over
+     */
+    public int recordFinishedGames() throws DataAccessException {
+        String selectCommand = "SELECT game_id, game_json FROM GameData WHERE game_over = FALSE";
+        String updateCommand = "UPDATE GameData SET game_json = ?, game_over = TRUE WHERE game_id = ?";
+
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement select = conn.prepareStatement(selectCommand);
+             PreparedStatement update = conn.prepareStatement(updateCommand)) {
+
+            int finished = 0;
+            try (ResultSet results = select.executeQuery()) {
+                while (results.next()) {
+                    ChessGame game = gson.fromJson(results.getString("game_json"), ChessGame.class);
+                    // the board gets saved again too, so the game itself remembers it's over next time it's loaded
+                    if (game != null && game.recordStatus() != ChessGame.GameStatus.IN_PROGRESS) {
+                        update.setString(1, gson.toJson(game));
+                        update.setInt(2, results.getInt("game_id"));
+                        update.addBatch();
+                        finished++;
+                    }
+                }
+            }
+            update.executeBatch();
+            return finished;
+        } catch (SQLException e) {
+            throw new DataAccessException("Error marking finished games in the SQL database");
+        }
+    }
+
+    // kept in its own column so listing finished games doesn't have to look at the boards. The game
+    // worked it out once when its last move was made, so this is just reading it
+    private static boolean isGameOver(GameData gameData) {
+        return gameData.game() != null && gameData.game().isFinished();
+    }
 }
@@ -1,13 +1,30 @@
 package dataaccess;
 
 import model.GameData;
+import model.GameSummary;
 
-import javax.xml.crypto.Data;
+import java.util.List;
 
 public interface GameDataAccessObject {
     GameData makeGame(GameData gameData) throws DataAccessException;
     GameData getGame(int gameID) throws DataAccessException;
     GameData updateGameWithNewData(GameData gameData);
+
+    /**
+     * Saves the boards of games that had moves made. The players and names don't change when
+     * a move is made, so only the board is written, and all the games are written together.
+     */
+    void updateGameStates(List<GameData> games) throws DataAccessException;
     GameData[] getActiveGames() throws DataAccessException;
     int[] getGameIDs() throws DataAccessException;
+
+    /**
+     * Lists games without their boards, in game ID order, one page at a time
+     *
+     * @param filter which games to include
+     * @param username who's asking, for the MINE filter
+     * @param afterGameID only games with a bigger ID than this, 0 to start from the beginning
+     * @param limit the most games to return
+     */
+    GameSummary[] getGameSummaries(GameListFilter filter, String username, int afterGameID, int limit) throws DataAccessException;
 }
@@ -0,0 +1,15 @@
+package dataaccess;
+
+/**
+ * Which games to include when listing game summaries
+ */
+public enum GameListFilter {
+    // every game
+    ALL,
+    // games that still need a player and aren't over
+    OPEN,
+    // games the user is playing in
+    MINE,
+    // games that ended in checkmate or a draw
+    FINISHED
+}
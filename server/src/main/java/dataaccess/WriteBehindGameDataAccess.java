@@ -0,0 +1,372 @@
+package dataaccess;
+
+import model.GameData;
+import model.GameSummary;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps games that are being played in memory and saves their moves to another
+ * GameDataAccessObject (the SQL one) in batches, instead of making a database trip for
+ * every move. The copy in memory is always the real one; the database catches up
+ * every flushInterval, or sooner once maxDirty games have unsaved moves.
+ * <p>
+ * What gets written when:
+ * <ul>
+ *   <li>Making a game, joining, and leaving are written right away, like before, so a game
+ *   or a seat is never lost.</li>
+ *   <li>Moves (updateGameStates) only change the copy in memory and mark the game as dirty.
+ *   Each flush writes every dirty game's latest board in one batch and one transaction.</li>
+ *   <li>close() stops the timer and writes everything that's left, so a normal shutdown
+ *   loses nothing.</li>
+ * </ul>
+ * If the server crashes instead, each game is in the database as of the last flush that
+ * went through, which is a whole position from the end of some move, never half of one.
+ * The moves after that are lost, which is at most flushInterval's worth. Nothing has to be
+ * replayed on startup; games just pick up from the position that was saved. A flush that
+ * fails leaves the games dirty so the next one tries again.
+ * <p>
+ * Games only stay in memory while they're being used. After each flush, games with nothing left
+ * to save are dropped if they're finished or haven't been used for idleTimeout, and then the least
+ * recently used ones are dropped while there are more than maxLiveGames. A game used since the
+ * flush started is never dropped, and getGame marks a game as used in the same step it finds it,
+ * so as long as nobody keeps a GameData from here past one request, everyone shares one copy.
+ * <p>
+ * Game lists come from the database, so whether a game is over can be behind by up to one flush.
+ */
+public class WriteBehindGameDataAccess implements GameDataAccessObject, AutoCloseable {
+
+    /**
+     * @param flushInterval how long moves can wait before being saved
+     * @param maxDirty how many games can have unsaved moves before a flush happens early
+     * @param idleTimeout how long a saved game can go unused before it's dropped from memory
+     * @param maxLiveGames how many games to keep in memory, as long as they're all saved
+     */
+    public record Settings(Duration flushInterval, int maxDirty, Duration idleTimeout, int maxLiveGames) {
+        public Settings {
+            if (flushInterval.isNegative() || flushInterval.isZero() || maxDirty < 1
+                    || idleTimeout.isNegative() || maxLiveGames < 1) {
+                throw new IllegalArgumentException("Bad write behind settings: " + flushInterval + ", " + maxDirty
+                        + ", " + idleTimeout + ", " + maxLiveGames);
+            }
+        }
+
+        public static Settings defaults() {
+            return new Settings(Duration.ofSeconds(1), 64, Duration.ofMinutes(10), 10_000);
+        }
+
+        /**
+         * Reads db.writeBehind.flushIntervalMillis, db.writeBehind.maxDirty, db.writeBehind.idleTimeoutMillis,
+         * and db.writeBehind.maxLiveGames from db.properties.
+         * This doesn't go through DatabaseManager, so asking doesn't need a database to be set up.
+         *
+         * @return the settings, or null if moves should be saved as they're made, which is
+         * what happens unless a flush interval is set
+         */
+        public static Settings load() {
+            try (InputStream propStream = Thread.currentThread().getContextClassLoader().getResourceAsStream("db.properties")) {
+                if (propStream == null) {
+                    return null;
+                }
+                Properties props = new Properties();
+                props.load(propStream);
+                String flushInterval = props.getProperty("db.writeBehind.flushIntervalMillis");
+                if (flushInterval == null || Long.parseLong(flushInterval.trim()) <= 0) {
+                    return null;
+                }
+                String maxDirty = props.getProperty("db.writeBehind.maxDirty");
+                String idleTimeout = props.getProperty("db.writeBehind.idleTimeoutMillis");
+                String maxLiveGames = props.getProperty("db.writeBehind.maxLiveGames");
+                return new Settings(Duration.ofMillis(Long.parseLong(flushInterval.trim())),
+                        (maxDirty == null) ? defaults().maxDirty() : Integer.parseInt(maxDirty.trim()),
+                        (idleTimeout == null) ? defaults().idleTimeout() : Duration.ofMillis(Long.parseLong(idleTimeout.trim())),
+                        (maxLiveGames == null) ? defaults().maxLiveGames() : Integer.parseInt(maxLiveGames.trim()));
+            } catch (IOException | NumberFormatException e) {
+                throw new RuntimeException("unable to read the write behind settings from db.properties. " + e.getMessage());
+            }
+        }
+    }
+
+    // a game in memory, and when it was last looked at or changed
+    private static final class LiveGame {
+        final GameData gameData;
+        volatile long lastUsed;
+
+        LiveGame(GameData gameData, long lastUsed) {
+            this.gameData = gameData;
+            this.lastUsed = lastUsed;
+        }
+
+        LiveGame touch(long now) {
+            lastUsed = now;
+            return this;
+        }
+    }
+
+    private final GameDataAccessObject database;
+    private final Settings settings;
+    private final LongSupplier clock;
+
+    // the games in memory, and the ones of those with unsaved moves
+    private final Map<Integer, LiveGame> liveGames = new ConcurrentHashMap<>();
+    private final Map<Integer, GameData> dirtyGames = new ConcurrentHashMap<>();
+
+    // flushes and the writes that go straight through can't pass each other, or an old board could win
+    private final Object writeLock = new Object();
+    private final ScheduledExecutorService flusher;
+    private final AtomicBoolean earlyFlushRequested = new AtomicBoolean(false);
+    private volatile boolean closed = false;
+
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong gamesWritten = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public WriteBehindGameDataAccess(GameDataAccessObject database, Settings settings) {
+        this(database, settings, System::nanoTime);
+    }
+
+    public WriteBehindGameDataAccess(GameDataAccessObject database, Settings settings, LongSupplier clock) {
+        this.database = database;
+        this.settings = settings;
+        this.clock = clock;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "game-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = settings.flushInterval().toMillis();
+        flusher.scheduleWithFixedDelay(this::flushQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public GameData makeGame(GameData gameData) throws DataAccessException {
+        synchronized (writeLock) {
+            GameData made = database.makeGame(gameData);
+            liveGames.put(gameData.gameID(), new LiveGame(gameData, clock.getAsLong()));
+            return made;
+        }
+    }
+
+    @Override
+    public GameData getGame(int gameID) throws DataAccessException {
+        // marked as used in the same step it's found, so a flush can't drop it in between
+        LiveGame live = liveGames.computeIfPresent(gameID, (id, game) -> game.touch(clock.getAsLong()));
+        if (live != null) {
+            return live.gameData;
+        }
+        GameData saved = database.getGame(gameID);
+        if (saved == null) {
+            return null;
+        }
+        // if someone else loaded it at the same time, everyone has to use the same copy
+        LiveGame raced = liveGames.putIfAbsent(gameID, new LiveGame(saved, clock.getAsLong()));
+        return (raced != null) ? raced.touch(clock.getAsLong()).gameData : saved;
+    }
+
+    @Override
+    public GameData updateGameWithNewData(GameData gameData) {
+        synchronized (writeLock) {
+            GameData dirty = dirtyGames.get(gameData.gameID());
+            GameData updated = database.updateGameWithNewData(gameData);
+            liveGames.put(gameData.gameID(), new LiveGame(gameData, clock.getAsLong()));
+            // the whole row just got written, board included, unless a move came in since
+            if (dirty != null) {
+                dirtyGames.remove(gameData.gameID(), dirty);
+            }
+            return updated;
+        }
+    }
+
+    @Override
+    public void updateGameStates(List<GameData> games) throws DataAccessException {
+        if (closed) {
+            // nothing is going to flush them anymore
+            database.updateGameStates(games);
+            return;
+        }
+        for (GameData gameData : games) {
+            liveGames.put(gameData.gameID(), new LiveGame(gameData, clock.getAsLong()));
+            dirtyGames.put(gameData.gameID(), gameData);
+        }
+        if (closed) {
+            // close() got called while these were going in, and its last flush might have missed them
+            flush();
+        } else if (dirtyGames.size() >= settings.maxDirty() && earlyFlushRequested.compareAndSet(false, true)) {
+            try {
+                flusher.execute(() -> {
+                    earlyFlushRequested.set(false);
+                    flushQuietly();
+                });
+            } catch (RejectedExecutionException e) {
+                // it's shutting down, and close() flushes everything anyway
+                earlyFlushRequested.set(false);
+            }
+        }
+    }
+
+    @Override
+    public GameData[] getActiveGames() throws DataAccessException {
+        // the saved games, but with the boards from memory, since those might be ahead
+        Map<Integer, GameData> games = new LinkedHashMap<>();
+        for (GameData saved : database.getActiveGames()) {
+            games.put(saved.gameID(), saved);
+        }
+        games.replaceAll((gameID, saved) -> {
+            LiveGame live = liveGames.get(gameID);
+            return (live != null) ? live.gameData : saved;
+        });
+        return games.values().toArray(new GameData[0]);
+    }
+
+    @Override
+    public int[] getGameIDs() throws DataAccessException {
+        // games are made straight in the database, so it has all of them
+        return database.getGameIDs();
+    }
+
+    @Override
+    public GameSummary[] getGameSummaries(GameListFilter filter, String username, int afterGameID, int limit) throws DataAccessException {
+        return database.getGameSummaries(filter, username, afterGameID, limit);
+    }
+
+    /**
+     * Writes every game with unsaved moves to the database, in one batch, then drops the games
+     * that don't need to stay in memory
+     */
+    public void flush() throws DataAccessException {
+        synchronized (writeLock) {
+            long startedAt = clock.getAsLong();
+            List<GameData> batch = new ArrayList<>(dirtyGames.size());
+            for (Map.Entry<Integer, GameData> entry : dirtyGames.entrySet()) {
+                // if a move comes in after this, the game stays dirty for the next flush
+                if (dirtyGames.remove(entry.getKey(), entry.getValue())) {
+                    batch.add(entry.getValue());
+                }
+            }
+
+            if (!batch.isEmpty()) {
+                try {
+                    database.updateGameStates(batch);
+                } catch (DataAccessException | RuntimeException e) {
+                    // put them back to try again, unless a newer move already did
+                    for (GameData gameData : batch) {
+                        dirtyGames.putIfAbsent(gameData.gameID(), gameData);
+                    }
+                    failedFlushes.incrementAndGet();
+                    throw e;
+                }
+                flushes.incrementAndGet();
+                gamesWritten.addAndGet(batch.size());
+            }
+
+            evictUnused(startedAt);
+        }
+    }
+
+    // drops saved games nobody has used since usedBefore: finished ones and ones idle for idleTimeout first,
+    // then the least recently used while there are still more than maxLiveGames
+    private void evictUnused(long usedBefore) {
+        long now = clock.getAsLong();
+        List<Map.Entry<Integer, LiveGame>> stillLive = new ArrayList<>();
+        for (Map.Entry<Integer, LiveGame> entry : liveGames.entrySet()) {
+            LiveGame live = entry.getValue();
+            boolean finished = live.gameData.game() != null && live.gameData.game().isFinished();
+            boolean idle = now - live.lastUsed >= settings.idleTimeout().toNanos();
+            if (!(finished || idle) || !evict(entry.getKey(), usedBefore)) {
+                stillLive.add(entry);
+            }
+        }
+
+        int tooMany = liveGames.size() - settings.maxLiveGames();
+        if (tooMany > 0) {
+            stillLive.sort(Comparator.comparingLong(entry -> entry.getValue().lastUsed));
+            for (int i = 0; i < stillLive.size() && tooMany > 0; i++) {
+                if (evict(stillLive.get(i).getKey(), usedBefore)) {
+                    tooMany--;
+                }
+            }
+        }
+    }
+
+    // dirty games stay, since memory is the only place their moves are, and so do games used since usedBefore,
+    // since someone might be in the middle of a move on them. That's checked in the same step as removing it
+    private boolean evict(int gameID, long usedBefore) {
+        boolean[] evicted = {false};
+        liveGames.computeIfPresent(gameID, (id, live) -> {
+            if (dirtyGames.containsKey(id) || live.lastUsed - usedBefore >= 0) {
+                return live;
+            }
+            evicted[0] = true;
+            return null;
+        });
+        if (evicted[0]) {
+            evictions.incrementAndGet();
+        }
+        return evicted[0];
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (DataAccessException | RuntimeException e) {
+            // the games are still dirty, so the next flush will get them
+            System.out.println("Couldn't save game moves, trying again next time: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stops flushing on a timer and saves everything that hasn't been saved yet
+     */
+    @Override
+    public void close() throws DataAccessException {
+        closed = true;
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(settings.flushInterval().toMillis() + 5000, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    public int getDirtyCount() {
+        return dirtyGames.size();
+    }
+
+    public int getLiveCount() {
+        return liveGames.size();
+    }
+
+    public long getFlushes() {
+        return flushes.get();
+    }
+
+    public long getGamesWritten() {
+        return gamesWritten.get();
+    }
+
+    public long getFailedFlushes() {
+        return failedFlushes.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+}
@@ -14,6 +14,7 @@ import spark.*;
 import websocket.messages.ServerMessage;
 
 import java.sql.Connection;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 
@@ -27,6 +28,9 @@ public class Server {
 
     private Handlers handlers;
 
+    // only set when moves are being saved in batches, see makeGameDataAccess
+    private WriteBehindGameDataAccess writeBehindGames;
+
     public Server() {
         this.handlers = new Handlers(userService, gameService, authService);
         this.websocketServer = new WSServer();
@@ -37,7 +41,7 @@ public class Server {
 
         // uncomment to create the SQL version of the database
         AuthDataAccessMySql authDataAccessMemory = new AuthDataAccessMySql();
-        GameDataAccessMySql gameDataAccessMemory = new GameDataAccessMySql();
+        GameDataAccessObject gameDataAccessMemory = makeGameDataAccess();
         UserDataAccessMySql userDataAccessMemory = new UserDataAccessMySql();
 
         // create the services based on the version of the database we want
@@ -53,9 +57,11 @@ public class Server {
 
         configureDatabase();
 
+        // anything waiting to be saved is about to be deleted anyway, but it shouldn't get written after the delete
+        closeWriteBehindGames();
+
         // uncomment to create the SQL version of the database
         AuthDataAccessMySql authDataAccessMemory = new AuthDataAccessMySql();
-        GameDataAccessMySql gameDataAccessMemory = new GameDataAccessMySql();
         UserDataAccessMySql userDataAccessMemory = new UserDataAccessMySql();
 
         // delete everything from the SQL tables to get them ready to go
@@ -70,6 +76,8 @@ public class Server {
             throw new RuntimeException("Error resetting my sql database");
         }
 
+        GameDataAccessObject gameDataAccessMemory = makeGameDataAccess();
+
         // create the services based on the version of the database we want
         this.authService = new AuthService(authDataAccessMemory);
         this.gameService = new GameService(gameDataAccessMemory, authService);
@@ -79,6 +87,29 @@ public class Server {
         this.websocketServer.setServices(authService, gameService, userService);
     }
 
+    private GameDataAccessObject makeGameDataAccess() {
+        GameDataAccessMySql games = new GameDataAccessMySql();
+        WriteBehindGameDataAccess.Settings writeBehindSettings = WriteBehindGameDataAccess.Settings.load();
+        if (writeBehindSettings == null) {
+            return games;
+        }
+        writeBehindGames = new WriteBehindGameDataAccess(games, writeBehindSettings);
+        return writeBehindGames;
+    }
+
+    // saves any moves that haven't been saved yet
+    private synchronized void closeWriteBehindGames() {
+        if (writeBehindGames == null) {
+            return;
+        }
+        try {
+            writeBehindGames.close();
+        } catch (DataAccessException | RuntimeException e) {
+            System.out.println("Couldn't save the last game moves: " + e.getMessage());
+        }
+        writeBehindGames = null;
+    }
+
     public int run(int desiredPort) {
         // add the right files
         Spark.staticFiles.location("web");
@@ -95,12 +126,16 @@ public class Server {
         Spark.init();
 
         Spark.awaitInitialization();
+
+        // so moves waiting to be saved still get saved when the process is told to quit
+        Runtime.getRuntime().addShutdownHook(new Thread(this::closeWriteBehindGames, "save-games-on-shutdown"));
         return Spark.port();
     }
 
     public void stop() {
         Spark.stop();
         Spark.awaitStop();
+        closeWriteBehindGames();
     }
 
     private void createEndpoints() {
@@ -126,6 +161,10 @@ public class Server {
             this.handlers.handleGetGamesList(request, response);
             return response.body();
         });
+        Spark.get("/game/summaries", (request, response) -> {
+            this.handlers.handleGetGameSummaries(request, response);
+            return response.body();
+        });
         Spark.post("/game", (request, response) -> {
             this.handlers.handleCreateGame(request, response);
             return response.body();
@@ -140,9 +179,6 @@ public class Server {
         try (Connection conn = DatabaseManager.getConnection();
              Statement statement = conn.createStatement()) {
 
-            // Ensure the database exists
-            DatabaseManager.createDatabase();
-
             // Create AuthData table
             statement.executeUpdate("""
             CREATE TABLE IF NOT EXISTS AuthData (
@@ -167,10 +203,20 @@ public class Server {
                 white_username VARCHAR(255),
                 black_username VARCHAR(255),
                 game_name VARCHAR(255) NOT NULL,
-                game_json TEXT NOT NULL
+                game_json TEXT NOT NULL,
+                game_over BOOLEAN NOT NULL DEFAULT FALSE
             )
         """);
 
+            // tables made before game_over existed need it added, and filled in for the games that already ended
+            try (ResultSet columns = conn.getMetaData().getColumns(conn.getCatalog(), null, "GameData", "game_over")) {
+                if (!columns.next()) {
+                    statement.executeUpdate("ALTER TABLE GameData ADD COLUMN game_over BOOLEAN NOT NULL DEFAULT FALSE");
+                    int finished = new GameDataAccessMySql().recordFinishedGames();
+                    System.out.println("Added game_over to GameData, " + finished + " saved games were already over");
+                }
+            }
+
         } catch (SQLException | DataAccessException e) {
             throw new RuntimeException("Error configuring database: " + e.getMessage(), e);
         }
@@ -9,10 +9,8 @@ import org.eclipse.jetty.websocket.api.*;
 import services.AuthService;
 import services.GameService;
 import services.UserService;
-import services.requests.GamesListRequest;
 import services.requests.JoinGameRequest;
 import services.requests.MoveRequest;
-import services.results.GamesListResult;
 import services.results.MoveResult;
 import spark.Spark;
 import websocket.commands.UserGameCommand;
@@ -95,7 +93,8 @@ public class WSServer {
             return;
         }
 
-        if (this.finishedGames.contains(gameID)) {
+        // saving it as resigned is what makes it count as finished in the game lists
+        if (this.finishedGames.contains(gameID) || !gameService.resignGame(authToken, gameID)) {
             // can't resign from it since it's already resigned from!
             ServerMessage errorMessage = ServerMessage.error("Error: Can't resign, as someone already lost!");
             connections.broadcastToSpecificConnection(authToken, errorMessage);
@@ -127,7 +126,7 @@ public class WSServer {
 
         // if this game's already over, don't let them make any moves
         if (this.finishedGames.contains(gameID)) {
-            ServerMessage errorMessage = ServerMessage.error("Error: Can't make a move, as someone already lost!");
+            ServerMessage errorMessage = ServerMessage.error("Error: Can't make a move, the game is already over!");
             connections.broadcastToSpecificConnection(authToken, errorMessage);
             return;
         }
@@ -146,15 +145,7 @@ public class WSServer {
         String leaverName = authService.getUserByAuthToken(authToken);
 
         // update the game so it has null there instead of username, so others can join
-        GamesListRequest request = new GamesListRequest(authToken);
-        GamesListResult gameListResult = gameService.getGamesList(request);
-        GameData[] games = gameListResult.games();
-        GameData game = null;
-        for (GameData g : games) {
-            if (g.gameID() == gameID) {
-                game = g;
-            }
-        }
+        GameData game = gameService.getGame(authToken, gameID);
 
         // if the game is still null, return an error to the sender
         if (game == null) {
@@ -234,15 +225,7 @@ public class WSServer {
     }
 
     public GameData getGame(String authToken, int gameID) throws IOException, DataAccessException {
-        GamesListRequest request = new GamesListRequest(authToken);
-        GamesListResult gameListResult = gameService.getGamesList(request);
-        GameData[] games = gameListResult.games();
-        GameData game = null;
-        for (GameData g : games) {
-            if (g.gameID() == gameID) {
-                game = g;
-            }
-        }
+        GameData game = gameService.getGame(authToken, gameID);
 
         // if the game is still null, return an error to the sender
         if (game == null) {
@@ -256,14 +239,16 @@ public class WSServer {
 
     public void handleMove(ChessMove move, int gameID, String authToken) throws DataAccessException, InvalidMoveException, IOException {
         // see if the piece to move is from the right color
-        GamesListRequest request = new GamesListRequest(authToken);
-        GamesListResult gameListResult = gameService.getGamesList(request);
-        GameData[] games = gameListResult.games();
-        GameData game = null;
-        for (GameData g : games) {
-            if (g.gameID() == gameID) {
-                game = g;
-            }
+        GameData game = gameService.getGame(authToken, gameID);
+        if (game == null) {
+            ServerMessage errorMessage = ServerMessage.error("Error: Bad Game ID");
+            connections.broadcastToSpecificConnection(authToken, errorMessage);
+            return;
+        }
+        if (game.game().isFinished()) {
+            ServerMessage errorMessage = ServerMessage.error("Error: Can't make a move, the game is already over!");
+            connections.broadcastToSpecificConnection(authToken, errorMessage);
+            return;
         }
 
         // figure out the senders' color
@@ -294,18 +279,18 @@ public class WSServer {
         }
 
         GameData updatedGame = null;
+        MoveResult result = null;
 
         try {
-            // handle the move
-            MoveResult result = gameService.handleMove(new MoveRequest(authToken, gameID, move));
+            // handle the move, which checks it's legal before writing it out in SAN
+            result = gameService.handleMove(new MoveRequest(authToken, gameID, move));
+            String moveText = result.moveText();
 
             // find which game its from
             updatedGame = result.game();
             ServerMessage gameUpdateMessage = ServerMessage.loadGame(updatedGame);
             connections.broadcastToAll(gameID, gameUpdateMessage);
-            ServerMessage chessMoveNotification = ServerMessage.notification(authService.getUserByAuthToken(authToken) + " moved from ("
-                    + move.getStartPosition().getRow() + "," + columnToLetter(move.getStartPosition().getColumn()) + ") to ("
-                    + move.getEndPosition().getRow() + "," + columnToLetter(move.getEndPosition().getColumn()) + ").");
+            ServerMessage chessMoveNotification = ServerMessage.notification(senderUsername + " played " + moveText + ".");
             connections.broadcastToAllExcluding(gameID, authToken, chessMoveNotification);
         } catch (Exception error) {
             ServerMessage errorMessage = ServerMessage.error("Error: Invalid Move! Wrong turn, or disallowed movement!");
@@ -313,41 +298,41 @@ public class WSServer {
             return;
         }
         try {
-            // check for check and checkmate
-            boolean isInCheckMateWhite = updatedGame.game().isInCheckmate(ChessGame.TeamColor.WHITE);
-            boolean isInCheckMateBlack = updatedGame.game().isInCheckmate(ChessGame.TeamColor.BLACK);
-            boolean isInCheckWhite = updatedGame.game().isInCheck(ChessGame.TeamColor.WHITE);
-            boolean isInCheckBlack = updatedGame.game().isInCheck(ChessGame.TeamColor.BLACK);
-            System.out.println("HEY");
-            if (isInCheckMateWhite) {
-                System.out.println("HI");
-                ServerMessage checkNotification = ServerMessage.notification(updatedGame.whiteUsername() + " is in checkmate!");
-                connections.broadcastToAll(gameID, checkNotification);
-            } else if (isInCheckMateBlack) {
-                System.out.println("WEE");
-                ServerMessage checkNotification = ServerMessage.notification(updatedGame.blackUsername() + " is in checkmate!");
-                connections.broadcastToAll(gameID, checkNotification);
-            } else if (isInCheckWhite) {
-                System.out.println("WOW");
-                ServerMessage checkNotification = ServerMessage.notification(updatedGame.whiteUsername() + " is in check!");
+            // the status was worked out once when the move was made, so none of this generates moves again.
+            // Only the side to move can be in check after a legal move, and that's just an attack query
+            ChessGame.GameStatus status = result.status();
+            ChessGame.TeamColor turn = updatedGame.game().getTeamTurn();
+            String turnUsername = (turn == ChessGame.TeamColor.WHITE) ? updatedGame.whiteUsername() : updatedGame.blackUsername();
+            if (status == ChessGame.GameStatus.CHECKMATE) {
+                ServerMessage checkNotification = ServerMessage.notification(turnUsername + " is in checkmate!");
                 connections.broadcastToAll(gameID, checkNotification);
-            } else if (isInCheckBlack) {
-                System.out.println("HOWDY");
-                ServerMessage checkNotification = ServerMessage.notification(updatedGame.blackUsername() + " is in check!");
+            } else if (updatedGame.game().isInCheck(turn)) {
+                ServerMessage checkNotification = ServerMessage.notification(turnUsername + " is in check!");
                 connections.broadcastToAll(gameID, checkNotification);
             }
+
+            // checkmate, stalemate, and the draw rules all end the game, so lock it like a resignation does
+            if (status != ChessGame.GameStatus.IN_PROGRESS) {
+                this.finishedGames.add(gameID);
+            }
+            String drawReason = drawReason(status);
+            if (drawReason != null) {
+                ServerMessage drawNotification = ServerMessage.notification("Game over! It's a draw by " + drawReason + ".");
+                connections.broadcastToAll(gameID, drawNotification);
+            }
         } catch (Exception error) {
             ServerMessage errorMessage = ServerMessage.error("Error: Check and Checkmate Checking Problem!" + error.getMessage());
             connections.broadcastToSpecificConnection(authToken, errorMessage);
         }
     }
 
-    public static String columnToLetter(int column) {
-        if (column < 1 || column > 8) {
-            return "FAILED TO GET THE COLUMN LETTER";
-        }
-
-        char letter = (char) ('a' + (column - 1));
-        return String.valueOf(letter);
+    private static String drawReason(ChessGame.GameStatus status) {
+        return switch (status) {
+            case STALEMATE -> "stalemate";
+            case THREEFOLD_REPETITION -> "threefold repetition";
+            case FIFTY_MOVE_RULE -> "the fifty move rule";
+            case INSUFFICIENT_MATERIAL -> "insufficient material";
+            default -> null;
+        };
     }
-}
\ No newline at end of file
+}
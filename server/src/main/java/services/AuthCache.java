@@ -0,0 +1,154 @@
+package services;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Remembers which user each auth token belongs to, so checking a token on every request
+ * doesn't have to go to the database. It also remembers tokens that turned out to be bad,
+ * so a client retrying with an old token doesn't hit the database every time either.
+ *
+ * It holds at most maxSize tokens, dropping the least recently used one when it's full,
+ * and forgets anything older than its time to live so it can't drift too far from the
+ * database. AuthService writes through it on login and logout, so the tokens this server
+ * hands out and removes are never stale.
+ *
+ * A lookup that read the database before a logout can finish after it, so tokens looked up
+ * from the database are only put back with putValidIfNotRevokedSince, which won't bring back
+ * a token that got revoked while it was being looked up.
+ */
+public class AuthCache {
+
+    public static final int DEFAULT_MAX_SIZE = 10_000;
+    public static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofMinutes(10);
+    public static final Duration DEFAULT_INVALID_TIME_TO_LIVE = Duration.ofSeconds(30);
+
+    /**
+     * What the cache knows about a token
+     *
+     * @param username who the token belongs to, or null if it isn't a valid token
+     */
+    public record Entry(String username, long expiresAt) {
+        public boolean isValid() {
+            return username != null;
+        }
+    }
+
+    private final int maxSize;
+    private final long timeToLiveNanos;
+    private final long invalidTimeToLiveNanos;
+    private final LongSupplier clock;
+
+    // access order, so the eldest entry is always the least recently used
+    private final LinkedHashMap<String, Entry> entries;
+
+    // goes up with every revoke, so a lookup can tell whether one happened while it ran
+    private long revocations = 0;
+    private long hits = 0;
+    private long misses = 0;
+
+    public AuthCache() {
+        this(DEFAULT_MAX_SIZE, DEFAULT_TIME_TO_LIVE, DEFAULT_INVALID_TIME_TO_LIVE, System::nanoTime);
+    }
+
+    public AuthCache(int maxSize, Duration timeToLive, Duration invalidTimeToLive, LongSupplier clock) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("The cache has to hold at least one token");
+        }
+        this.maxSize = maxSize;
+        this.timeToLiveNanos = timeToLive.toNanos();
+        this.invalidTimeToLiveNanos = invalidTimeToLive.toNanos();
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > AuthCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * @return what's known about the token, or null if it has to be looked up
+     */
+    public synchronized Entry get(String authToken) {
+        Entry entry = entries.get(authToken);
+        if (entry != null && clock.getAsLong() - entry.expiresAt() >= 0) {
+            entries.remove(authToken);
+            entry = null;
+        }
+        if (entry == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return entry;
+    }
+
+    /**
+     * Remembers that the token belongs to the user
+     */
+    public synchronized void putValid(String authToken, String username) {
+        entries.put(authToken, new Entry(username, clock.getAsLong() + timeToLiveNanos));
+    }
+
+    /**
+     * Remembers that the token isn't valid, for a shorter time than valid tokens
+     */
+    public synchronized void putInvalid(String authToken) {
+        entries.put(authToken, new Entry(null, clock.getAsLong() + invalidTimeToLiveNanos));
+    }
+
+    /**
+     * Remembers that the token was removed, like putInvalid, and makes any lookup of it that's
+     * still going skip putting it back
+     */
+    public synchronized void revoke(String authToken) {
+        revocations++;
+        putInvalid(authToken);
+    }
+
+    /**
+     * @return how many tokens have been revoked, to pass to putValidIfNotRevokedSince. Get this
+     * before looking the token up in the database
+     */
+    public synchronized long getRevocations() {
+        return revocations;
+    }
+
+    /**
+     * Remembers that the token belongs to the user, unless any token got revoked after
+     * getRevocations returned revocationsBefore. That's rare enough that skipping it is fine,
+     * the next check just looks the token up again.
+     *
+     * @return whether it was remembered
+     */
+    public synchronized boolean putValidIfNotRevokedSince(String authToken, String username, long revocationsBefore) {
+        if (revocations != revocationsBefore) {
+            return false;
+        }
+        putValid(authToken, username);
+        return true;
+    }
+
+    public synchronized void invalidate(String authToken) {
+        entries.remove(authToken);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+}
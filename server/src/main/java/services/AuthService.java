@@ -11,9 +11,15 @@ import java.util.UUID;
 public class AuthService {
 
     private final AuthDataAccessObject authDataAccess;
+    private final AuthCache authCache;
 
     public AuthService(AuthDataAccessObject authDataAccess) {
+        this(authDataAccess, new AuthCache());
+    }
+
+    public AuthService(AuthDataAccessObject authDataAccess, AuthCache authCache) {
         this.authDataAccess = authDataAccess;
+        this.authCache = authCache;
     }
 
     public String authenticateUser(String username) throws DataAccessException {
@@ -24,22 +30,18 @@ public class AuthService {
         String authToken = generateToken();
         AuthData newAuthData = new AuthData(authToken, username);
         authDataAccess.addAuthToken(newAuthData);
+        authCache.putValid(authToken, username);
         return authToken;
     }
 
     public boolean verifyAuthToken(String authToken) throws DataAccessException {
-        AuthData[] validCredentials = authDataAccess.getValidTokens();
-        for (AuthData authData : validCredentials) {
-            if (authData.authToken().equals(authToken)) {
-                return true;
-            }
-        }
-        return false;
+        return getUserByAuthToken(authToken) != null;
     }
 
     public LogoutResult logout(LogoutRequest logoutRequest) throws DataAccessException {
         // delete the auth token
         AuthData authData = authDataAccess.deleteAuthToken(logoutRequest.authToken());
+        authCache.revoke(logoutRequest.authToken());
 
         if (authData != null) {
             return new LogoutResult(logoutRequest.authToken());
@@ -48,8 +50,30 @@ public class AuthService {
         }
     }
 
+    /**
+     * @return the username the token belongs to, or null if it isn't a valid token
+     */
     public String getUserByAuthToken(String authToken) throws DataAccessException {
-        return authDataAccess.getUserByAuthToken(authToken);
+        if (authToken == null) {
+            return null;
+        }
+
+        // most requests come from someone already logged in, so this usually skips the database
+        AuthCache.Entry cached = authCache.get(authToken);
+        if (cached != null) {
+            return cached.username();
+        }
+
+        // only look up the one token, instead of every token there is
+        long revocationsBefore = authCache.getRevocations();
+        String username = authDataAccess.getUserByAuthToken(authToken);
+        if (username != null) {
+            // a logout while this was looking it up must win, or the token would come back
+            authCache.putValidIfNotRevokedSince(authToken, username, revocationsBefore);
+        } else {
+            authCache.putInvalid(authToken);
+        }
+        return username;
     }
 
     public String getAuthTokenByUser(String username) throws DataAccessException {
@@ -2,22 +2,33 @@ package services;
 
 import chess.ChessGame;
 import chess.InvalidMoveException;
+import chess.MoveNotation;
+import chess.PackedMove;
 import dataaccess.*;
 
 import model.GameData;
+import model.GameSummary;
 import services.requests.CreateGameRequest;
+import services.requests.GameSummariesRequest;
 import services.requests.GamesListRequest;
 import services.requests.JoinGameRequest;
 import services.requests.MoveRequest;
 import services.results.CreateGameResult;
+import services.results.GameSummariesResult;
 import services.results.GamesListResult;
 import services.results.JoinGameResult;
 import services.results.MoveResult;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
 import java.util.Random;
 
 public class GameService {
 
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 200;
+
     private final GameDataAccessObject gameDataAccess;
     private final AuthService authService;
 
@@ -33,6 +44,9 @@ public class GameService {
         if (validAuth) {
             // get the games list
             GameData[] gamesList = gameDataAccess.getActiveGames();
+            for (int i = 0; i < gamesList.length; i++) {
+                gamesList[i] = snapshot(gamesList[i]);
+            }
 
             return new GamesListResult(gamesList);
         } else {
@@ -40,6 +54,89 @@ public class GameService {
         }
     }
 
+    /**
+     * Lists one page of games without their boards. Pass the nextCursor from one page as the
+     * cursor for the next; it's null once there aren't any more.
+     *
+     * @return the page, or null if the auth token is bad
+     * @throws IllegalArgumentException if the filter or limit doesn't make sense
+     */
+    public GameSummariesResult getGameSummaries(GameSummariesRequest request) throws DataAccessException {
+        if (!authService.verifyAuthToken(request.authToken())) {
+            return null;
+        }
+
+        GameListFilter filter = (request.filter() == null || request.filter().isBlank())
+                ? GameListFilter.ALL
+                : GameListFilter.valueOf(request.filter().trim().toUpperCase(Locale.ROOT));
+        int limit = (request.limit() == null) ? DEFAULT_PAGE_SIZE : request.limit();
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit has to be between 1 and " + MAX_PAGE_SIZE);
+        }
+        int afterGameID = (request.cursor() == null) ? 0 : request.cursor();
+        String username = (filter == GameListFilter.MINE) ? authService.getUserByAuthToken(request.authToken()) : null;
+
+        // ask for one extra so we know whether there's another page without a second query
+        GameSummary[] games = gameDataAccess.getGameSummaries(filter, username, afterGameID, limit + 1);
+        if (games.length <= limit) {
+            return new GameSummariesResult(games, null);
+        }
+        games = Arrays.copyOf(games, limit);
+        return new GameSummariesResult(games, games[limit - 1].gameID());
+    }
+
+    /**
+     * Looks up one game by its ID
+     *
+     * @return a copy of the game, or null if the auth token is bad or there's no game with that ID
+     */
+    public GameData getGame(String authToken, int gameID) throws DataAccessException {
+        if (!authService.verifyAuthToken(authToken)) {
+            return null;
+        }
+        return snapshot(gameDataAccess.getGame(gameID));
+    }
+
+    /**
+     * Ends a game by resignation and saves that, so the game counts as finished everywhere, even
+     * after a restart
+     *
+     * @return true if it got resigned, false if the auth token is bad, there's no game with that ID,
+     * or the game was already over
+     */
+    public boolean resignGame(String authToken, int gameID) throws DataAccessException {
+        if (!authService.verifyAuthToken(authToken)) {
+            return false;
+        }
+        GameData gameToResign = gameDataAccess.getGame(gameID);
+        if (gameToResign == null) {
+            return false;
+        }
+        ChessGame chessGame = gameToResign.game();
+        synchronized (chessGame) {
+            if (chessGame.isFinished()) {
+                return false;
+            }
+            chessGame.resign();
+        }
+        gameDataAccess.updateGameStates(List.of(gameToResign));
+        return true;
+    }
+
+    // the data access can hand back the same live game to every thread, and even asking a game questions
+    // tries moves out on its board. So anything that leaves this class gets its own copy, made while
+    // holding the game, and only handleMove touches the real one
+    private static GameData snapshot(GameData gameData) {
+        if (gameData == null || gameData.game() == null) {
+            return gameData;
+        }
+        ChessGame copy;
+        synchronized (gameData.game()) {
+            copy = new ChessGame(gameData.game());
+        }
+        return new GameData(gameData.gameID(), gameData.whiteUsername(), gameData.blackUsername(), gameData.gameName(), copy);
+    }
+
     public CreateGameResult createGame(CreateGameRequest createGameRequest) throws DataAccessException {
         // authenticate
         boolean validAuth = authService.verifyAuthToken(createGameRequest.authToken());
@@ -67,16 +164,8 @@ public class GameService {
             boolean validAuth = authService.verifyAuthToken(joinGameRequest.authToken());
 
             if (validAuth) {
-                // get the game from the id
-                GameData[] allGames = gameDataAccess.getActiveGames();
-
-                // see if the game ID exists
-                GameData gameToJoin = null;
-                for (GameData game : allGames) {
-                    if (game.gameID() == joinGameRequest.gameID()) {
-                        gameToJoin = game;
-                    }
-                }
+                // get the game from the id, and see if it exists
+                GameData gameToJoin = gameDataAccess.getGame(joinGameRequest.gameID());
 
                 if (gameToJoin == null) {
                     throw new DataAccessException("Game ID doesn't exist");
@@ -120,16 +209,8 @@ public class GameService {
         boolean validAuth = authService.verifyAuthToken(joinGameRequest.authToken());
 
         if (validAuth) {
-            // get the game from the id
-            GameData[] allGames = gameDataAccess.getActiveGames();
-
-            // see if the game ID exists
-            GameData gameToLeave = null;
-            for (GameData game : allGames) {
-                if (game.gameID() == joinGameRequest.gameID()) {
-                    gameToLeave = game;
-                }
-            }
+            // get the game from the id, and see if it exists
+            GameData gameToLeave = gameDataAccess.getGame(joinGameRequest.gameID());
 
             if (gameToLeave == null) {
                 throw new DataAccessException("Game ID doesn't exist");
@@ -171,14 +252,7 @@ public class GameService {
 
         if (validAuth) {
 
-            GameData[] allGames = gameDataAccess.getActiveGames();
-
-            GameData gameToModify = null;
-            for (GameData game : allGames) {
-                if (game.gameID() == moveRequest.gameID()) {
-                    gameToModify = game;
-                }
-            }
+            GameData gameToModify = gameDataAccess.getGame(moveRequest.gameID());
 
             if (gameToModify == null) {
                 throw new DataAccessException("Game ID doesn't exist");
@@ -190,8 +264,24 @@ public class GameService {
             String currentWhiteUser = gameToModify.whiteUsername();
             String currentBlackUser = gameToModify.blackUsername();
 
-            // modify the game
-            chessGame.makeMove(moveRequest.move());
+            // modify the game, holding it so it can't be saved halfway through the move. The SAN comes
+            // from the legal move it matches, in the position before it, so it's only worked out for real moves
+            String moveText;
+            ChessGame.GameStatus status;
+            synchronized (chessGame) {
+                // a finished game stays finished, even after a restart forgets which games WSServer locked
+                if (chessGame.isFinished()) {
+                    throw new InvalidMoveException("The game is already over");
+                }
+                int legalMove = MoveNotation.parseUci(chessGame, MoveNotation.toUci(moveRequest.move()));
+                if (legalMove == PackedMove.NONE) {
+                    throw new InvalidMoveException("INVALID MOVE");
+                }
+                moveText = MoveNotation.toSan(chessGame, legalMove);
+                chessGame.makeLegalMove(legalMove);
+                // this is the only place a game changes, so it's the one place whether it's over gets worked out
+                status = chessGame.recordStatus();
+            }
 
             // make a modified game with the modified game
             GameData modifiedGameData = new GameData(moveRequest.gameID(), currentWhiteUser, currentBlackUser, gameName, chessGame);
@@ -200,9 +290,10 @@ public class GameService {
                 throw new DataAccessException("Failed to handle the chess move");
             }
 
-            gameDataAccess.updateGameWithNewData(modifiedGameData);
+            // only the board changed, so that's all that needs saving
+            gameDataAccess.updateGameStates(List.of(modifiedGameData));
 
-            return new MoveResult(moveRequest.gameID(), modifiedGameData);
+            return new MoveResult(moveRequest.gameID(), snapshot(modifiedGameData), moveText, status);
 
         } else {
             return null;
@@ -124,6 +124,45 @@ public class Handlers {
         return response;
     }
 
+    public Response handleGetGameSummaries(Request request, Response response) {
+        response.type("application/json");
+
+        GameSummariesRequest summariesRequest;
+        try {
+            summariesRequest = new GameSummariesRequest(request.headers("Authorization"),
+                    parseOptionalInt(request.queryParams("cursor")), parseOptionalInt(request.queryParams("limit")),
+                    request.queryParams("filter"));
+        } catch (NumberFormatException error) {
+            response.status(400);
+            response.body("{\"message\":\"Error: cursor and limit have to be numbers\"}");
+            return response;
+        }
+
+        try {
+            GameSummariesResult result = gameService.getGameSummaries(summariesRequest);
+
+            if (result != null) {
+                response.status(200);
+                response.body(GSON.toJson(result));
+            } else {
+                response.status(401);
+                response.body("{\"message\":\"Error: Problem getting active games\"}");
+            }
+        } catch (IllegalArgumentException error) {
+            response.status(400);
+            response.body("{\"message\":\"Error: Bad filter or limit\"}");
+        } catch (Exception error) {
+            response.body("{\"message\":\"Error: Problem getting active games\"}");
+            response.status(500);
+        }
+
+        return response;
+    }
+
+    private static Integer parseOptionalInt(String value) {
+        return (value == null || value.isBlank()) ? null : Integer.parseInt(value.trim());
+    }
+
     public Response handleCreateGame(Request request, Response response) {
         response.type("application/json");
 
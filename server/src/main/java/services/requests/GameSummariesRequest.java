@@ -0,0 +1,8 @@
+package services.requests;
+
+public record GameSummariesRequest(
+        String authToken,
+        Integer cursor,
+        Integer limit,
+        String filter
+) {}
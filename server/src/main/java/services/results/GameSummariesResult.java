@@ -0,0 +1,8 @@
+package services.results;
+
+import model.GameSummary;
+
+public record GameSummariesResult(
+        GameSummary[] games,
+        Integer nextCursor
+) {}
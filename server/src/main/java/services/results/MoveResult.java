@@ -1,8 +1,11 @@
 package services.results;
 
+import chess.ChessGame;
 import model.GameData;
 
 public record MoveResult(
         int gameID,
-        GameData game
+        GameData game,
+        String moveText,
+        ChessGame.GameStatus status
 ) {}
@@ -0,0 +1,178 @@
+package dataaccess;
+
+import org.junit.jupiter.api.*;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConnectionPoolTests {
+
+    // stands in for a real connection, so the pool can be tested without MySQL
+    private static class FakeConnection {
+        boolean valid = true;
+        boolean autoCommit = true;
+        boolean closed = false;
+        int rollbacks = 0;
+
+        Connection asConnection() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> switch (method.getName()) {
+                        case "isValid" -> valid;
+                        case "getAutoCommit" -> autoCommit;
+                        case "setAutoCommit" -> {
+                            autoCommit = (Boolean) args[0];
+                            yield null;
+                        }
+                        case "rollback" -> {
+                            rollbacks++;
+                            yield null;
+                        }
+                        case "close" -> {
+                            closed = true;
+                            yield null;
+                        }
+                        case "isClosed" -> closed;
+                        default -> null;
+                    });
+        }
+    }
+
+    private final List<FakeConnection> opened = new ArrayList<>();
+    private ConnectionPool pool;
+
+    @AfterEach
+    public void tearDown() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    @Test
+    @DisplayName("connection pool - closing a connection gives it back to be used again")
+    public void testReuse() throws SQLException {
+        pool = pool(0, 2, Duration.ofSeconds(1), Duration.ofMinutes(1));
+        Connection first = pool.getConnection();
+        first.close();
+        assertTrue(first.isClosed());
+        assertThrows(SQLException.class, first::getAutoCommit);
+        // closing it again doesn't give it back twice
+        first.close();
+
+        Connection second = pool.getConnection();
+        assertEquals(1, opened.size());
+        assertFalse(opened.get(0).closed);
+        assertEquals(1, pool.getStats().active());
+        second.close();
+
+        ConnectionPool.Stats stats = pool.getStats();
+        assertEquals(0, stats.active());
+        assertEquals(1, stats.idle());
+        assertEquals(2, stats.borrows());
+        assertEquals(1, stats.created());
+    }
+
+    @Test
+    @DisplayName("connection pool - waits for a connection when they're all in use, up to the timeout")
+    public void testMaxSize() throws Exception {
+        pool = pool(0, 1, Duration.ofMillis(50), Duration.ofMinutes(1));
+        Connection only = pool.getConnection();
+        assertThrows(SQLException.class, pool::getConnection);
+
+        pool.close();
+        pool = pool(0, 1, Duration.ofSeconds(5), Duration.ofMinutes(1));
+        Connection borrowed = pool.getConnection();
+        Thread giveBack = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+                borrowed.close();
+            } catch (InterruptedException | SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        giveBack.start();
+        try (Connection next = pool.getConnection()) {
+            assertNotNull(next);
+        }
+        giveBack.join();
+        assertTrue(pool.getStats().maxWaitNanos() >= Duration.ofMillis(40).toNanos());
+        assertEquals(2, opened.size());
+        only.close();
+    }
+
+    @Test
+    @DisplayName("connection pool - connections that stopped working get replaced")
+    public void testValidation() throws SQLException {
+        pool = pool(0, 2, Duration.ofSeconds(1), Duration.ofMinutes(1));
+        pool.getConnection().close();
+        opened.get(0).valid = false;
+
+        pool.getConnection().close();
+        assertEquals(2, opened.size());
+        assertTrue(opened.get(0).closed);
+        assertEquals(1, pool.getStats().closed());
+    }
+
+    @Test
+    @DisplayName("connection pool - a transaction left open gets rolled back when it's given back")
+    public void testRollback() throws SQLException {
+        pool = pool(0, 1, Duration.ofSeconds(1), Duration.ofMinutes(1));
+        Connection connection = pool.getConnection();
+        connection.setAutoCommit(false);
+        connection.close();
+        assertEquals(1, opened.get(0).rollbacks);
+        assertTrue(opened.get(0).autoCommit);
+    }
+
+    @Test
+    @DisplayName("connection pool - closes idle connections down to the minimum and reports leaks")
+    public void testMaintenance() throws SQLException {
+        pool = new ConnectionPool(this::open, new ConnectionPool.Settings(1, 4, Duration.ofSeconds(1), Duration.ZERO,
+                Duration.ZERO, Duration.ZERO, true, Duration.ofHours(1)));
+        Connection a = pool.getConnection();
+        Connection b = pool.getConnection();
+        Connection c = pool.getConnection();
+        b.close();
+        c.close();
+
+        pool.maintain();
+        ConnectionPool.Stats stats = pool.getStats();
+        // a is still borrowed, so it counts toward the minimum and gets reported
+        assertEquals(0, stats.idle());
+        assertEquals(1, stats.active());
+        assertEquals(1, stats.leaksDetected());
+        // it's only reported once
+        pool.maintain();
+        assertEquals(1, pool.getStats().leaksDetected());
+
+        a.close();
+        pool.maintain();
+        assertEquals(1, pool.getStats().idle());
+    }
+
+    @Test
+    @DisplayName("connection pool - still reports leaks with stack traces turned off")
+    public void testLeakWithoutStackTrace() throws SQLException {
+        pool = pool(0, 1, Duration.ofSeconds(1), Duration.ZERO);
+        Connection leaked = pool.getConnection();
+        pool.maintain();
+        assertEquals(1, pool.getStats().leaksDetected());
+        leaked.close();
+    }
+
+    private ConnectionPool pool(int minSize, int maxSize, Duration borrowTimeout, Duration leakThreshold) {
+        return new ConnectionPool(this::open, new ConnectionPool.Settings(minSize, maxSize, borrowTimeout,
+                Duration.ofMinutes(5), Duration.ZERO, leakThreshold, false, Duration.ofHours(1)));
+    }
+
+    private synchronized Connection open() {
+        FakeConnection connection = new FakeConnection();
+        opened.add(connection);
+        return connection.asConnection();
+    }
+}
@@ -0,0 +1,224 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import model.GameData;
+import model.GameSummary;
+import org.junit.jupiter.api.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WriteBehindGameDataAccessTests {
+
+    // stands in for the database, remembering each batch of boards it's asked to save
+    private static class RecordingGameDataAccess implements GameDataAccessObject {
+        final GameDataAccessMemory games = new GameDataAccessMemory();
+        final List<List<GameData>> batches = new ArrayList<>();
+        volatile boolean failing = false;
+
+        public GameData makeGame(GameData gameData) throws DataAccessException {
+            return games.makeGame(gameData);
+        }
+
+        public GameData getGame(int gameID) throws DataAccessException {
+            return games.getGame(gameID);
+        }
+
+        public GameData updateGameWithNewData(GameData gameData) {
+            return games.updateGameWithNewData(gameData);
+        }
+
+        public synchronized void updateGameStates(List<GameData> gameStates) throws DataAccessException {
+            if (failing) {
+                throw new DataAccessException("database is down");
+            }
+            batches.add(List.copyOf(gameStates));
+            games.updateGameStates(gameStates);
+        }
+
+        public GameData[] getActiveGames() throws DataAccessException {
+            return games.getActiveGames();
+        }
+
+        public int[] getGameIDs() throws DataAccessException {
+            return games.getGameIDs();
+        }
+
+        public GameSummary[] getGameSummaries(GameListFilter filter, String username, int afterGameID, int limit) {
+            return games.getGameSummaries(filter, username, afterGameID, limit);
+        }
+
+        synchronized int batchCount() {
+            return batches.size();
+        }
+    }
+
+    private RecordingGameDataAccess database;
+    private WriteBehindGameDataAccess games;
+
+    @BeforeEach
+    public void setup() {
+        database = new RecordingGameDataAccess();
+    }
+
+    @AfterEach
+    public void tearDown() throws DataAccessException {
+        database.failing = false;
+        games.close();
+    }
+
+    @Test
+    @DisplayName("write behind - moves wait in memory and get saved together")
+    public void testBatching() throws DataAccessException, InvalidMoveException {
+        games = new WriteBehindGameDataAccess(database, settings(100, 100));
+        games.makeGame(new GameData(1, "a", "b", "one", new ChessGame()));
+        games.makeGame(new GameData(2, "c", "d", "two", new ChessGame()));
+
+        move(1, "e2e4");
+        move(1, "e7e5");
+        move(2, "d2d4");
+        assertEquals(0, database.batchCount());
+        assertEquals(2, games.getDirtyCount());
+        // the copy in memory is the real one, so it's ahead of the database
+        assertEquals(ChessGame.TeamColor.WHITE, games.getGame(1).game().getTeamTurn());
+
+        games.flush();
+        assertEquals(1, database.batchCount());
+        assertEquals(2, database.batches.get(0).size());
+        assertEquals(0, games.getDirtyCount());
+        assertEquals(2, games.getGamesWritten());
+
+        // nothing to save, so no trip to the database
+        games.flush();
+        assertEquals(1, database.batchCount());
+    }
+
+    @Test
+    @DisplayName("write behind - closing saves whatever hasn't been saved yet")
+    public void testCloseFlushes() throws DataAccessException, InvalidMoveException {
+        games = new WriteBehindGameDataAccess(database, settings(100, 100));
+        games.makeGame(new GameData(1, "a", "b", "one", new ChessGame()));
+        move(1, "e2e4");
+
+        games.close();
+        assertEquals(1, database.batchCount());
+        assertEquals(0, games.getDirtyCount());
+
+        // after closing, moves go straight to the database
+        move(1, "e7e5");
+        assertEquals(2, database.batchCount());
+    }
+
+    @Test
+    @DisplayName("write behind - a failed save keeps the games dirty for the next try")
+    public void testFailedFlush() throws DataAccessException, InvalidMoveException {
+        games = new WriteBehindGameDataAccess(database, settings(100, 100));
+        games.makeGame(new GameData(1, "a", "b", "one", new ChessGame()));
+        move(1, "e2e4");
+
+        database.failing = true;
+        assertThrows(DataAccessException.class, games::flush);
+        assertEquals(1, games.getDirtyCount());
+        assertEquals(1, games.getFailedFlushes());
+
+        database.failing = false;
+        games.flush();
+        assertEquals(1, database.batchCount());
+        assertEquals(0, games.getDirtyCount());
+    }
+
+    @Test
+    @DisplayName("write behind - joining writes straight through, board and all")
+    public void testWriteThrough() throws DataAccessException, InvalidMoveException {
+        games = new WriteBehindGameDataAccess(database, settings(100, 100));
+        games.makeGame(new GameData(1, "a", null, "one", new ChessGame()));
+        move(1, "e2e4");
+
+        GameData joined = new GameData(1, "a", "b", "one", games.getGame(1).game());
+        games.updateGameWithNewData(joined);
+        assertEquals("b", database.getGame(1).blackUsername());
+        // the board went along with it, so there's nothing left to flush
+        assertEquals(0, games.getDirtyCount());
+    }
+
+    @Test
+    @DisplayName("write behind - too many dirty games makes it save early")
+    public void testMaxDirty() throws Exception {
+        games = new WriteBehindGameDataAccess(database, settings(2, 100));
+        games.makeGame(new GameData(1, "a", "b", "one", new ChessGame()));
+        games.makeGame(new GameData(2, "c", "d", "two", new ChessGame()));
+        move(1, "e2e4");
+        move(2, "e2e4");
+
+        long giveUpAt = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (database.batchCount() == 0 && System.nanoTime() < giveUpAt) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, database.batchCount());
+    }
+
+    @Test
+    @DisplayName("write behind - saved games that go unused get dropped from memory")
+    public void testIdleEviction() throws DataAccessException {
+        long[] now = {0};
+        games = new WriteBehindGameDataAccess(database, settings(100, 100), () -> now[0]);
+        games.makeGame(new GameData(1, "a", "b", "one", new ChessGame()));
+        games.makeGame(new GameData(2, "c", "d", "two", new ChessGame()));
+
+        now[0] += Duration.ofMinutes(5).toNanos();
+        games.getGame(2);
+        now[0] += Duration.ofMinutes(6).toNanos();
+        games.flush();
+        // one hasn't been used for eleven minutes, two only for six
+        assertEquals(1, games.getLiveCount());
+        assertEquals(1, games.getEvictions());
+
+        // asking for it again just loads it back from the database
+        assertEquals("one", games.getGame(1).gameName());
+        assertEquals(2, games.getLiveCount());
+    }
+
+    @Test
+    @DisplayName("write behind - too many games in memory drops the least recently used saved ones")
+    public void testLeastRecentlyUsedEviction() throws DataAccessException, InvalidMoveException {
+        long[] now = {0};
+        games = new WriteBehindGameDataAccess(database, settings(100, 2), () -> now[0]);
+        for (int gameID = 1; gameID <= 3; gameID++) {
+            now[0]++;
+            games.makeGame(new GameData(gameID, "a", "b", "game " + gameID, new ChessGame()));
+        }
+        // one gets a move first, then two and three get used after it
+        now[0]++;
+        move(1, "e2e4");
+        now[0]++;
+        games.getGame(2);
+        now[0]++;
+        games.getGame(3);
+        now[0]++;
+        games.flush();
+        // the flush saves one's move, which makes it the least recently used game with nothing to save
+        assertEquals(2, games.getLiveCount());
+        assertEquals(1, games.getEvictions());
+
+        // it comes back from the database with its move
+        assertEquals(ChessGame.TeamColor.BLACK, games.getGame(1).game().getTeamTurn());
+    }
+
+    private static WriteBehindGameDataAccess.Settings settings(int maxDirty, int maxLiveGames) {
+        return new WriteBehindGameDataAccess.Settings(Duration.ofHours(1), maxDirty, Duration.ofMinutes(10), maxLiveGames);
+    }
+
+    private void move(int gameID, String uci) throws DataAccessException, InvalidMoveException {
+        GameData gameData = games.getGame(gameID);
+        ChessPosition start = new ChessPosition(uci.charAt(1) - '0', uci.charAt(0) - 'a' + 1);
+        ChessPosition end = new ChessPosition(uci.charAt(3) - '0', uci.charAt(2) - 'a' + 1);
+        gameData.game().makeMove(new ChessMove(start, end, null));
+        games.updateGameStates(List.of(gameData));
+    }
+}
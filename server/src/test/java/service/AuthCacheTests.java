@@ -0,0 +1,158 @@
+package service;
+
+import dataaccess.AuthDataAccessMemory;
+import dataaccess.AuthDataAccessObject;
+import dataaccess.DataAccessException;
+import model.AuthData;
+import org.junit.jupiter.api.*;
+import services.AuthCache;
+import services.AuthService;
+import services.requests.LogoutRequest;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AuthCacheTests {
+
+    private long now = 0;
+    private AuthCache authCache;
+
+    @BeforeEach
+    public void setup() {
+        now = 0;
+        authCache = new AuthCache(2, Duration.ofMinutes(10), Duration.ofSeconds(30), () -> now);
+    }
+
+    @Test
+    @DisplayName("auth cache - drops the least recently used token when it's full")
+    void testLeastRecentlyUsed() {
+        authCache.putValid("a", "alice");
+        authCache.putValid("b", "bob");
+        // using a makes b the oldest
+        assertEquals("alice", authCache.get("a").username());
+        authCache.putValid("c", "carol");
+
+        assertEquals(2, authCache.size());
+        assertNull(authCache.get("b"));
+        assertNotNull(authCache.get("a"));
+        assertNotNull(authCache.get("c"));
+    }
+
+    @Test
+    @DisplayName("auth cache - forgets tokens after their time to live, bad ones sooner")
+    void testTimeToLive() {
+        authCache.putValid("good", "alice");
+        authCache.putInvalid("bad");
+        assertFalse(authCache.get("bad").isValid());
+
+        now += Duration.ofSeconds(30).toNanos();
+        assertNull(authCache.get("bad"));
+        assertTrue(authCache.get("good").isValid());
+
+        now += Duration.ofMinutes(10).toNanos();
+        assertNull(authCache.get("good"));
+        assertEquals(0, authCache.size());
+    }
+
+    @Test
+    @DisplayName("auth cache - the auth service only asks the database about a token once")
+    void testAuthServiceUsesCache() throws DataAccessException {
+        int[] lookups = {0};
+        AuthDataAccessMemory authDataAccess = new AuthDataAccessMemory();
+        // counts how many times the token actually gets looked up
+        AuthDataAccessObject countingAuthDataAccess = new AuthDataAccessObject() {
+            public AuthData addAuthToken(AuthData authData) throws DataAccessException {
+                return authDataAccess.addAuthToken(authData);
+            }
+
+            public AuthData deleteAuthToken(String authToken) throws DataAccessException {
+                return authDataAccess.deleteAuthToken(authToken);
+            }
+
+            public AuthData[] getValidTokens() throws DataAccessException {
+                return authDataAccess.getValidTokens();
+            }
+
+            public String getUserByAuthToken(String authToken) throws DataAccessException {
+                lookups[0]++;
+                return authDataAccess.getUserByAuthToken(authToken);
+            }
+
+            public String getAuthTokenByUser(String username) throws DataAccessException {
+                return authDataAccess.getAuthTokenByUser(username);
+            }
+        };
+        AuthService authService = new AuthService(countingAuthDataAccess, authCache);
+
+        // logging in puts the token in the cache, so checking it never looks it up
+        String authToken = authService.authenticateUser("testUser");
+        assertTrue(authService.verifyAuthToken(authToken));
+        assertEquals("testUser", authService.getUserByAuthToken(authToken));
+        assertEquals(0, lookups[0]);
+
+        // a bad token gets looked up once, then remembered as bad
+        assertFalse(authService.verifyAuthToken("1234"));
+        assertFalse(authService.verifyAuthToken("1234"));
+        assertEquals(1, lookups[0]);
+
+        // logging out takes effect right away
+        authService.logout(new LogoutRequest(authToken));
+        assertFalse(authService.verifyAuthToken(authToken));
+        assertNull(authService.getUserByAuthToken(authToken));
+        assertEquals(1, lookups[0]);
+    }
+
+    @Test
+    @DisplayName("auth cache - a lookup that finishes after a logout doesn't bring the token back")
+    void testLogoutDuringLookup() throws DataAccessException {
+        AuthDataAccessMemory authDataAccess = new AuthDataAccessMemory();
+        AuthService[] authService = new AuthService[1];
+        String[] logOutDuringLookup = {null};
+        // logs the token out right after the database read it, before the lookup caches it
+        AuthDataAccessObject racingAuthDataAccess = new AuthDataAccessObject() {
+            public AuthData addAuthToken(AuthData authData) throws DataAccessException {
+                return authDataAccess.addAuthToken(authData);
+            }
+
+            public AuthData deleteAuthToken(String authToken) throws DataAccessException {
+                return authDataAccess.deleteAuthToken(authToken);
+            }
+
+            public AuthData[] getValidTokens() throws DataAccessException {
+                return authDataAccess.getValidTokens();
+            }
+
+            public String getUserByAuthToken(String authToken) throws DataAccessException {
+                String username = authDataAccess.getUserByAuthToken(authToken);
+                if (authToken.equals(logOutDuringLookup[0])) {
+                    logOutDuringLookup[0] = null;
+                    authService[0].logout(new LogoutRequest(authToken));
+                }
+                return username;
+            }
+
+            public String getAuthTokenByUser(String username) throws DataAccessException {
+                return authDataAccess.getAuthTokenByUser(username);
+            }
+        };
+        authService[0] = new AuthService(racingAuthDataAccess, authCache);
+
+        String authToken = authService[0].authenticateUser("testUser");
+        // forget it so the next check has to look it up
+        authCache.invalidate(authToken);
+        logOutDuringLookup[0] = authToken;
+
+        // the lookup itself saw the token before it was removed
+        assertEquals("testUser", authService[0].getUserByAuthToken(authToken));
+        // but the logout's record of it stays
+        assertFalse(authCache.get(authToken).isValid());
+        assertFalse(authService[0].verifyAuthToken(authToken));
+
+        // a token looked up with nobody logging out still gets cached
+        String otherToken = authService[0].authenticateUser("otherUser");
+        authCache.invalidate(otherToken);
+        assertTrue(authService[0].verifyAuthToken(otherToken));
+        assertTrue(authCache.get(otherToken).isValid());
+    }
+}
@@ -1,17 +1,27 @@
 package service;
 
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
 import dataaccess.DataAccessException;
 import dataaccess.AuthDataAccessMemory;
 import dataaccess.GameDataAccessMemory;
+import model.GameData;
+import model.GameSummary;
 import org.junit.jupiter.api.*;
 import services.AuthService;
 import services.GameService;
 import services.requests.CreateGameRequest;
+import services.requests.GameSummariesRequest;
 import services.requests.GamesListRequest;
 import services.requests.JoinGameRequest;
+import services.requests.MoveRequest;
 import services.results.CreateGameResult;
+import services.results.GameSummariesResult;
 import services.results.GamesListResult;
 import services.results.JoinGameResult;
+import services.results.MoveResult;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -96,4 +106,98 @@ public class GameServiceTests {
 
         assertNull(joinResponse);
     }
+
+    @Test
+    @Order(7)
+    @DisplayName("getGame - positive")
+    void testGetGamePositive() throws DataAccessException {
+        CreateGameResult createResponse = gameService.createGame(new CreateGameRequest(validAuthToken, "testGame"));
+        gameService.joinGame(new JoinGameRequest(validAuthToken, createResponse.gameID(), "WHITE"));
+
+        GameData game = gameService.getGame(validAuthToken, createResponse.gameID());
+        assertNotNull(game);
+        assertEquals("testGame", game.gameName());
+        assertEquals("testUser", game.whiteUsername());
+    }
+
+    @Test
+    @Order(8)
+    @DisplayName("getGame - negative")
+    void testGetGameNegative() throws DataAccessException {
+        CreateGameResult createResponse = gameService.createGame(new CreateGameRequest(validAuthToken, "testGame"));
+
+        assertNull(gameService.getGame("1234", createResponse.gameID()));
+        assertNull(gameService.getGame(validAuthToken, createResponse.gameID() + 100000));
+        assertThrows(DataAccessException.class,
+                () -> gameService.joinGame(new JoinGameRequest(validAuthToken, createResponse.gameID() + 100000, "WHITE")));
+    }
+
+    @Test
+    @Order(9)
+    @DisplayName("getGameSummaries - positive")
+    void testGetGameSummariesPositive() throws DataAccessException, InvalidMoveException {
+        GameDataAccessMemory games = new GameDataAccessMemory();
+        gameService = new GameService(games, authService);
+        for (int i = 1; i <= 5; i++) {
+            games.makeGame(new GameData(i, (i <= 2) ? "testUser" : null, (i == 2) ? "otherUser" : null, "game " + i, new ChessGame()));
+        }
+        // one move from fool's mate. The game only counts as over once that move is made
+        games.makeGame(new GameData(6, "a", "b", "game 6", ChessGame.fromFen("rnbqkbnr/pppp1ppp/8/4p3/6P1/5P2/PPPPP2P/RNBQKBNR b KQkq g3 0 2")));
+        assertEquals(0, gameService.getGameSummaries(new GameSummariesRequest(validAuthToken, null, null, "finished")).games().length);
+        MoveResult mate = gameService.handleMove(new MoveRequest(validAuthToken, 6, new ChessMove(new ChessPosition(8, 4), new ChessPosition(4, 8), null)));
+        assertEquals(ChessGame.GameStatus.CHECKMATE, mate.status());
+        assertEquals("Qh4#", mate.moveText());
+        // nothing can be played after the game's over
+        assertThrows(InvalidMoveException.class, () -> gameService.handleMove(new MoveRequest(validAuthToken, 6,
+                new ChessMove(new ChessPosition(2, 1), new ChessPosition(3, 1), null))));
+
+        // walk through every game two at a time
+        GameSummariesResult page = gameService.getGameSummaries(new GameSummariesRequest(validAuthToken, null, 2, null));
+        assertArrayEquals(new int[]{1, 2}, ids(page.games()));
+        assertEquals(2, page.nextCursor());
+        page = gameService.getGameSummaries(new GameSummariesRequest(validAuthToken, page.nextCursor(), 2, null));
+        assertArrayEquals(new int[]{3, 4}, ids(page.games()));
+        page = gameService.getGameSummaries(new GameSummariesRequest(validAuthToken, page.nextCursor(), 2, null));
+        assertArrayEquals(new int[]{5, 6}, ids(page.games()));
+        assertNull(page.nextCursor());
+
+        assertArrayEquals(new int[]{1, 2}, ids(gameService.getGameSummaries(
+                new GameSummariesRequest(validAuthToken, null, null, "mine")).games()));
+        assertArrayEquals(new int[]{1, 3, 4, 5}, ids(gameService.getGameSummaries(
+                new GameSummariesRequest(validAuthToken, null, null, "open")).games()));
+        GameSummary[] finished = gameService.getGameSummaries(new GameSummariesRequest(validAuthToken, null, null, "finished")).games();
+        assertArrayEquals(new int[]{6}, ids(finished));
+        assertTrue(finished[0].gameOver());
+        assertEquals("game 6", finished[0].gameName());
+
+        // resigning finishes a game too, and it can only happen once
+        assertTrue(gameService.resignGame(validAuthToken, 5));
+        assertFalse(gameService.resignGame(validAuthToken, 5));
+        assertFalse(gameService.resignGame(validAuthToken, 6));
+        assertArrayEquals(new int[]{5, 6}, ids(gameService.getGameSummaries(
+                new GameSummariesRequest(validAuthToken, null, null, "finished")).games()));
+        assertArrayEquals(new int[]{1, 3, 4}, ids(gameService.getGameSummaries(
+                new GameSummariesRequest(validAuthToken, null, null, "open")).games()));
+    }
+
+    @Test
+    @Order(10)
+    @DisplayName("getGameSummaries - negative")
+    void testGetGameSummariesNegative() throws DataAccessException {
+        assertNull(gameService.getGameSummaries(new GameSummariesRequest("1234", null, null, null)));
+        assertThrows(IllegalArgumentException.class,
+                () -> gameService.getGameSummaries(new GameSummariesRequest(validAuthToken, null, null, "nonsense")));
+        assertThrows(IllegalArgumentException.class,
+                () -> gameService.getGameSummaries(new GameSummariesRequest(validAuthToken, null, 0, null)));
+        assertThrows(IllegalArgumentException.class,
+                () -> gameService.getGameSummaries(new GameSummariesRequest(validAuthToken, null, GameService.MAX_PAGE_SIZE + 1, null)));
+    }
+
+    private static int[] ids(GameSummary[] games) {
+        int[] ids = new int[games.length];
+        for (int i = 0; i < games.length; i++) {
+            ids[i] = games[i].gameID();
+        }
+        return ids;
+    }
 }
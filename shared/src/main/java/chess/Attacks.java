@@ -0,0 +1,54 @@
+package chess;
+
+/**
+ * Bitboards of the squares a piece attacks from a square (bit (row - 1) * 8 + (column - 1)
+ * for each one), for code outside this package that needs more than ChessBoard.isSquareAttacked,
+ * like an evaluation counting mobility. Sliding pieces stop at the first piece in each
+ * direction, which is included since it could be taken (or is being defended).
+ */
+public final class Attacks {
+
+    private Attacks() {
+    }
+
+    public static long knight(int square) {
+        return MoveTables.KNIGHT_ATTACKS[square];
+    }
+
+    public static long king(int square) {
+        return MoveTables.KING_ATTACKS[square];
+    }
+
+    /**
+     * @return the two (or one, on the edge) squares a pawn of this team captures on
+     */
+    public static long pawn(ChessGame.TeamColor team, int square) {
+        return MoveTables.PAWN_ATTACKS[team.ordinal()][square];
+    }
+
+    public static long bishop(int square, long occupied) {
+        return slide(square, occupied, MoveTables.FIRST_DIAGONAL_DIRECTION, MoveTables.LAST_DIAGONAL_DIRECTION);
+    }
+
+    public static long rook(int square, long occupied) {
+        return slide(square, occupied, MoveTables.FIRST_STRAIGHT_DIRECTION, MoveTables.LAST_STRAIGHT_DIRECTION);
+    }
+
+    public static long queen(int square, long occupied) {
+        return slide(square, occupied, MoveTables.FIRST_STRAIGHT_DIRECTION, MoveTables.LAST_DIAGONAL_DIRECTION);
+    }
+
+    private static long slide(int square, long occupied, int firstDirection, int lastDirection) {
+        long attacks = 0L;
+        for (int direction = firstDirection; direction <= lastDirection; direction++) {
+            for (int target : MoveTables.RAYS[direction][square]) {
+                long bit = 1L << target;
+                attacks |= bit;
+                if ((occupied & bit) != 0) {
+                    break;
+                }
+            }
+        }
+        return attacks;
+    }
+}
@@ -4,6 +4,10 @@ import java.util.*;
 /**
  * A chessboard that can hold and rearrange chess pieces.
  * <p>
+ * Boards aren't thread-safe, and that includes reading them: checking whether a move is
+ * legal makes it on the board and takes it back again. Anything that shares a board between
+ * threads has to hold a lock on it (or its ChessGame) for every call, or work on a copy.
+ * <p>
  * Note: You can add to this class, but you may not alter
  * signature of the existing methods.
  */
@@ -13,6 +17,64 @@ public class ChessBoard {
     public int numPieces = 0;
     char[] letterMapping = {'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h'};
 
+    // the bitboards are the real board: one long per piece type and color, where bit (row - 1) * 8 + (column - 1)
+    // is set if that piece is on that square. The occupancy masks are just the ORs of those, kept up to date as
+    // pieces come and go. They're transient since the JSON adapter rebuilds them from the pieces
+    transient long[] pieceBitboards = new long[12];
+    transient long[] colorBitboards = new long[2];
+    transient long occupied = 0L;
+
+    // the actual piece objects, indexed by square, so getPiece can hand back what was added there
+    transient ChessPiece[] squares = new ChessPiece[64];
+
+    // the Zobrist key for just the pieces (see Zobrist), XORed in and out right alongside the bitboards
+    transient long pieceKey = 0L;
+    // the same thing for just the pawns, which is all the pawn structure part of an evaluation depends on
+    transient long pawnKey = 0L;
+
+    // running totals of PieceSquareTables (white minus black, material included) and of the game phase,
+    // kept up to date the same way, so evaluating a position doesn't have to add up every piece
+    transient int midgameScore = 0;
+    transient int endgameScore = 0;
+    transient int gamePhase = 0;
+
+    // castling and en passant depend on what's happened before, not just where the pieces are, so the board
+    // keeps track of them. These aren't transient so they survive being sent around as JSON
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE = 4;
+    public static final int BLACK_QUEENSIDE = 8;
+    public static final int ALL_CASTLING_RIGHTS = WHITE_KINGSIDE | WHITE_QUEENSIDE | BLACK_KINGSIDE | BLACK_QUEENSIDE;
+    int castlingRights = ALL_CASTLING_RIGHTS;
+    int enPassantSquare = -1;
+
+    // what makeMove picked up, took, and changed, one entry per move that hasn't been taken back yet
+    private transient ChessPiece[] movedPieceStack = new ChessPiece[64];
+    private transient ChessPiece[] capturedPieceStack = new ChessPiece[64];
+    private transient int[] castlingRightsStack = new int[64];
+    private transient int[] enPassantSquareStack = new int[64];
+    private transient int undoDepth = 0;
+
+    // which castling rights are still around after anything moves from or to each square
+    private static final int[] CASTLING_RIGHTS_KEPT = new int[64];
+
+    // one shared position per square, so we don't have to make new ones every time we hand one out
+    private static final ChessPosition[] POSITIONS = new ChessPosition[64];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            POSITIONS[square] = new ChessPosition(square / 8 + 1, square % 8 + 1);
+            CASTLING_RIGHTS_KEPT[square] = ALL_CASTLING_RIGHTS;
+        }
+        // moving a king or rook off its starting square, or taking a rook on one, loses those rights for good
+        CASTLING_RIGHTS_KEPT[squareIndex(1, 5)] &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+        CASTLING_RIGHTS_KEPT[squareIndex(1, 8)] &= ~WHITE_KINGSIDE;
+        CASTLING_RIGHTS_KEPT[squareIndex(1, 1)] &= ~WHITE_QUEENSIDE;
+        CASTLING_RIGHTS_KEPT[squareIndex(8, 5)] &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        CASTLING_RIGHTS_KEPT[squareIndex(8, 8)] &= ~BLACK_KINGSIDE;
+        CASTLING_RIGHTS_KEPT[squareIndex(8, 1)] &= ~BLACK_QUEENSIDE;
+    }
+
     // important things for making the checkered background of the board
     private static final String UNICODE_ESCAPE = "\u001b";
     public static final String SET_BG_COLOR_LIGHT_GREY = UNICODE_ESCAPE + "[48;5;242m";
@@ -30,15 +92,36 @@ public class ChessBoard {
     public ChessBoard(ChessBoard otherBoard) {
        // this.pieces = otherBoard.pieces;  would make a shallow copy only, so commented out
 
-        // deep copy
+        // deep copy, going square by square so the map and the squares array share the same copied pieces
         HashMap<ChessPosition, ChessPiece> piecesCopy = new HashMap<>();
         for (Map.Entry<ChessPosition, ChessPiece> entry : otherBoard.pieces.entrySet()) {
-            if ((entry.getKey() != null) && (entry.getValue() != null)) {
+            if ((entry.getKey() != null) && (entry.getValue() != null) && !isOnBoard(entry.getKey())) {
                 piecesCopy.put(entry.getKey().copy(), entry.getValue().copy());
             }
         }
+        long stillToCopy = otherBoard.occupied;
+        while (stillToCopy != 0) {
+            int square = Long.numberOfTrailingZeros(stillToCopy);
+            stillToCopy &= stillToCopy - 1;
+
+            ChessPiece pieceCopy = otherBoard.squares[square].copy();
+            this.squares[square] = pieceCopy;
+            piecesCopy.put(POSITIONS[square], pieceCopy);
+        }
         this.pieces = piecesCopy;
         this.numPieces = otherBoard.numPieces;
+
+        System.arraycopy(otherBoard.pieceBitboards, 0, this.pieceBitboards, 0, 12);
+        this.colorBitboards[0] = otherBoard.colorBitboards[0];
+        this.colorBitboards[1] = otherBoard.colorBitboards[1];
+        this.occupied = otherBoard.occupied;
+        this.pieceKey = otherBoard.pieceKey;
+        this.pawnKey = otherBoard.pawnKey;
+        this.midgameScore = otherBoard.midgameScore;
+        this.endgameScore = otherBoard.endgameScore;
+        this.gamePhase = otherBoard.gamePhase;
+        this.castlingRights = otherBoard.castlingRights;
+        this.enPassantSquare = otherBoard.enPassantSquare;
     }
 
     public ChessBoard copy() {
@@ -56,13 +139,19 @@ public class ChessBoard {
         if (piece != null) {
             numPieces++;
         }
+
+        // keep the bitboards in sync with the map
+        if (isOnBoard(position)) {
+            int square = squareIndex(position.getRow(), position.getColumn());
+            clearSquare(square);
+            if (piece != null) {
+                fillSquare(square, piece);
+            }
+        }
     }
 
     public void addPiece(ChessPosition position, ChessPiece piece, boolean shouldPrint) {
-        pieces.put(position, piece);
-        if (piece != null) {
-            numPieces++;
-        }
+        addPiece(position, piece);
     }
 
     /**
@@ -73,69 +162,425 @@ public class ChessBoard {
      * position
      */
     public ChessPiece getPiece(ChessPosition position) {
-        return pieces.get(position);
+        if (!isOnBoard(position)) {
+            return pieces.get(position);
+        }
+        return getPiece(squareIndex(position.getRow(), position.getColumn()));
     }
 
     public ChessPiece getPiece(ChessPosition position, boolean shouldPrint) {
-        ChessPiece piece = pieces.get(position);
-        return piece;
+        return getPiece(position);
+    }
+
+    /**
+     * Gets a chess piece by its square index, (row - 1) * 8 + (column - 1)
+     *
+     * @param square the square index, from 0 (a1) to 63 (h8)
+     * @return the piece on that square, or null if it's empty
+     */
+    public ChessPiece getPiece(int square) {
+        if ((occupied & (1L << square)) == 0) {
+            return null;
+        }
+        return squares[square];
     }
 
     // a function to get a team's king's location
     public ChessPosition getKingPosition(ChessGame.TeamColor team) {
-        for (Map.Entry<ChessPosition, ChessPiece> entry : pieces.entrySet()) {
-            ChessPiece piece = entry.getValue(); // get a piece out of the entry if its possible
-            if (piece != null) {
-                if (piece.getTeamColor() == team) {
-                    if (piece.getPieceType() == ChessPiece.PieceType.KING) {
-                        return entry.getKey();
-                    }
-                }
-            }
+        long kings = pieceBitboards[bitboardIndex(team, ChessPiece.PieceType.KING)];
+        if (kings == 0) {
+            return null;
         }
-        return null;
+        return POSITIONS[Long.numberOfTrailingZeros(kings)];
     }
 
     // a function that loops through all of the pieces from a team, and gets a set of all the places they could move
     public Set<ChessPosition> getPlacesTeamCouldGo(ChessGame.TeamColor team) {
         Set<ChessPosition> placesTheTeamCouldGo = new HashSet<ChessPosition>();
-        for (Map.Entry<ChessPosition, ChessPiece> entry : pieces.entrySet()) {
-            ChessPiece piece = entry.getValue();
-            ChessPosition position = entry.getKey();
-
-            if (piece != null) {
-                // is it from the right team?
-                if (piece.getTeamColor() == team) {
-                    // where can this piece move?
-                    Collection<ChessMove> possibleMoves = piece.pieceMoves(this, position);
-
-                    // just get the positions out of the move
-                    for (ChessMove possibleMove : possibleMoves) {
-                        ChessPosition positionToGoTo = possibleMove.getEndPosition();
-                        placesTheTeamCouldGo.add(positionToGoTo);
-                    }
-                }
-            }
+        for (ChessMove possibleMove : getMovesTeamCouldDo(team)) {
+            // just get the positions out of the move
+            placesTheTeamCouldGo.add(possibleMove.getEndPosition());
         }
         return placesTheTeamCouldGo;
     }
 
     // Get every move possible for a team
     public Collection<ChessMove> getMovesTeamCouldDo(ChessGame.TeamColor team) {
-        Collection<ChessMove> possibleMoves = new ArrayList<>();
-        for (Map.Entry<ChessPosition, ChessPiece> entry : pieces.entrySet()) {
-            ChessPiece piece = entry.getValue();
-            ChessPosition position = entry.getKey();
+        MoveList possibleMoves = new MoveList();
+        generateMoves(team, possibleMoves);
+        return possibleMoves.toChessMoves();
+    }
 
-            if (piece != null) {
-                // is it from the right team?
-                if (piece.getTeamColor() == team) {
-                    // where can this piece move?
-                    possibleMoves.addAll(piece.pieceMoves(this, position));
+    /**
+     * Adds every move a team could make to a list, as packed ints (see PackedMove).
+     * Like getMovesTeamCouldDo, this doesn't check whether a move leaves the king in danger.
+     *
+     * @param team  the team to generate moves for
+     * @param moves the list to add them to; it isn't cleared first
+     */
+    public void generateMoves(ChessGame.TeamColor team, MoveList moves) {
+        MoveGenerator.addTeamMoves(this, team, moves);
+    }
+
+    /**
+     * Adds every move the piece on a square could make to a list, as packed ints,
+     * including castling and en passant. Does nothing if the square is empty.
+     */
+    public void generatePieceMoves(int square, MoveList moves) {
+        ChessPiece piece = getPiece(square);
+        if (piece != null) {
+            MoveGenerator.addPieceMoves(this, square, piece.getTeamColor(), piece.getPieceType(), moves);
+            MoveGenerator.addSpecialMoves(this, square, piece.getTeamColor(), piece.getPieceType(), moves);
+        }
+    }
+
+    /**
+     * Figures out if any piece from a team could capture on a square. Instead of
+     * generating every enemy move, this looks outward from the square itself: a
+     * knight jump away, a king step away, a pawn capture away, and along each
+     * straight and diagonal line until the first piece it runs into.
+     *
+     * @param position  the square to check
+     * @param attackers the team that might be attacking it
+     * @return true if one of the attackers' pieces could capture on that square
+     */
+    public boolean isSquareAttacked(ChessPosition position, ChessGame.TeamColor attackers) {
+        return isSquareAttacked(squareIndex(position.getRow(), position.getColumn()), attackers);
+    }
+
+    public boolean isSquareAttacked(int square, ChessGame.TeamColor attackers) {
+        // knights and kings just need one look in each of their directions
+        if ((MoveTables.KNIGHT_ATTACKS[square] & pieceBitboards[bitboardIndex(attackers, ChessPiece.PieceType.KNIGHT)]) != 0) {
+            return true;
+        }
+        if ((MoveTables.KING_ATTACKS[square] & pieceBitboards[bitboardIndex(attackers, ChessPiece.PieceType.KING)]) != 0) {
+            return true;
+        }
+
+        // an attacking pawn sits where one of our pawns on this square would capture
+        int defenders = 1 - attackers.ordinal();
+        if ((MoveTables.PAWN_ATTACKS[defenders][square] & pieceBitboards[bitboardIndex(attackers, ChessPiece.PieceType.PAWN)]) != 0) {
+            return true;
+        }
+
+        // walk out along each line until something blocks it, and see if that something slides that way
+        long queens = pieceBitboards[bitboardIndex(attackers, ChessPiece.PieceType.QUEEN)];
+        long straightSliders = pieceBitboards[bitboardIndex(attackers, ChessPiece.PieceType.ROOK)] | queens;
+        long diagonalSliders = pieceBitboards[bitboardIndex(attackers, ChessPiece.PieceType.BISHOP)] | queens;
+        if (straightSliders != 0 && anySliderAlongRays(straightSliders, square,
+                MoveTables.FIRST_STRAIGHT_DIRECTION, MoveTables.LAST_STRAIGHT_DIRECTION)) {
+            return true;
+        }
+        return diagonalSliders != 0 && anySliderAlongRays(diagonalSliders, square,
+                MoveTables.FIRST_DIAGONAL_DIRECTION, MoveTables.LAST_DIAGONAL_DIRECTION);
+    }
+
+    private boolean anySliderAlongRays(long sliders, int square, int firstDirection, int lastDirection) {
+        for (int direction = firstDirection; direction <= lastDirection; direction++) {
+            for (int target : MoveTables.RAYS[direction][square]) {
+                long bit = 1L << target;
+                if ((occupied & bit) != 0) {
+                    // first piece in this direction; it either attacks us or blocks everything behind it
+                    if ((sliders & bit) != 0) {
+                        return true;
+                    }
+                    break;
                 }
             }
         }
-        return possibleMoves;
+        return false;
+    }
+
+    /**
+     * @return true if that team's king is attacked right now (false if it has no king)
+     */
+    public boolean isInCheck(ChessGame.TeamColor team) {
+        long king = pieceBitboards[bitboardIndex(team, ChessPiece.PieceType.KING)];
+        if (king == 0) {
+            return false;
+        }
+        ChessGame.TeamColor enemyTeam = (team == ChessGame.TeamColor.WHITE) ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        return isSquareAttacked(Long.numberOfTrailingZeros(king), enemyTeam);
+    }
+
+    /**
+     * Makes a move on this board in place, without checking that it's legal.
+     * Pawns moving with a promotion piece get swapped for that piece.
+     *
+     * @param move the move to make
+     * @return what's needed to take the move back with unmakeMove
+     */
+    public MoveUndo makeMove(ChessMove move) {
+        int packedMove = PackedMove.fromChessMove(this, move);
+        ChessPiece movedPiece = squares[PackedMove.from(packedMove)];
+        int takenSquare = capturedSquare(packedMove, movedPiece.getTeamColor());
+        ChessPiece capturedPiece = ((occupied & (1L << takenSquare)) != 0) ? squares[takenSquare] : null;
+        MoveUndo undo = new MoveUndo(move, packedMove, movedPiece, capturedPiece, movedPiece.getTeamColor(),
+                castlingRights, enPassantSquare);
+
+        // everything needed to take it back is in the record, so nothing stays on the undo stack
+        makeMoveAndSync(packedMove);
+        return undo;
+    }
+
+    /**
+     * Takes back a move made with makeMove, from what its record remembers. Moves have
+     * to be taken back in the reverse order they were made.
+     *
+     * @param undo the record makeMove returned
+     */
+    public void unmakeMove(MoveUndo undo) {
+        putBack(undo.packedMove(), undo.movedPiece(), undo.capturedPiece());
+        castlingRights = undo.castlingRights();
+        enPassantSquare = undo.enPassantSquare();
+        syncPiecesMap(undo.packedMove(), undo.turn());
+    }
+
+    // copy every square a move touched from the bitboards back into the pieces map
+    private void syncPiecesMap(int move, ChessGame.TeamColor team) {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        pieces.put(POSITIONS[from], squares[from]);
+        pieces.put(POSITIONS[to], squares[to]);
+        if (PackedMove.hasFlag(move, PackedMove.EN_PASSANT)) {
+            int takenSquare = capturedSquare(move, team);
+            pieces.put(POSITIONS[takenSquare], squares[takenSquare]);
+        } else if (PackedMove.hasFlag(move, PackedMove.CASTLE)) {
+            pieces.put(POSITIONS[castlingRookStart(from, to)], squares[castlingRookStart(from, to)]);
+            pieces.put(POSITIONS[castlingRookEnd(from, to)], squares[castlingRookEnd(from, to)]);
+        }
+    }
+
+    // a packed move that's staying made, so the pieces map gets brought along too. It's never taken back,
+    // so its undo entry gets dropped right away instead of piling up for the whole game
+    void makeMoveAndSync(int move) {
+        ChessGame.TeamColor team = squares[PackedMove.from(move)].getTeamColor();
+        makeMove(move);
+        undoDepth--;
+        movedPieceStack[undoDepth] = null;
+        capturedPieceStack[undoDepth] = null;
+        syncPiecesMap(move, team);
+    }
+
+    // how many moves are made that haven't been taken back yet
+    int getUndoDepth() {
+        return undoDepth;
+    }
+
+    /**
+     * Makes a packed move (see PackedMove) on this board in place, without checking
+     * that it's legal. This is the fast path for search and legality checks: it only
+     * updates the bitboards and squares, not the pieces map, so it has to be taken
+     * back with unmakeMove(int) before anything reads the map.
+     *
+     * @param move the packed move to make
+     */
+    public void makeMove(int move) {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        ChessPiece movedPiece = squares[from];
+        ChessGame.TeamColor team = movedPiece.getTeamColor();
+        int takenSquare = capturedSquare(move, team);
+        ChessPiece capturedPiece = ((occupied & (1L << takenSquare)) != 0) ? squares[takenSquare] : null;
+
+        // remember what was picked up, what was taken, and the old castling/en passant state so we can put it back
+        if (undoDepth == movedPieceStack.length) {
+            movedPieceStack = Arrays.copyOf(movedPieceStack, undoDepth * 2);
+            capturedPieceStack = Arrays.copyOf(capturedPieceStack, undoDepth * 2);
+            castlingRightsStack = Arrays.copyOf(castlingRightsStack, undoDepth * 2);
+            enPassantSquareStack = Arrays.copyOf(enPassantSquareStack, undoDepth * 2);
+        }
+        movedPieceStack[undoDepth] = movedPiece;
+        capturedPieceStack[undoDepth] = capturedPiece;
+        castlingRightsStack[undoDepth] = castlingRights;
+        enPassantSquareStack[undoDepth] = enPassantSquare;
+        undoDepth++;
+
+        clearSquare(from);
+        if (capturedPiece != null) {
+            clearSquare(takenSquare);
+        }
+
+        // if it's a pawn with a promotion, it turns into the new piece on the end square
+        ChessPiece placedPiece = movedPiece;
+        if (PackedMove.isPromotion(move) && movedPiece.getPieceType() == ChessPiece.PieceType.PAWN) {
+            placedPiece = ChessPiece.of(team, PackedMove.promotion(move));
+        }
+        fillSquare(to, placedPiece);
+
+        // castling moves the rook over to the other side of the king too
+        if (PackedMove.hasFlag(move, PackedMove.CASTLE)) {
+            int rookStart = castlingRookStart(from, to);
+            ChessPiece rook = squares[rookStart];
+            clearSquare(rookStart);
+            fillSquare(castlingRookEnd(from, to), rook);
+        }
+
+        castlingRights &= CASTLING_RIGHTS_KEPT[from] & CASTLING_RIGHTS_KEPT[to];
+        enPassantSquare = PackedMove.hasFlag(move, PackedMove.DOUBLE_PUSH) ? (from + to) / 2 : -1;
+    }
+
+    /**
+     * Takes back the last packed move made with makeMove(int)
+     *
+     * @param move the same packed move that was made
+     */
+    public void unmakeMove(int move) {
+        if (undoDepth == 0) {
+            throw new IllegalStateException("There's no move made with makeMove(int) to take back");
+        }
+        undoDepth--;
+        ChessPiece movedPiece = movedPieceStack[undoDepth];
+        ChessPiece capturedPiece = capturedPieceStack[undoDepth];
+        castlingRights = castlingRightsStack[undoDepth];
+        enPassantSquare = enPassantSquareStack[undoDepth];
+        movedPieceStack[undoDepth] = null;
+        capturedPieceStack[undoDepth] = null;
+
+        putBack(move, movedPiece, capturedPiece);
+    }
+
+    // moves the pieces of a move back where they were, leaving castling and en passant to the caller
+    private void putBack(int move, ChessPiece movedPiece, ChessPiece capturedPiece) {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+
+        if (PackedMove.hasFlag(move, PackedMove.CASTLE)) {
+            int rookEnd = castlingRookEnd(from, to);
+            ChessPiece rook = squares[rookEnd];
+            clearSquare(rookEnd);
+            fillSquare(castlingRookStart(from, to), rook);
+        }
+
+        // put the moving piece back where it started, and whatever it took back where it was
+        clearSquare(to);
+        fillSquare(from, movedPiece);
+        if (capturedPiece != null) {
+            fillSquare(capturedSquare(move, movedPiece.getTeamColor()), capturedPiece);
+        }
+    }
+
+    // where the piece a move takes is sitting; that's the end square except for en passant
+    private static int capturedSquare(int move, ChessGame.TeamColor team) {
+        int to = PackedMove.to(move);
+        if (PackedMove.hasFlag(move, PackedMove.EN_PASSANT)) {
+            return (team == ChessGame.TeamColor.WHITE) ? to - 8 : to + 8;
+        }
+        return to;
+    }
+
+    // kingside the rook comes from the corner next to the king's end square, queenside from two further along
+    static int castlingRookStart(int kingFrom, int kingTo) {
+        return (kingTo > kingFrom) ? kingFrom + 3 : kingFrom - 4;
+    }
+
+    static int castlingRookEnd(int kingFrom, int kingTo) {
+        return (kingTo > kingFrom) ? kingFrom + 1 : kingFrom - 1;
+    }
+
+    /**
+     * Gets the bitboard for one kind of piece
+     *
+     * @param team the team the pieces are on
+     * @param type the type of piece
+     * @return a long with bit (row - 1) * 8 + (column - 1) set for every square holding that piece
+     */
+    public long getBitboard(ChessGame.TeamColor team, ChessPiece.PieceType type) {
+        return pieceBitboards[bitboardIndex(team, type)];
+    }
+
+    /**
+     * @return a long with a bit set for every square holding one of that team's pieces
+     */
+    public long getTeamBitboard(ChessGame.TeamColor team) {
+        return colorBitboards[team.ordinal()];
+    }
+
+    /**
+     * @return a long with a bit set for every square holding any piece
+     */
+    public long getOccupiedBitboard() {
+        return occupied;
+    }
+
+    /**
+     * @return which castling rights are left, as a mix of WHITE_KINGSIDE, WHITE_QUEENSIDE,
+     * BLACK_KINGSIDE and BLACK_QUEENSIDE. A right only gets used if the king and rook are
+     * also still on their starting squares.
+     */
+    public int getCastlingRights() {
+        return castlingRights;
+    }
+
+    public void setCastlingRights(int castlingRights) {
+        this.castlingRights = castlingRights & ALL_CASTLING_RIGHTS;
+    }
+
+    /**
+     * @return the square a pawn just skipped over with a two square move, which an enemy pawn
+     * can capture onto en passant, or -1 if there isn't one
+     */
+    public int getEnPassantSquare() {
+        return enPassantSquare;
+    }
+
+    public void setEnPassantSquare(int enPassantSquare) {
+        this.enPassantSquare = enPassantSquare;
+    }
+
+    public static int squareIndex(int row, int column) {
+        return (row - 1) * 8 + (column - 1);
+    }
+
+    public static ChessPosition positionOf(int square) {
+        return POSITIONS[square];
+    }
+
+    static int bitboardIndex(ChessGame.TeamColor team, ChessPiece.PieceType type) {
+        return team.ordinal() * 6 + type.ordinal();
+    }
+
+    private static boolean isOnBoard(ChessPosition position) {
+        return position != null && position.getRow() >= 1 && position.getRow() <= 8
+                && position.getColumn() >= 1 && position.getColumn() <= 8;
+    }
+
+    // take whatever is on a square out of the bitboards
+    private void clearSquare(int square) {
+        long bit = 1L << square;
+        if ((occupied & bit) == 0) {
+            return;
+        }
+        ChessPiece oldPiece = squares[square];
+        int index = bitboardIndex(oldPiece.getTeamColor(), oldPiece.getPieceType());
+        pieceBitboards[index] &= ~bit;
+        colorBitboards[oldPiece.getTeamColor().ordinal()] &= ~bit;
+        occupied &= ~bit;
+        pieceKey ^= Zobrist.PIECE_SQUARE[index][square];
+        if (oldPiece.getPieceType() == ChessPiece.PieceType.PAWN) {
+            pawnKey ^= Zobrist.PIECE_SQUARE[index][square];
+        }
+        midgameScore -= PieceSquareTables.MIDGAME[index][square];
+        endgameScore -= PieceSquareTables.ENDGAME[index][square];
+        gamePhase -= PieceSquareTables.PHASE_WEIGHTS[oldPiece.getPieceType().ordinal()];
+        squares[square] = null;
+    }
+
+    // put a piece on an empty square in the bitboards
+    private void fillSquare(int square, ChessPiece piece) {
+        long bit = 1L << square;
+        int index = bitboardIndex(piece.getTeamColor(), piece.getPieceType());
+        pieceBitboards[index] |= bit;
+        colorBitboards[piece.getTeamColor().ordinal()] |= bit;
+        occupied |= bit;
+        pieceKey ^= Zobrist.PIECE_SQUARE[index][square];
+        if (piece.getPieceType() == ChessPiece.PieceType.PAWN) {
+            pawnKey ^= Zobrist.PIECE_SQUARE[index][square];
+        }
+        midgameScore += PieceSquareTables.MIDGAME[index][square];
+        endgameScore += PieceSquareTables.ENDGAME[index][square];
+        gamePhase += PieceSquareTables.PHASE_WEIGHTS[piece.getPieceType().ordinal()];
+        squares[square] = piece;
     }
 
     /**
@@ -172,47 +617,96 @@ public class ChessBoard {
         addPiece(new ChessPosition(8, 7), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
         addPiece(new ChessPosition(8, 8), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
 
-        // set the right number of pieces
+        // set the right number of pieces, and nobody has moved yet so all the castling is still open
         this.numPieces = 32;
+        this.castlingRights = ALL_CASTLING_RIGHTS;
+        this.enPassantSquare = -1;
     }
 
+    /**
+     * Sets up a board from a FEN string (see Fen), including its castling rights and
+     * en passant square. Whose turn it is and the move counters belong to ChessGame,
+     * so use ChessGame.fromFen to keep those.
+     *
+     * @throws IllegalArgumentException if the string isn't a valid position
+     */
+    public static ChessBoard fromFen(String fen) {
+        return Fen.parse(fen).getBoard();
+    }
+
+    /**
+     * @return the piece placement part of a FEN string for this board, like
+     * "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR"
+     */
+    public String toFen() {
+        return Fen.formatPlacement(this);
+    }
+
+    /**
+     * @return the Zobrist key for where the pieces are, plus castling rights and the en passant
+     * square. Whose turn it is isn't part of the board, so ChessGame.getZobristKey adds that.
+     */
+    public long getZobristKey() {
+        return pieceKey ^ Zobrist.stateKey(castlingRights, enPassantSquare);
+    }
+
+    /**
+     * @return the middlegame piece-square score (see PieceSquareTables), white's minus black's
+     */
+    public int getMidgameScore() {
+        return midgameScore;
+    }
+
+    /**
+     * @return the endgame piece-square score (see PieceSquareTables), white's minus black's
+     */
+    public int getEndgameScore() {
+        return endgameScore;
+    }
+
+    /**
+     * @return how much non-pawn material is left, from 0 (just kings and pawns) up to
+     * PieceSquareTables.MAX_PHASE for a full set. It can go over that after promotions
+     */
+    public int getGamePhase() {
+        return gamePhase;
+    }
+
+    /**
+     * @return the Zobrist key for just where the pieces are, which is what equals and hashCode go by
+     */
+    public long getPieceKey() {
+        return pieceKey;
+    }
+
+    /**
+     * @return the Zobrist key for just where the pawns are, which only changes when a pawn moves, is taken,
+     * or promotes
+     */
+    public long getPawnKey() {
+        return pawnKey;
+    }
+
+    // two boards are the same if the same pieces are on the same squares. Castling and en passant don't count,
+    // so a board set up by hand still matches one that got there by playing moves
     @Override
     public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
         if (o == null || getClass() != o.getClass()) {
             return false;
         }
         ChessBoard that = (ChessBoard) o;
 
-        // okay, I have an idea. It says the strings are identical, but "sameBoard" comes
-        // out to false. That means something in the toString isnt idential. I'll find it
-        String thisString = this.toString();
-        String thatString = that.toString();
-
-        char[] thisCharacterArray = thisString.toCharArray();
-        char[] thatCharacterArray = thatString.toCharArray();
-
-        // compare each char one by one
-        boolean difference = false;
-        for (int i = 0; i < thisCharacterArray.length; i++) {
-            // uncomment the below line to see each char compared, one by one
-            if (thisCharacterArray[i] != thatCharacterArray[i]) {
-                // there's a difference in the chars
-                difference = true;
-            }
-        }
-
-        if (difference) {
-            // different boards
-            return false;
-        } else {
-            // same board!
-            return true;
-        }
+        // different keys always means different boards, and the same key almost always means the same board,
+        // so the bitboards only get compared to rule out a collision
+        return this.pieceKey == that.pieceKey && Arrays.equals(this.pieceBitboards, that.pieceBitboards);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(pieces, numPieces);
+        return Long.hashCode(pieceKey);
     }
 
     @Override
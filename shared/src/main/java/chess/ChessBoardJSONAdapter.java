@@ -39,12 +39,23 @@ public class ChessBoardJSONAdapter extends TypeAdapter<ChessBoard> {
         jsonWriter.name("numPieces");
         jsonWriter.value(chessboard.numPieces);
 
+        // castling and en passant state, so a game picks back up with the same special moves available
+        jsonWriter.name("castlingRights");
+        jsonWriter.value(chessboard.castlingRights);
+        jsonWriter.name("enPassantSquare");
+        jsonWriter.value(chessboard.enPassantSquare);
+
         jsonWriter.endObject();
     }
 
     @Override
     public ChessBoard read(JsonReader jsonReader) throws IOException {
         ChessBoard chessBoard = new ChessBoard();
+        HashMap<ChessPosition, ChessPiece> decodedPieces = new HashMap<>();
+        int numPieces = 0;
+        // older saved games don't have these, so they start out like a fresh board
+        int castlingRights = ChessBoard.ALL_CASTLING_RIGHTS;
+        int enPassantSquare = -1;
 
         // Start reading
         jsonReader.beginObject();
@@ -55,11 +66,19 @@ public class ChessBoardJSONAdapter extends TypeAdapter<ChessBoard> {
             // Two possibilities, it's either the numPieces int (easy) or the pieces (hard)
             switch (name) {
                 case "pieces":
-                    chessBoard.pieces = readPieces(jsonReader);
+                    decodedPieces = readPieces(jsonReader);
                     break;
 
                 case "numPieces":
-                    chessBoard.numPieces = jsonReader.nextInt();
+                    numPieces = jsonReader.nextInt();
+                    break;
+
+                case "castlingRights":
+                    castlingRights = jsonReader.nextInt();
+                    break;
+
+                case "enPassantSquare":
+                    enPassantSquare = jsonReader.nextInt();
                     break;
 
                 default:
@@ -70,6 +89,14 @@ public class ChessBoardJSONAdapter extends TypeAdapter<ChessBoard> {
 
         jsonReader.endObject();
 
+        // add the pieces one by one so the board's bitboards get built too
+        for (Map.Entry<ChessPosition, ChessPiece> entry : decodedPieces.entrySet()) {
+            chessBoard.addPiece(entry.getKey(), entry.getValue());
+        }
+        chessBoard.numPieces = numPieces;
+        chessBoard.setCastlingRights(castlingRights);
+        chessBoard.setEnPassantSquare(enPassantSquare);
+
         return chessBoard;
     }
 
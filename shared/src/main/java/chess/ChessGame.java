@@ -2,26 +2,76 @@ package chess;
 
 import java.sql.Array;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Set;
 
 /**
  * For a class that can manage a chess game, making moves on a board
  * <p>
+ * Like ChessBoard, games aren't thread-safe even for reading, since working out valid moves,
+ * check, and the game's status all try moves out on the game's own board.
+ * <p>
  * Note: You can add to this class, but you may not alter
  * signature of the existing methods.
  */
 public class ChessGame {
 
+    // a1 and every other square from there
+    private static final long DARK_SQUARES = 0xAA55AA55AA55AA55L;
+
     public ChessGame.TeamColor whoseTurnItIs;
     public ChessBoard chessBoard;
 
+    // moves since the last capture or pawn move (for the fifty move rule), and which move of the game it is,
+    // counting a white move and the black reply as one. These are the last two fields of a FEN string
+    int halfmoveClock = 0;
+    int fullmoveNumber = 1;
+
+    // the keys of the positions since the last capture or pawn move, oldest first, not counting the current one.
+    // Nothing from before a capture or pawn move can come up again, so it gets cleared then. Games the server runs
+    // stop at the fifty move rule, so there it stays under a hundred entries; a game played on past that just keeps
+    // growing it. repetitionCount is how many times the current position has come up,
+    // worked out once per move so checking for threefold repetition is just reading it. These aren't transient,
+    // so they survive the game being saved as JSON
+    long[] positionHistory = new long[16];
+    int positionHistorySize = 0;
+    int repetitionCount = 1;
+
+    // whether the game was over the last time recordStatus looked, so lists of games can read it instead of
+    // generating moves. It gets saved with the game, and it's volatile since lists read it without holding the game
+    private volatile boolean finished = false;
+
+    // each team's full list of valid moves, for the position they were worked out in. The server asks about
+    // checkmate and stalemate for both teams after every move, and the client asks for every piece's moves to
+    // highlight them, so this way each position only gets generated once per team. Check on its own is just an
+    // attack query on the board, so it doesn't go through here.
+    // A slot is good as long as it's the same board object with the same Zobrist key, which also catches the
+    // board being changed directly with addPiece. [team.ordinal()]
+    private transient MoveList[] cachedLegalMoves = {new MoveList(), new MoveList()};
+    private transient long[] cachedKeys = new long[2];
+    private transient ChessBoard[] cachedBoards = new ChessBoard[2];
+
     public ChessGame() {
         this.whoseTurnItIs = TeamColor.WHITE;
         this.chessBoard = new ChessBoard();
         this.chessBoard.resetBoard();
     }
 
+    /**
+     * Makes a deep copy of a game, history and all, so it can be read or played on without
+     * touching the original. The original can't be changing while it's copied.
+     */
+    public ChessGame(ChessGame otherGame) {
+        this.whoseTurnItIs = otherGame.whoseTurnItIs;
+        this.chessBoard = new ChessBoard(otherGame.chessBoard);
+        this.halfmoveClock = otherGame.halfmoveClock;
+        this.fullmoveNumber = otherGame.fullmoveNumber;
+        this.positionHistory = otherGame.positionHistory.clone();
+        this.positionHistorySize = otherGame.positionHistorySize;
+        this.repetitionCount = otherGame.repetitionCount;
+        this.finished = otherGame.finished;
+    }
+
     /**
      * @return Which team's turn it is
      */
@@ -46,6 +96,18 @@ public class ChessGame {
         BLACK
     }
 
+    /**
+     * Whether a game is still going, and if not, why it ended
+     */
+    public enum GameStatus {
+        IN_PROGRESS,
+        CHECKMATE,
+        STALEMATE,
+        THREEFOLD_REPETITION,
+        FIFTY_MOVE_RULE,
+        INSUFFICIENT_MATERIAL
+    }
+
     /**
      * Gets a valid moves for a piece at the given location
      *
@@ -57,11 +119,14 @@ public class ChessGame {
         ChessPiece pieceInLocation = chessBoard.getPiece(startPosition);
         if (pieceInLocation != null) { // there's a piece here
             ChessGame.TeamColor pieceColor = pieceInLocation.getTeamColor();
-            Collection<ChessMove> moves = pieceInLocation.pieceMoves(chessBoard, startPosition);
+
+            // pick this piece's moves out of its team's list, and only make ChessMoves out of those
+            int square = ChessBoard.squareIndex(startPosition.getRow(), startPosition.getColumn());
+            MoveList teamMoves = cachedLegalMoves(pieceColor);
             Collection<ChessMove> validMoves = new ArrayList<>();
-            for (ChessMove move : moves) {
-                if (isMoveValid(move, pieceColor) == true) {
-                    validMoves.add(move);
+            for (int i = 0; i < teamMoves.size(); i++) {
+                if (PackedMove.from(teamMoves.get(i)) == square) {
+                    validMoves.add(PackedMove.toChessMove(teamMoves.get(i)));
                 }
             }
             return validMoves;
@@ -76,19 +141,71 @@ public class ChessGame {
         if (piece == null) {
             return false;
         }
+        return isMoveValid(PackedMove.fromChessMove(chessBoard, move), color);
+    }
 
-        // make a copy of the chessboard, do the move, then see if that would've put us in check
-        ChessBoard boardCopy = chessBoard.copy();
-        makeMoveWithNoChecks(move, boardCopy);
+    /**
+     * Checks a packed move (see PackedMove) for whether it would leave that team's
+     * king in check. Doesn't make any objects.
+     */
+    public boolean isMoveValid(int move, ChessGame.TeamColor color) {
+        // do the move right on the board, see if that would've put us in check, then take it back
+        chessBoard.makeMove(move);
+        boolean wouldThisPutThemInCheck;
+        try {
+            wouldThisPutThemInCheck = chessBoard.isInCheck(color);
+        } finally {
+            chessBoard.unmakeMove(move);
+        }
+        return !wouldThisPutThemInCheck;
+    }
 
-        // now that we've made the move, are we in check or not?
-        boolean wouldThisPutThemInCheck = isInCheck(color, boardCopy);
+    /**
+     * Fills a list with every valid move a team has, as packed ints (see PackedMove)
+     *
+     * @param team  the team to get moves for
+     * @param moves the list to fill; it's cleared first
+     */
+    public void legalMoves(TeamColor team, MoveList moves) {
+        MoveList teamMoves = cachedLegalMoves(team);
+        moves.clear();
+        for (int i = 0; i < teamMoves.size(); i++) {
+            moves.add(teamMoves.get(i));
+        }
+    }
 
-        if (wouldThisPutThemInCheck == true) {
-            return false;
-        } else {
-            return true;
+    // the team's valid moves for the board as it is right now, only generating them if the position changed
+    private MoveList cachedLegalMoves(TeamColor team) {
+        int slot = team.ordinal();
+        long key = chessBoard.getZobristKey();
+        if (cachedBoards[slot] == chessBoard && cachedKeys[slot] == key) {
+            return cachedLegalMoves[slot];
         }
+
+        MoveList moves = cachedLegalMoves[slot];
+        moves.clear();
+        chessBoard.generateMoves(team, moves);
+
+        // squeeze out the ones that would leave the king in check
+        int validCount = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            if (isMoveValid(move, team)) {
+                moves.set(validCount, move);
+                validCount++;
+            }
+        }
+        moves.truncate(validCount);
+
+        cachedKeys[slot] = key;
+        cachedBoards[slot] = chessBoard;
+        return moves;
+    }
+
+    // forget both teams' cached moves, for when the position changes in a way the key check shouldn't have to catch
+    private void clearMoveCache() {
+        cachedBoards[0] = null;
+        cachedBoards[1] = null;
     }
 
     /**
@@ -118,25 +235,40 @@ public class ChessGame {
         }
 
         if (thisMoveIsValid) {
+            // this handles swapping pawns for their promotion piece too
+            makeLegalMove(PackedMove.fromChessMove(chessBoard, move));
+        } else {
+            throw new InvalidMoveException("INVALID MOVE");
+        }
+    }
 
-            chessBoard.addPiece(move.getStartPosition(), null); // remove piece from the old location
-
-            if (pieceToMove.getPieceType() != ChessPiece.PieceType.PAWN) {
-                chessBoard.addPiece(move.getEndPosition(), pieceToMove, true); // add the piece to the new location
-            } else {
-                // for pawns, check if we should promote or not. If so, promote
-                if (move.getPromotionPiece() != null) {
-                    ChessPiece newPiece = new ChessPiece(pieceToMove.getTeamColor(), move.getPromotionPiece());
-                    chessBoard.addPiece(move.getEndPosition(), newPiece, true);
-                } else {
-                    chessBoard.addPiece(move.getEndPosition(), pieceToMove, true); // just add a pawn
-                }
-            }
+    /**
+     * Makes a packed move (see PackedMove) that's already known to be legal, like one from
+     * legalMoves, without checking it again. Everything else (whose turn it is, the move
+     * counters, and the repetition history) updates just like makeMove. This is for replaying
+     * lots of moves where generating every piece's valid moves first would be most of the work.
+     *
+     * @param move a legal move for the team whose turn it is
+     */
+    public void makeLegalMove(int move) {
+        long keyBefore = getZobristKey();
+        boolean irreversible = PackedMove.hasFlag(move, PackedMove.CAPTURE)
+                || chessBoard.getPiece(PackedMove.from(move)).getPieceType() == ChessPiece.PieceType.PAWN;
+        chessBoard.makeMoveAndSync(move);
+        clearMoveCache();
+        finishMove(keyBefore, irreversible);
+    }
 
-            // make sure it worked
-            ChessPiece pieceInEndSpot = chessBoard.getPiece(move.getEndPosition());
+    // the bookkeeping after a move is on the board: the clocks, the repetition history, and switching teams
+    private void finishMove(long keyBefore, boolean irreversible) {
+        // captures and pawn moves can't be undone, so they start the fifty move count over, and nothing
+        // from before them can be repeated
+        if (irreversible) {
+            halfmoveClock = 0;
+            positionHistorySize = 0;
         } else {
-            throw new InvalidMoveException("INVALID MOVE");
+            halfmoveClock++;
+            pushPositionHistory(keyBefore);
         }
 
         // switch teams
@@ -144,7 +276,27 @@ public class ChessGame {
             this.setTeamTurn(TeamColor.BLACK);
         } else {
             this.setTeamTurn(TeamColor.WHITE);
+            fullmoveNumber++;
         }
+        repetitionCount = countRepetitions(getZobristKey());
+    }
+
+    private void pushPositionHistory(long key) {
+        if (positionHistorySize == positionHistory.length) {
+            positionHistory = Arrays.copyOf(positionHistory, positionHistorySize * 2);
+        }
+        positionHistory[positionHistorySize++] = key;
+    }
+
+    // the same position has the same side to move, so only every other entry back can match
+    private int countRepetitions(long key) {
+        int count = 1;
+        for (int i = positionHistorySize - 2; i >= 0; i -= 2) {
+            if (positionHistory[i] == key) {
+                count++;
+            }
+        }
+        return count;
     }
 
     public void makeMoveWithNoChecks(ChessMove move, ChessBoard board) {
@@ -160,25 +312,15 @@ public class ChessGame {
      * @return True if the specified team is in check
      */
     public boolean isInCheck(TeamColor teamColor) {
-        ChessPosition kingLocation = chessBoard.getKingPosition(teamColor);
-
-        // get other team color
-        TeamColor enemyTeamColor = TeamColor.WHITE;
-        if (teamColor == TeamColor.WHITE) {
-            enemyTeamColor = TeamColor.BLACK;
-        }
-
-        // loop through every piece on the enemy team, and see if they include this position
-        Set<ChessPosition> placesTeamCouldGo = chessBoard.getPlacesTeamCouldGo(enemyTeamColor);
-        if (placesTeamCouldGo.contains(kingLocation)) {
-            return true;
-        } else {
-            return false;
-        }
+        // one look out from the king's square, no move generation
+        return chessBoard.isInCheck(teamColor);
     }
 
     public boolean isInCheck(TeamColor teamColor, ChessBoard board) {
         ChessPosition kingLocation = board.getKingPosition(teamColor);
+        if (kingLocation == null) {
+            return false; // no king, so nothing to be in check
+        }
 
         // get other team color
         TeamColor enemyTeamColor = TeamColor.WHITE;
@@ -186,13 +328,8 @@ public class ChessGame {
             enemyTeamColor = TeamColor.BLACK;
         }
 
-        // loop through every piece on the enemy team, and see if they include this position
-        Set<ChessPosition> placesTeamCouldGo = board.getPlacesTeamCouldGo(enemyTeamColor);
-        if (placesTeamCouldGo.contains(kingLocation)) {
-            return true;
-        } else {
-            return false;
-        }
+        // just look out from the king's square for anything of theirs that could hit it
+        return board.isSquareAttacked(kingLocation, enemyTeamColor);
     }
 
     /**
@@ -206,13 +343,7 @@ public class ChessGame {
     }
 
     private boolean noPossibleMoves(TeamColor teamColor) {
-        Collection<ChessMove> allPossibleMoves = chessBoard.getMovesTeamCouldDo(teamColor);
-        for (ChessMove move : allPossibleMoves) {
-            if (isMoveValid(move, teamColor)) {
-                return false;
-            }
-        }
-        return true;
+        return cachedLegalMoves(teamColor).isEmpty();
     }
 
     /**
@@ -226,6 +357,167 @@ public class ChessGame {
         return !isInCheck(teamColor) && noPossibleMoves(teamColor);
     }
 
+    /**
+     * Works out whether the game is over. Threefold repetition and the fifty move rule end
+     * the game right away here instead of waiting for someone to claim them, so games
+     * between players who just shuffle back and forth still finish.
+     *
+     * @return IN_PROGRESS, or why the game ended. CHECKMATE and STALEMATE are for the team
+     * whose turn it is
+     */
+    public GameStatus getStatus() {
+        if (noPossibleMoves(whoseTurnItIs)) {
+            return isInCheck(whoseTurnItIs) ? GameStatus.CHECKMATE : GameStatus.STALEMATE;
+        }
+        if (hasInsufficientMaterial()) {
+            return GameStatus.INSUFFICIENT_MATERIAL;
+        }
+        if (repetitionCount >= 3) {
+            return GameStatus.THREEFOLD_REPETITION;
+        }
+        if (halfmoveClock >= 100) {
+            return GameStatus.FIFTY_MOVE_RULE;
+        }
+        return GameStatus.IN_PROGRESS;
+    }
+
+    /**
+     * @return true if the game has ended for any reason
+     */
+    public boolean isGameOver() {
+        return getStatus() != GameStatus.IN_PROGRESS;
+    }
+
+    /**
+     * Works out the game's status like getStatus, and remembers whether it's over for isFinished.
+     * Whoever makes a game's moves calls this once after each one. A game that's already over,
+     * like one somebody resigned, stays over.
+     *
+     * @return the status it worked out
+     */
+    public GameStatus recordStatus() {
+        GameStatus status = getStatus();
+        if (status != GameStatus.IN_PROGRESS) {
+            finished = true;
+        }
+        return status;
+    }
+
+    /**
+     * Ends the game because a player gave up, which nothing on the board can show
+     */
+    public void resign() {
+        finished = true;
+    }
+
+    /**
+     * @return whether the game was over as of the last recordStatus, or was resigned. This doesn't
+     * work anything out, so it's safe to ask while another thread is using the game
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * @return how many times the current position (pieces, turn, castling, and en passant) has
+     * come up in this game, counting now
+     */
+    public int getRepetitionCount() {
+        return repetitionCount;
+    }
+
+    /**
+     * Checks whether neither side has enough left to ever checkmate: just kings, a king and
+     * one bishop or knight against a king, or kings and bishops that are all on the same
+     * color squares
+     */
+    public boolean hasInsufficientMaterial() {
+        long heavyPieces = piecesOfType(ChessPiece.PieceType.PAWN) | piecesOfType(ChessPiece.PieceType.ROOK)
+                | piecesOfType(ChessPiece.PieceType.QUEEN);
+        long bishops = piecesOfType(ChessPiece.PieceType.BISHOP);
+        long knights = piecesOfType(ChessPiece.PieceType.KNIGHT);
+        if (heavyPieces != 0) {
+            return false;
+        }
+        int minorPieces = Long.bitCount(bishops) + Long.bitCount(knights);
+        if (minorPieces <= 1) {
+            return true;
+        }
+        return knights == 0 && ((bishops & DARK_SQUARES) == 0 || (bishops & ~DARK_SQUARES) == 0);
+    }
+
+    // both teams' pieces of a type
+    private long piecesOfType(ChessPiece.PieceType type) {
+        return chessBoard.getBitboard(TeamColor.WHITE, type) | chessBoard.getBitboard(TeamColor.BLACK, type);
+    }
+
+    /**
+     * @return how many moves have been made since the last capture or pawn move
+     */
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    /**
+     * @return which move of the game it is, starting at 1 and going up after each black move
+     */
+    public int getFullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    /**
+     * Sets up a game from a FEN string (see Fen)
+     *
+     * @param fen the position, like "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1"
+     * @return a new game in that position
+     * @throws IllegalArgumentException if the string isn't a valid position
+     */
+    public static ChessGame fromFen(String fen) {
+        return Fen.parse(fen);
+    }
+
+    /**
+     * @return this game's position as a FEN string, including whose turn it is, castling,
+     * en passant, and the move counters
+     */
+    public String toFen() {
+        return Fen.format(this);
+    }
+
+    /**
+     * Gets the Zobrist key for the position: the pieces, whose turn it is, castling rights, and
+     * the en passant square. Two games in the same position have the same key no matter how they
+     * got there, so it works for telling positions apart without comparing whole boards.
+     *
+     * @return the 64 bit position key
+     */
+    public long getZobristKey() {
+        return chessBoard.getZobristKey() ^ Zobrist.sideKey(whoseTurnItIs);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        ChessGame that = (ChessGame) o;
+
+        // the keys cover everything below, so they're a quick way to rule things out before comparing for real
+        return this.getZobristKey() == that.getZobristKey()
+                && this.whoseTurnItIs == that.whoseTurnItIs
+                && this.chessBoard.getCastlingRights() == that.chessBoard.getCastlingRights()
+                && this.chessBoard.getEnPassantSquare() == that.chessBoard.getEnPassantSquare()
+                && this.chessBoard.equals(that.chessBoard);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(getZobristKey());
+    }
+
     /**
      * Sets this game's chessboard with a given board
      *
@@ -233,6 +525,10 @@ public class ChessGame {
      */
     public void setBoard(ChessBoard board) {
         this.chessBoard = board;
+        clearMoveCache();
+        // a new board is a new position, so whatever came before doesn't count toward repetitions
+        positionHistorySize = 0;
+        repetitionCount = 1;
     }
 
     /**
@@ -0,0 +1,289 @@
+package chess;
+
+/**
+ * Reads and writes Forsyth-Edwards Notation, the standard one line way to write down
+ * a chess position, like the starting one:
+ * <pre>
+ *   rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1
+ * </pre>
+ * The six fields are the pieces (row 8 first, uppercase is white, digits are runs of
+ * empty squares), whose turn it is, castling rights, the en passant square, the
+ * halfmove clock, and the fullmove number. It's about 60 characters, where the JSON
+ * for the same game is a few kilobytes.
+ * <p>
+ * Parsing walks the string once and puts pieces straight onto the board, so the only
+ * things it makes are the board and game themselves. Anything that isn't a real
+ * position gets an IllegalArgumentException saying what's wrong with it.
+ */
+public final class Fen {
+
+    public static final String STARTING_POSITION = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private static final String PIECE_LETTERS = "kqbnrp";
+
+    private Fen() {
+    }
+
+    /**
+     * Makes a game out of a FEN string. The last two fields (the move counters) can be left
+     * off, since plenty of places write FEN without them; they default to 0 and 1.
+     *
+     * @throws IllegalArgumentException if the string isn't a valid position
+     */
+    public static ChessGame parse(String fen) {
+        if (fen == null) {
+            throw new IllegalArgumentException("FEN is null");
+        }
+        ChessBoard board = new ChessBoard();
+        int index = parsePlacement(fen, board);
+
+        // whose turn
+        index = expectSpace(fen, index);
+        if (index >= fen.length()) {
+            throw new IllegalArgumentException("FEN is missing the side to move: " + fen);
+        }
+        ChessGame.TeamColor sideToMove;
+        switch (fen.charAt(index)) {
+            case 'w':
+                sideToMove = ChessGame.TeamColor.WHITE;
+                break;
+            case 'b':
+                sideToMove = ChessGame.TeamColor.BLACK;
+                break;
+            default:
+                throw new IllegalArgumentException("Side to move has to be 'w' or 'b': " + fen);
+        }
+        index++;
+
+        // castling rights, either '-' or some of KQkq
+        index = expectSpace(fen, index);
+        int castlingRights = 0;
+        if (index < fen.length() && fen.charAt(index) == '-') {
+            index++;
+        } else {
+            int start = index;
+            while (index < fen.length() && fen.charAt(index) != ' ') {
+                int right = castlingRight(fen.charAt(index));
+                if (right == 0 || (castlingRights & right) != 0) {
+                    throw new IllegalArgumentException("Bad castling rights: " + fen);
+                }
+                castlingRights |= right;
+                index++;
+            }
+            if (index == start) {
+                throw new IllegalArgumentException("FEN is missing the castling rights: " + fen);
+            }
+        }
+
+        // en passant square, either '-' or the square a pawn just skipped, which is on row 3 or 6
+        index = expectSpace(fen, index);
+        int enPassantSquare = -1;
+        if (index < fen.length() && fen.charAt(index) == '-') {
+            index++;
+        } else {
+            if (index + 1 >= fen.length()) {
+                throw new IllegalArgumentException("FEN is missing the en passant square: " + fen);
+            }
+            char file = fen.charAt(index);
+            char rank = fen.charAt(index + 1);
+            char expectedRank = (sideToMove == ChessGame.TeamColor.WHITE) ? '6' : '3';
+            if (file < 'a' || file > 'h' || rank != expectedRank) {
+                throw new IllegalArgumentException("Bad en passant square: " + fen);
+            }
+            enPassantSquare = ChessBoard.squareIndex(rank - '0', file - 'a' + 1);
+            index += 2;
+        }
+
+        // the move counters are optional
+        int halfmoveClock = 0;
+        int fullmoveNumber = 1;
+        if (index < fen.length()) {
+            index = expectSpace(fen, index);
+            int end = nextSpace(fen, index);
+            halfmoveClock = parseCounter(fen, index, end);
+            index = end;
+            if (index < fen.length()) {
+                index = expectSpace(fen, index);
+                end = nextSpace(fen, index);
+                fullmoveNumber = parseCounter(fen, index, end);
+                if (fullmoveNumber < 1) {
+                    throw new IllegalArgumentException("Fullmove number has to be at least 1: " + fen);
+                }
+                index = end;
+            }
+        }
+        if (index != fen.length()) {
+            throw new IllegalArgumentException("Extra text at the end of the FEN: " + fen);
+        }
+
+        board.setCastlingRights(castlingRights);
+        board.setEnPassantSquare(enPassantSquare);
+
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        game.setTeamTurn(sideToMove);
+        game.halfmoveClock = halfmoveClock;
+        game.fullmoveNumber = fullmoveNumber;
+        return game;
+    }
+
+    /**
+     * Writes a game out as a full six field FEN string
+     */
+    public static String format(ChessGame game) {
+        StringBuilder fen = new StringBuilder(90);
+        ChessBoard board = game.getBoard();
+        appendPlacement(board, fen);
+
+        fen.append(game.getTeamTurn() == ChessGame.TeamColor.WHITE ? " w " : " b ");
+
+        int castlingRights = board.getCastlingRights();
+        if (castlingRights == 0) {
+            fen.append('-');
+        } else {
+            if ((castlingRights & ChessBoard.WHITE_KINGSIDE) != 0) {
+                fen.append('K');
+            }
+            if ((castlingRights & ChessBoard.WHITE_QUEENSIDE) != 0) {
+                fen.append('Q');
+            }
+            if ((castlingRights & ChessBoard.BLACK_KINGSIDE) != 0) {
+                fen.append('k');
+            }
+            if ((castlingRights & ChessBoard.BLACK_QUEENSIDE) != 0) {
+                fen.append('q');
+            }
+        }
+
+        fen.append(' ');
+        int enPassantSquare = board.getEnPassantSquare();
+        if (enPassantSquare == -1) {
+            fen.append('-');
+        } else {
+            fen.append((char) ('a' + enPassantSquare % 8)).append((char) ('1' + enPassantSquare / 8));
+        }
+
+        fen.append(' ').append(game.getHalfmoveClock()).append(' ').append(game.getFullmoveNumber());
+        return fen.toString();
+    }
+
+    /**
+     * Writes just the piece placement field (the part before the first space)
+     */
+    public static String formatPlacement(ChessBoard board) {
+        StringBuilder fen = new StringBuilder(72);
+        appendPlacement(board, fen);
+        return fen.toString();
+    }
+
+    private static void appendPlacement(ChessBoard board, StringBuilder fen) {
+        for (int row = 8; row >= 1; row--) {
+            int emptyRun = 0;
+            for (int column = 1; column <= 8; column++) {
+                ChessPiece piece = board.getPiece(ChessBoard.squareIndex(row, column));
+                if (piece == null) {
+                    emptyRun++;
+                    continue;
+                }
+                if (emptyRun > 0) {
+                    fen.append((char) ('0' + emptyRun));
+                    emptyRun = 0;
+                }
+                char letter = PIECE_LETTERS.charAt(piece.getPieceType().ordinal());
+                fen.append(piece.getTeamColor() == ChessGame.TeamColor.WHITE ? Character.toUpperCase(letter) : letter);
+            }
+            if (emptyRun > 0) {
+                fen.append((char) ('0' + emptyRun));
+            }
+            if (row > 1) {
+                fen.append('/');
+            }
+        }
+    }
+
+    // reads the pieces onto the board and returns where the placement field ends
+    private static int parsePlacement(String fen, ChessBoard board) {
+        int index = 0;
+        int row = 8;
+        int column = 1;
+        int[] kings = new int[2];
+        while (index < fen.length() && fen.charAt(index) != ' ') {
+            char symbol = fen.charAt(index++);
+            if (symbol == '/') {
+                if (column != 9 || row == 1) {
+                    throw new IllegalArgumentException("Each row needs exactly 8 squares: " + fen);
+                }
+                row--;
+                column = 1;
+            } else if (symbol >= '1' && symbol <= '8') {
+                column += symbol - '0';
+                if (column > 9) {
+                    throw new IllegalArgumentException("Row " + row + " has more than 8 squares: " + fen);
+                }
+            } else {
+                int type = PIECE_LETTERS.indexOf(Character.toLowerCase(symbol));
+                if (type == -1) {
+                    throw new IllegalArgumentException("Unknown piece '" + symbol + "': " + fen);
+                }
+                if (column > 8) {
+                    throw new IllegalArgumentException("Row " + row + " has more than 8 squares: " + fen);
+                }
+                ChessGame.TeamColor team = Character.isUpperCase(symbol) ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+                ChessPiece.PieceType pieceType = ChessPiece.PieceType.values()[type];
+                if (pieceType == ChessPiece.PieceType.PAWN && (row == 1 || row == 8)) {
+                    throw new IllegalArgumentException("Pawns can't be on row " + row + ": " + fen);
+                }
+                if (pieceType == ChessPiece.PieceType.KING) {
+                    kings[team.ordinal()]++;
+                }
+                board.addPiece(new ChessPosition(row, column), ChessPiece.of(team, pieceType));
+                column++;
+            }
+        }
+        if (row != 1 || column != 9) {
+            throw new IllegalArgumentException("FEN needs 8 rows of 8 squares: " + fen);
+        }
+        if (kings[0] != 1 || kings[1] != 1) {
+            throw new IllegalArgumentException("Each side needs exactly one king: " + fen);
+        }
+        return index;
+    }
+
+    private static int castlingRight(char symbol) {
+        return switch (symbol) {
+            case 'K' -> ChessBoard.WHITE_KINGSIDE;
+            case 'Q' -> ChessBoard.WHITE_QUEENSIDE;
+            case 'k' -> ChessBoard.BLACK_KINGSIDE;
+            case 'q' -> ChessBoard.BLACK_QUEENSIDE;
+            default -> 0;
+        };
+    }
+
+    private static int expectSpace(String fen, int index) {
+        if (index >= fen.length() || fen.charAt(index) != ' ') {
+            throw new IllegalArgumentException("FEN fields have to be separated by single spaces: " + fen);
+        }
+        return index + 1;
+    }
+
+    private static int nextSpace(String fen, int index) {
+        int space = fen.indexOf(' ', index);
+        return (space == -1) ? fen.length() : space;
+    }
+
+    // a non-negative number without going through substring and Integer.parseInt
+    private static int parseCounter(String fen, int start, int end) {
+        if (start == end || end - start > 9) {
+            throw new IllegalArgumentException("Bad move counter: " + fen);
+        }
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char digit = fen.charAt(i);
+            if (digit < '0' || digit > '9') {
+                throw new IllegalArgumentException("Bad move counter: " + fen);
+            }
+            value = value * 10 + (digit - '0');
+        }
+        return value;
+    }
+}
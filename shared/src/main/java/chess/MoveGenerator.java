@@ -0,0 +1,192 @@
+package chess;
+
+/**
+ * Generates pseudo-legal moves (ones that might still leave the king in check)
+ * as packed ints straight from the board's bitboards and the MoveTables. This is
+ * the one place the movement rules live; ChessPiece.pieceMoves and the ChessBoard
+ * and ChessGame move lists all come through here.
+ */
+final class MoveGenerator {
+
+    // same order promotions have always come out of pieceMoves in
+    private static final ChessPiece.PieceType[] PROMOTION_PIECES = {
+            ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.QUEEN,
+            ChessPiece.PieceType.KNIGHT, ChessPiece.PieceType.ROOK
+    };
+
+    private MoveGenerator() {
+    }
+
+    // every move for every piece a team has
+    static void addTeamMoves(ChessBoard board, ChessGame.TeamColor team, MoveList moves) {
+        long teamPieces = board.colorBitboards[team.ordinal()];
+        while (teamPieces != 0) {
+            int square = Long.numberOfTrailingZeros(teamPieces);
+            teamPieces &= teamPieces - 1;
+            ChessPiece.PieceType type = board.squares[square].getPieceType();
+            addPieceMoves(board, square, team, type, moves);
+            addSpecialMoves(board, square, team, type, moves);
+        }
+    }
+
+    // castling and en passant, which depend on the board's history and not just where this piece is. These are
+    // kept out of addPieceMoves so ChessPiece.pieceMoves stays the plain movement rules for the piece by itself
+    static void addSpecialMoves(ChessBoard board, int square, ChessGame.TeamColor team,
+                                ChessPiece.PieceType type, MoveList moves) {
+        if (type == ChessPiece.PieceType.KING) {
+            addCastlingMoves(board, square, team, moves);
+        } else if (type == ChessPiece.PieceType.PAWN) {
+            addEnPassantMove(board, square, team, moves);
+        }
+    }
+
+    private static void addCastlingMoves(ChessBoard board, int square, ChessGame.TeamColor team, MoveList moves) {
+        boolean white = (team == ChessGame.TeamColor.WHITE);
+        int kingHome = white ? ChessBoard.squareIndex(1, 5) : ChessBoard.squareIndex(8, 5);
+        int rights = board.castlingRights & (white
+                ? (ChessBoard.WHITE_KINGSIDE | ChessBoard.WHITE_QUEENSIDE)
+                : (ChessBoard.BLACK_KINGSIDE | ChessBoard.BLACK_QUEENSIDE));
+        if (square != kingHome || rights == 0) {
+            return;
+        }
+
+        // can't castle out of check
+        ChessGame.TeamColor enemy = white ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        if (board.isSquareAttacked(square, enemy)) {
+            return;
+        }
+
+        long ourRooks = board.pieceBitboards[ChessBoard.bitboardIndex(team, ChessPiece.PieceType.ROOK)];
+        int kingside = white ? ChessBoard.WHITE_KINGSIDE : ChessBoard.BLACK_KINGSIDE;
+        int queenside = white ? ChessBoard.WHITE_QUEENSIDE : ChessBoard.BLACK_QUEENSIDE;
+
+        // kingside: rook still in the corner, the two squares between empty, and the king doesn't pass through an attack
+        if ((rights & kingside) != 0 && (ourRooks & (1L << (square + 3))) != 0
+                && (board.occupied & ((1L << (square + 1)) | (1L << (square + 2)))) == 0
+                && !board.isSquareAttacked(square + 1, enemy) && !board.isSquareAttacked(square + 2, enemy)) {
+            moves.add(PackedMove.encode(square, square + 2, null, PackedMove.CASTLE));
+        }
+
+        // queenside: all three squares between have to be empty, but only the two the king crosses need to be safe
+        if ((rights & queenside) != 0 && (ourRooks & (1L << (square - 4))) != 0
+                && (board.occupied & ((1L << (square - 1)) | (1L << (square - 2)) | (1L << (square - 3)))) == 0
+                && !board.isSquareAttacked(square - 1, enemy) && !board.isSquareAttacked(square - 2, enemy)) {
+            moves.add(PackedMove.encode(square, square - 2, null, PackedMove.CASTLE));
+        }
+    }
+
+    private static void addEnPassantMove(ChessBoard board, int square, ChessGame.TeamColor team, MoveList moves) {
+        int enPassantSquare = board.enPassantSquare;
+        if (enPassantSquare == -1) {
+            return;
+        }
+        // the skipped square has to be on the side of the board the other team just moved from
+        int expectedRow = (team == ChessGame.TeamColor.WHITE) ? 5 : 2;
+        if (enPassantSquare / 8 != expectedRow) {
+            return;
+        }
+        for (int target : MoveTables.PAWN_CAPTURES[team.ordinal()][square]) {
+            if (target == enPassantSquare) {
+                moves.add(PackedMove.encode(square, target, null, PackedMove.CAPTURE | PackedMove.EN_PASSANT));
+            }
+        }
+    }
+
+    // every move a piece of this team and type could make from this square
+    static void addPieceMoves(ChessBoard board, int square, ChessGame.TeamColor team,
+                              ChessPiece.PieceType type, MoveList moves) {
+        switch (type) {
+            case KING:
+                addStepMoves(board, square, team, MoveTables.KING_TARGETS[square], moves);
+                break;
+            case QUEEN:
+                addSlidingMoves(board, square, team,
+                        MoveTables.FIRST_STRAIGHT_DIRECTION, MoveTables.LAST_DIAGONAL_DIRECTION, moves);
+                break;
+            case BISHOP:
+                addSlidingMoves(board, square, team,
+                        MoveTables.FIRST_DIAGONAL_DIRECTION, MoveTables.LAST_DIAGONAL_DIRECTION, moves);
+                break;
+            case KNIGHT:
+                addStepMoves(board, square, team, MoveTables.KNIGHT_TARGETS[square], moves);
+                break;
+            case ROOK:
+                addSlidingMoves(board, square, team,
+                        MoveTables.FIRST_STRAIGHT_DIRECTION, MoveTables.LAST_STRAIGHT_DIRECTION, moves);
+                break;
+            case PAWN:
+                addPawnMoves(board, square, team, moves);
+                break;
+        }
+    }
+
+    // kings and knights: each target square works as long as our own piece isn't sitting there
+    private static void addStepMoves(ChessBoard board, int square, ChessGame.TeamColor team,
+                                     int[] targets, MoveList moves) {
+        long ourPieces = board.colorBitboards[team.ordinal()];
+        long allPieces = board.occupied;
+        for (int target : targets) {
+            long targetBit = 1L << target;
+            if ((ourPieces & targetBit) == 0) {
+                int flags = ((allPieces & targetBit) != 0) ? PackedMove.CAPTURE : 0;
+                moves.add(PackedMove.encode(square, target, null, flags));
+            }
+        }
+    }
+
+    // rooks, bishops, and queens: go out along each ray until hitting a piece, which we can take if it's theirs
+    private static void addSlidingMoves(ChessBoard board, int square, ChessGame.TeamColor team,
+                                        int firstDirection, int lastDirection, MoveList moves) {
+        long ourPieces = board.colorBitboards[team.ordinal()];
+        long allPieces = board.occupied;
+        for (int direction = firstDirection; direction <= lastDirection; direction++) {
+            for (int target : MoveTables.RAYS[direction][square]) {
+                long targetBit = 1L << target;
+                if ((ourPieces & targetBit) != 0) {
+                    break; // the piece there is ours, so stop without adding it
+                }
+                if ((allPieces & targetBit) != 0) {
+                    // the piece there is theirs, we can take it but can't go past it
+                    moves.add(PackedMove.encode(square, target, null, PackedMove.CAPTURE));
+                    break;
+                }
+                moves.add(PackedMove.encode(square, target, null, 0));
+            }
+        }
+    }
+
+    private static void addPawnMoves(ChessBoard board, int square, ChessGame.TeamColor team, MoveList moves) {
+        int teamIndex = team.ordinal();
+        long allPieces = board.occupied;
+
+        // straight forward if it's empty, and two forward from the starting row if both are empty
+        int straightForward = MoveTables.PAWN_PUSHES[teamIndex][square];
+        if (straightForward != -1 && (allPieces & (1L << straightForward)) == 0) {
+            addPawnMove(square, straightForward, 0, moves);
+
+            int twoForward = MoveTables.PAWN_DOUBLE_PUSHES[teamIndex][square];
+            if (twoForward != -1 && (allPieces & (1L << twoForward)) == 0) {
+                moves.add(PackedMove.encode(square, twoForward, null, PackedMove.DOUBLE_PUSH));
+            }
+        }
+
+        // diagonally forward only if there's an enemy there
+        long theirPieces = board.colorBitboards[1 - teamIndex];
+        for (int target : MoveTables.PAWN_CAPTURES[teamIndex][square]) {
+            if ((theirPieces & (1L << target)) != 0) {
+                addPawnMove(square, target, PackedMove.CAPTURE, moves);
+            }
+        }
+    }
+
+    // if its a pawn moving to the end, it will have a promotion, otherwise no
+    private static void addPawnMove(int square, int target, int flags, MoveList moves) {
+        if (target < 8 || target >= 56) {
+            for (ChessPiece.PieceType promotion : PROMOTION_PIECES) {
+                moves.add(PackedMove.encode(square, target, promotion, flags));
+            }
+        } else {
+            moves.add(PackedMove.encode(square, target, null, flags));
+        }
+    }
+}
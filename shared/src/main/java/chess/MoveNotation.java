@@ -0,0 +1,352 @@
+package chess;
+
+/**
+ * Reads and writes moves as text, in the two notations everything else uses:
+ * <ul>
+ *   <li>UCI, just the start and end squares plus a promotion letter: e2e4, e7e8q, e1g1</li>
+ *   <li>SAN, what people write down: Nf3, exd5, Nbd7, e8=Q, O-O, Qxe7+, Qh5#</li>
+ * </ul>
+ * Both sides work in packed moves (see PackedMove) for the game's current position, since
+ * SAN can't be read or written without knowing where the pieces are. Parsing reads straight
+ * out of the text and generates moves into a list kept per thread, so it doesn't make any
+ * objects, which matters when it's reading whole archives of games.
+ */
+public final class MoveNotation {
+
+    // the pseudo-legal moves for whatever position is being looked at, reused every call
+    private static final ThreadLocal<MoveList> SCRATCH = ThreadLocal.withInitial(MoveList::new);
+
+    private MoveNotation() {
+    }
+
+    /**
+     * Reads a move in either notation, going by its shape
+     *
+     * @return the legal packed move the text means for the side to move, or PackedMove.NONE if
+     * it can't be read, isn't legal, or is SAN that could be more than one move
+     */
+    public static int parse(ChessGame game, CharSequence text) {
+        return looksLikeUci(text) ? parseUci(game, text) : parseSan(game, text);
+    }
+
+    /**
+     * @return the legal packed move for a UCI move like e2e4 or e7e8q, or PackedMove.NONE
+     */
+    public static int parseUci(ChessGame game, CharSequence text) {
+        if (!looksLikeUci(text)) {
+            return PackedMove.NONE;
+        }
+        int from = square(text, 0);
+        int to = square(text, 2);
+        ChessPiece.PieceType promotion = (text.length() == 5) ? promotionPiece(text.charAt(4)) : null;
+
+        MoveList moves = pseudoLegalMoves(game);
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            if (PackedMove.from(move) == from && PackedMove.to(move) == to && PackedMove.promotion(move) == promotion) {
+                return game.isMoveValid(move, game.getTeamTurn()) ? move : PackedMove.NONE;
+            }
+        }
+        return PackedMove.NONE;
+    }
+
+    /**
+     * Reads a SAN move. Check and mate marks and annotations like ! and ?? are allowed but not
+     * needed, castling can be written with O or 0, and promotions with or without the =.
+     *
+     * @return the legal packed move the text means, or PackedMove.NONE if it can't be read, isn't
+     * legal, or doesn't say enough to tell two legal moves apart
+     */
+    public static int parseSan(ChessGame game, CharSequence text) {
+        int start = 0;
+        int end = text.length();
+        while (end > 0 && "+#!?".indexOf(text.charAt(end - 1)) != -1) {
+            end--;
+        }
+        if (end < 2) {
+            return PackedMove.NONE;
+        }
+
+        int castleColumn = castleColumn(text, end);
+        if (castleColumn != -1) {
+            return findCastle(game, castleColumn);
+        }
+
+        // a promotion at the end, written e8=Q or e8Q
+        ChessPiece.PieceType promotion = null;
+        boolean equalsSign = text.charAt(end - 2) == '=';
+        if (equalsSign || Character.isUpperCase(text.charAt(end - 1))) {
+            promotion = promotionPiece(text.charAt(end - 1));
+            if (promotion == null) {
+                return PackedMove.NONE;
+            }
+            end -= equalsSign ? 2 : 1;
+        }
+
+        ChessPiece.PieceType type = ChessPiece.PieceType.PAWN;
+        if (Character.isUpperCase(text.charAt(0))) {
+            type = pieceType(text.charAt(0));
+            start = 1;
+        }
+        if (type == null || end - start < 2) {
+            return PackedMove.NONE;
+        }
+        int to = square(text, end - 2);
+        if (to == -1) {
+            return PackedMove.NONE;
+        }
+
+        // whatever's between the piece and the square says which one it is, by file, row, or both
+        int fromColumn = -1;
+        int fromRow = -1;
+        for (int i = start; i < end - 2; i++) {
+            char c = text.charAt(i);
+            if (c >= 'a' && c <= 'h') {
+                fromColumn = c - 'a';
+            } else if (c >= '1' && c <= '8') {
+                fromRow = c - '1';
+            } else if (c != 'x' && c != '-') {
+                return PackedMove.NONE;
+            }
+        }
+
+        ChessBoard board = game.getBoard();
+        ChessGame.TeamColor team = game.getTeamTurn();
+        MoveList moves = pseudoLegalMoves(game);
+        int found = PackedMove.NONE;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            int from = PackedMove.from(move);
+            if (PackedMove.to(move) != to || PackedMove.promotion(move) != promotion
+                    || board.getPiece(from).getPieceType() != type
+                    || (fromColumn != -1 && from % 8 != fromColumn)
+                    || (fromRow != -1 && from / 8 != fromRow)) {
+                continue;
+            }
+            if (game.isMoveValid(move, team)) {
+                if (found != PackedMove.NONE) {
+                    return PackedMove.NONE;
+                }
+                found = move;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @return true if the text is shaped like a UCI move, like e2e4 or e7e8q. It doesn't have to be legal
+     */
+    public static boolean looksLikeUci(CharSequence text) {
+        int length = text.length();
+        return (length == 4 || length == 5)
+                && square(text, 0) != -1 && square(text, 2) != -1
+                && (length == 4 || promotionPiece(text.charAt(4)) != null);
+    }
+
+    /**
+     * @return the move in UCI, like e2e4 or e7e8q
+     */
+    public static String toUci(int move) {
+        return PackedMove.toString(move);
+    }
+
+    /**
+     * @return the move in UCI, like e2e4 or e7e8q
+     */
+    public static String toUci(ChessMove move) {
+        return PackedMove.toString(PackedMove.encode(
+                ChessBoard.squareIndex(move.getStartPosition().getRow(), move.getStartPosition().getColumn()),
+                ChessBoard.squareIndex(move.getEndPosition().getRow(), move.getEndPosition().getColumn()),
+                move.getPromotionPiece(), 0));
+    }
+
+    /**
+     * Writes a move in SAN, with just enough of the start square to tell it apart from the same
+     * kind of piece going to the same place, and + or # if it checks or mates
+     *
+     * @param game the game, in the position before the move
+     * @param move a legal move for the side to move
+     */
+    public static String toSan(ChessGame game, int move) {
+        ChessBoard board = game.getBoard();
+        ChessGame.TeamColor team = game.getTeamTurn();
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        ChessPiece.PieceType type = board.getPiece(from).getPieceType();
+        StringBuilder san = new StringBuilder(8);
+
+        if (PackedMove.hasFlag(move, PackedMove.CASTLE)) {
+            san.append((to % 8 == 6) ? "O-O" : "O-O-O");
+        } else {
+            if (type == ChessPiece.PieceType.PAWN) {
+                if (PackedMove.hasFlag(move, PackedMove.CAPTURE)) {
+                    san.append(columnLetter(from));
+                }
+            } else {
+                san.append(pieceLetter(type));
+                appendDisambiguation(san, game, move, type);
+            }
+            if (PackedMove.hasFlag(move, PackedMove.CAPTURE)) {
+                san.append('x');
+            }
+            san.append(columnLetter(to)).append(rowNumber(to));
+            if (PackedMove.isPromotion(move)) {
+                san.append('=').append(pieceLetter(PackedMove.promotion(move)));
+            }
+        }
+
+        // try it to see if it checks, and if it does, whether there's any way out
+        ChessGame.TeamColor enemy = (team == ChessGame.TeamColor.WHITE) ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        try {
+            board.makeMove(move);
+            if (board.isInCheck(enemy)) {
+                san.append(hasLegalMove(board, enemy) ? '+' : '#');
+            }
+        } finally {
+            board.unmakeMove(move);
+        }
+        return san.toString();
+    }
+
+    /**
+     * Writes a ChessMove in SAN, going by the legal move it matches
+     *
+     * @throws IllegalArgumentException if it isn't a legal move for the side to move
+     * @see #toSan(ChessGame, int)
+     */
+    public static String toSan(ChessGame game, ChessMove move) {
+        // look it up instead of packing it, since packing it just guesses at things like castling
+        int legalMove = parseUci(game, toUci(move));
+        if (legalMove == PackedMove.NONE) {
+            throw new IllegalArgumentException("Not a legal move: " + toUci(move));
+        }
+        return toSan(game, legalMove);
+    }
+
+    // the file if that's enough, otherwise the row if that's enough, otherwise both
+    private static void appendDisambiguation(StringBuilder san, ChessGame game, int move, ChessPiece.PieceType type) {
+        ChessBoard board = game.getBoard();
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        boolean anyOther = false;
+        boolean sameColumn = false;
+        boolean sameRow = false;
+        MoveList moves = pseudoLegalMoves(game);
+        for (int i = 0; i < moves.size(); i++) {
+            int other = moves.get(i);
+            int otherFrom = PackedMove.from(other);
+            if (PackedMove.to(other) != to || otherFrom == from || board.getPiece(otherFrom).getPieceType() != type
+                    || !game.isMoveValid(other, game.getTeamTurn())) {
+                continue;
+            }
+            anyOther = true;
+            sameColumn |= otherFrom % 8 == from % 8;
+            sameRow |= otherFrom / 8 == from / 8;
+        }
+        if (!anyOther) {
+            return;
+        }
+        if (!sameColumn) {
+            san.append(columnLetter(from));
+        } else if (!sameRow) {
+            san.append(rowNumber(from));
+        } else {
+            san.append(columnLetter(from)).append(rowNumber(from));
+        }
+    }
+
+    private static boolean hasLegalMove(ChessBoard board, ChessGame.TeamColor team) {
+        MoveList moves = SCRATCH.get();
+        moves.clear();
+        board.generateMoves(team, moves);
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            board.makeMove(move);
+            boolean legal = !board.isInCheck(team);
+            board.unmakeMove(move);
+            if (legal) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static MoveList pseudoLegalMoves(ChessGame game) {
+        MoveList moves = SCRATCH.get();
+        moves.clear();
+        game.getBoard().generateMoves(game.getTeamTurn(), moves);
+        return moves;
+    }
+
+    private static int findCastle(ChessGame game, int kingEndColumn) {
+        ChessGame.TeamColor team = game.getTeamTurn();
+        int to = ChessBoard.squareIndex(team == ChessGame.TeamColor.WHITE ? 1 : 8, kingEndColumn);
+        MoveList moves = pseudoLegalMoves(game);
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            if (PackedMove.hasFlag(move, PackedMove.CASTLE) && PackedMove.to(move) == to) {
+                return game.isMoveValid(move, team) ? move : PackedMove.NONE;
+            }
+        }
+        return PackedMove.NONE;
+    }
+
+    // the column the king ends up on (7 for O-O, 3 for O-O-O) if the text up to end is castling, otherwise -1
+    private static int castleColumn(CharSequence text, int end) {
+        if (end != 3 && end != 5) {
+            return -1;
+        }
+        char letter = text.charAt(0);
+        if (letter != 'O' && letter != '0') {
+            return -1;
+        }
+        for (int i = 1; i < end; i++) {
+            if (text.charAt(i) != ((i % 2 == 1) ? '-' : letter)) {
+                return -1;
+            }
+        }
+        return (end == 3) ? 7 : 3;
+    }
+
+    // the square written at text[start] like "e4", or -1
+    private static int square(CharSequence text, int start) {
+        if (start < 0 || start + 1 >= text.length()) {
+            return -1;
+        }
+        char column = text.charAt(start);
+        char row = text.charAt(start + 1);
+        if (column < 'a' || column > 'h' || row < '1' || row > '8') {
+            return -1;
+        }
+        return ChessBoard.squareIndex(row - '0', column - 'a' + 1);
+    }
+
+    private static ChessPiece.PieceType pieceType(char letter) {
+        return switch (Character.toUpperCase(letter)) {
+            case 'K' -> ChessPiece.PieceType.KING;
+            case 'Q' -> ChessPiece.PieceType.QUEEN;
+            case 'R' -> ChessPiece.PieceType.ROOK;
+            case 'B' -> ChessPiece.PieceType.BISHOP;
+            case 'N' -> ChessPiece.PieceType.KNIGHT;
+            default -> null;
+        };
+    }
+
+    // like pieceType, but only for what a pawn can become
+    private static ChessPiece.PieceType promotionPiece(char letter) {
+        ChessPiece.PieceType type = pieceType(letter);
+        return (type == ChessPiece.PieceType.KING) ? null : type;
+    }
+
+    private static char pieceLetter(ChessPiece.PieceType type) {
+        return (type == ChessPiece.PieceType.KNIGHT) ? 'N' : type.name().charAt(0);
+    }
+
+    private static char columnLetter(int square) {
+        return (char) ('a' + square % 8);
+    }
+
+    private static char rowNumber(int square) {
+        return (char) ('1' + square / 8);
+    }
+}
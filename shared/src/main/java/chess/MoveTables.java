@@ -0,0 +1,112 @@
+package chess;
+
+import java.util.Arrays;
+
+/**
+ * Lookup tables for where each kind of piece can go from each of the 64 squares,
+ * worked out once when the class loads so move generation and attack checks never
+ * have to do bounds checks or make new positions.
+ * <p>
+ * Squares are numbered (row - 1) * 8 + (column - 1), so a1 is 0 and h8 is 63.
+ * The int[] tables list target squares; the long tables are the same squares as bitboards.
+ */
+final class MoveTables {
+
+    // ray directions, as {row change, column change}. The straight ones come first, then the diagonals
+    static final int[][] DIRECTIONS = {
+            {1, 0}, {-1, 0}, {0, 1}, {0, -1},
+            {1, 1}, {-1, -1}, {-1, 1}, {1, -1}
+    };
+    static final int FIRST_STRAIGHT_DIRECTION = 0;
+    static final int LAST_STRAIGHT_DIRECTION = 3;
+    static final int FIRST_DIAGONAL_DIRECTION = 4;
+    static final int LAST_DIAGONAL_DIRECTION = 7;
+
+    private static final int[][] KNIGHT_JUMPS = {{2, -1}, {2, 1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}, {1, 2}};
+    private static final int[][] KING_STEPS = {{1, 0}, {-1, 0}, {0, -1}, {0, 1}, {1, -1}, {1, 1}, {-1, -1}, {-1, 1}};
+
+    static final int[][] KNIGHT_TARGETS = new int[64][];
+    static final long[] KNIGHT_ATTACKS = new long[64];
+    static final int[][] KING_TARGETS = new int[64][];
+    static final long[] KING_ATTACKS = new long[64];
+
+    // indexed by [team ordinal][square]. Pushes are -1 when there's nowhere to go,
+    // and double pushes are only there for pawns still on their starting row
+    static final int[][] PAWN_PUSHES = new int[2][64];
+    static final int[][] PAWN_DOUBLE_PUSHES = new int[2][64];
+    static final int[][][] PAWN_CAPTURES = new int[2][64][];
+    static final long[][] PAWN_ATTACKS = new long[2][64];
+
+    // indexed by [direction][square], listing the squares outward from that square until the edge of the board
+    static final int[][][] RAYS = new int[8][64][];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            KNIGHT_TARGETS[square] = targetsAtOffsets(square, KNIGHT_JUMPS);
+            KNIGHT_ATTACKS[square] = toBitboard(KNIGHT_TARGETS[square]);
+            KING_TARGETS[square] = targetsAtOffsets(square, KING_STEPS);
+            KING_ATTACKS[square] = toBitboard(KING_TARGETS[square]);
+
+            for (ChessGame.TeamColor team : ChessGame.TeamColor.values()) {
+                int forward = (team == ChessGame.TeamColor.WHITE) ? 1 : -1;
+                int startingRow = (team == ChessGame.TeamColor.WHITE) ? 1 : 6;
+                int row = square / 8;
+
+                PAWN_PUSHES[team.ordinal()][square] = offsetSquare(square, forward, 0);
+                PAWN_DOUBLE_PUSHES[team.ordinal()][square] = (row == startingRow) ? offsetSquare(square, 2 * forward, 0) : -1;
+                PAWN_CAPTURES[team.ordinal()][square] = targetsAtOffsets(square, new int[][]{{forward, -1}, {forward, 1}});
+                PAWN_ATTACKS[team.ordinal()][square] = toBitboard(PAWN_CAPTURES[team.ordinal()][square]);
+            }
+
+            for (int direction = 0; direction < DIRECTIONS.length; direction++) {
+                RAYS[direction][square] = rayFrom(square, DIRECTIONS[direction]);
+            }
+        }
+    }
+
+    private MoveTables() {
+    }
+
+    // the square you land on going up/down and left/right from a square, or -1 if that's off the board
+    private static int offsetSquare(int square, int upDown, int leftRight) {
+        int row = square / 8 + upDown;
+        int column = square % 8 + leftRight;
+        if (row < 0 || row > 7 || column < 0 || column > 7) {
+            return -1;
+        }
+        return row * 8 + column;
+    }
+
+    private static int[] targetsAtOffsets(int square, int[][] offsets) {
+        int[] targets = new int[offsets.length];
+        int count = 0;
+        for (int[] offset : offsets) {
+            int target = offsetSquare(square, offset[0], offset[1]);
+            if (target != -1) {
+                targets[count] = target;
+                count++;
+            }
+        }
+        return Arrays.copyOf(targets, count);
+    }
+
+    private static int[] rayFrom(int square, int[] direction) {
+        int[] ray = new int[7];
+        int count = 0;
+        int target = offsetSquare(square, direction[0], direction[1]);
+        while (target != -1) {
+            ray[count] = target;
+            count++;
+            target = offsetSquare(target, direction[0], direction[1]);
+        }
+        return Arrays.copyOf(ray, count);
+    }
+
+    private static long toBitboard(int[] squares) {
+        long bitboard = 0L;
+        for (int square : squares) {
+            bitboard |= 1L << square;
+        }
+        return bitboard;
+    }
+}
@@ -0,0 +1,24 @@
+package chess;
+
+/**
+ * Everything ChessBoard.makeMove needs to remember so that ChessBoard.unmakeMove
+ * can put the board back exactly how it was. The board doesn't keep any of this itself,
+ * so a move made this way that never gets taken back doesn't leave anything behind.
+ *
+ * @param move            the move that was made (its promotion piece, if any, is what got put down)
+ * @param packedMove      the same move packed into an int, see PackedMove
+ * @param movedPiece      the piece that was picked up, before any promotion
+ * @param capturedPiece   the piece that got taken, or null if nothing was
+ * @param turn            the team that made the move
+ * @param castlingRights  the castling rights before the move
+ * @param enPassantSquare the en passant square before the move, or -1
+ */
+public record MoveUndo(
+        ChessMove move,
+        int packedMove,
+        ChessPiece movedPiece,
+        ChessPiece capturedPiece,
+        ChessGame.TeamColor turn,
+        int castlingRights,
+        int enPassantSquare
+) {}
@@ -0,0 +1,125 @@
+package chess;
+
+/**
+ * Packs a chess move into a single int, so move generation, legality checks and
+ * search can pass moves around without making a ChessMove (and two ChessPositions)
+ * for every one of them.
+ * <p>
+ * Bits 0-5 hold the start square and bits 6-11 the end square, both numbered
+ * (row - 1) * 8 + (column - 1). Bits 12-14 hold the promotion piece (0 for none,
+ * otherwise the PieceType ordinal plus one), and the bits above that are flags.
+ * An int of 0 is never a real move, so it's used as "no move".
+ */
+public final class PackedMove {
+
+    public static final int NONE = 0;
+
+    // the move lands on an enemy piece
+    public static final int CAPTURE = 1 << 15;
+    // a pawn moving two squares off its starting row
+    public static final int DOUBLE_PUSH = 1 << 16;
+    // a pawn taking a pawn that just went past it with a double push
+    public static final int EN_PASSANT = 1 << 17;
+    // a king moving two squares to castle, which brings the rook along
+    public static final int CASTLE = 1 << 18;
+
+    private static final int SQUARE_MASK = 0x3F;
+    private static final int PROMOTION_SHIFT = 12;
+    private static final int PROMOTION_MASK = 0x7;
+    private static final ChessPiece.PieceType[] PIECE_TYPES = ChessPiece.PieceType.values();
+
+    private PackedMove() {
+    }
+
+    public static int encode(int from, int to, ChessPiece.PieceType promotion, int flags) {
+        int promotionBits = (promotion == null) ? 0 : promotion.ordinal() + 1;
+        return from | (to << 6) | (promotionBits << PROMOTION_SHIFT) | flags;
+    }
+
+    public static int from(int move) {
+        return move & SQUARE_MASK;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & SQUARE_MASK;
+    }
+
+    /**
+     * @return the piece a pawn turns into with this move, or null if it isn't a promotion
+     */
+    public static ChessPiece.PieceType promotion(int move) {
+        int promotionBits = (move >>> PROMOTION_SHIFT) & PROMOTION_MASK;
+        return (promotionBits == 0) ? null : PIECE_TYPES[promotionBits - 1];
+    }
+
+    public static boolean isPromotion(int move) {
+        return ((move >>> PROMOTION_SHIFT) & PROMOTION_MASK) != 0;
+    }
+
+    public static boolean hasFlag(int move, int flag) {
+        return (move & flag) != 0;
+    }
+
+    /**
+     * Turns a packed move back into a ChessMove, for handing moves out through the
+     * regular Collection<ChessMove> API
+     */
+    public static ChessMove toChessMove(int move) {
+        return new ChessMove(ChessBoard.positionOf(from(move)), ChessBoard.positionOf(to(move)), promotion(move));
+    }
+
+    /**
+     * Packs a ChessMove, looking at the board to fill in the flags
+     *
+     * @param board the board the move is about to be made on
+     * @param move  the move to pack
+     * @return the packed move
+     */
+    public static int fromChessMove(ChessBoard board, ChessMove move) {
+        int from = ChessBoard.squareIndex(move.getStartPosition().getRow(), move.getStartPosition().getColumn());
+        int to = ChessBoard.squareIndex(move.getEndPosition().getRow(), move.getEndPosition().getColumn());
+
+        int flags = 0;
+        ChessPiece movingPiece = board.getPiece(from);
+        ChessPiece targetPiece = board.getPiece(to);
+        if (targetPiece != null && movingPiece != null && targetPiece.getTeamColor() != movingPiece.getTeamColor()) {
+            flags |= CAPTURE;
+        }
+        if (movingPiece != null && movingPiece.getPieceType() == ChessPiece.PieceType.PAWN) {
+            if (Math.abs(to - from) == 16) {
+                flags |= DOUBLE_PUSH;
+            } else if (to == board.getEnPassantSquare() && targetPiece == null && (from % 8) != (to % 8)) {
+                // a pawn going diagonally onto an empty square can only be taking en passant
+                flags |= EN_PASSANT | CAPTURE;
+            }
+        }
+        if (movingPiece != null && movingPiece.getPieceType() == ChessPiece.PieceType.KING && Math.abs(to - from) == 2) {
+            flags |= CASTLE;
+        }
+
+        // only pawns promote, so drop the promotion piece for anything else like the board always has
+        ChessPiece.PieceType promotion = move.getPromotionPiece();
+        if (movingPiece == null || movingPiece.getPieceType() != ChessPiece.PieceType.PAWN) {
+            promotion = null;
+        }
+        return encode(from, to, promotion, flags);
+    }
+
+    /**
+     * @return the move in from-to notation like e2e4 or e7e8q, handy for logging
+     */
+    public static String toString(int move) {
+        if (move == NONE) {
+            return "0000";
+        }
+        StringBuilder text = new StringBuilder(5);
+        text.append((char) ('a' + from(move) % 8)).append((char) ('1' + from(move) / 8));
+        text.append((char) ('a' + to(move) % 8)).append((char) ('1' + to(move) / 8));
+        ChessPiece.PieceType promotion = promotion(move);
+        if (promotion != null) {
+            // knights are n, since k is the king
+            text.append((promotion == ChessPiece.PieceType.KNIGHT) ? 'n' : Character.toLowerCase(promotion.name().charAt(0)));
+        }
+        return text.toString();
+    }
+}
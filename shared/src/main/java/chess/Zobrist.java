@@ -0,0 +1,111 @@
+package chess;
+
+/**
+ * The random numbers behind each position's 64 bit Zobrist key. A position's key is
+ * the XOR of one number for every piece on every square, plus ones for whose turn it
+ * is, which castling rights are left, and the en passant file. Since XOR undoes itself,
+ * the key can be updated as pieces move instead of being recomputed, which makes it an
+ * O(1) way to tell positions apart for caching, transposition tables, and repetitions.
+ * <p>
+ * The numbers come from a fixed seed, so keys are the same on every run and every machine.
+ */
+public final class Zobrist {
+
+    // [bitboardIndex(team, type)][square]
+    static final long[][] PIECE_SQUARE = new long[12][64];
+    // XORed in when it's black's turn
+    static final long BLACK_TO_MOVE;
+    // one per combination of the four castling rights bits
+    static final long[] CASTLING = new long[16];
+    // one per column the en passant square can be on
+    static final long[] EN_PASSANT_FILE = new long[8];
+
+    static {
+        // xorshift64*, so there's nothing to depend on and the sequence never changes
+        long seed = 0x9E3779B97F4A7C15L;
+        for (int piece = 0; piece < 12; piece++) {
+            for (int square = 0; square < 64; square++) {
+                seed = nextSeed(seed);
+                PIECE_SQUARE[piece][square] = seed * 0x2545F4914F6CDD1DL;
+            }
+        }
+        seed = nextSeed(seed);
+        BLACK_TO_MOVE = seed * 0x2545F4914F6CDD1DL;
+        // no rights left is the usual case for endgames, so leave it as 0 like the other "nothing" cases
+        for (int rights = 1; rights < 16; rights++) {
+            seed = nextSeed(seed);
+            CASTLING[rights] = seed * 0x2545F4914F6CDD1DL;
+        }
+        for (int file = 0; file < 8; file++) {
+            seed = nextSeed(seed);
+            EN_PASSANT_FILE[file] = seed * 0x2545F4914F6CDD1DL;
+        }
+    }
+
+    private Zobrist() {
+    }
+
+    private static long nextSeed(long seed) {
+        seed ^= seed >>> 12;
+        seed ^= seed << 25;
+        seed ^= seed >>> 27;
+        return seed;
+    }
+
+    /**
+     * @return the number for one piece sitting on one square (square is (row - 1) * 8 + (column - 1))
+     */
+    public static long pieceKey(ChessGame.TeamColor team, ChessPiece.PieceType type, int square) {
+        return PIECE_SQUARE[ChessBoard.bitboardIndex(team, type)][square];
+    }
+
+    /**
+     * @return the part of the key that comes from castling rights and the en passant square
+     */
+    public static long stateKey(int castlingRights, int enPassantSquare) {
+        long key = CASTLING[castlingRights & ChessBoard.ALL_CASTLING_RIGHTS];
+        if (enPassantSquare != -1) {
+            key ^= EN_PASSANT_FILE[enPassantSquare % 8];
+        }
+        return key;
+    }
+
+    /**
+     * @return the part of the key that comes from whose turn it is
+     */
+    public static long sideKey(ChessGame.TeamColor sideToMove) {
+        return (sideToMove == ChessGame.TeamColor.BLACK) ? BLACK_TO_MOVE : 0L;
+    }
+
+    /**
+     * Works out a board's piece key from scratch, by going over every piece. The board
+     * keeps its own up to date as it goes, so this is only for checking that one.
+     */
+    static long computePieceKey(ChessBoard board) {
+        long key = 0L;
+        for (int piece = 0; piece < 12; piece++) {
+            long bitboard = board.pieceBitboards[piece];
+            while (bitboard != 0) {
+                key ^= PIECE_SQUARE[piece][Long.numberOfTrailingZeros(bitboard)];
+                bitboard &= bitboard - 1;
+            }
+        }
+        return key;
+    }
+
+    /**
+     * Same as computePieceKey, but only counting the pawns
+     */
+    static long computePawnKey(ChessBoard board) {
+        long key = 0L;
+        for (ChessGame.TeamColor team : ChessGame.TeamColor.values()) {
+            int piece = ChessBoard.bitboardIndex(team, ChessPiece.PieceType.PAWN);
+            long bitboard = board.pieceBitboards[piece];
+            while (bitboard != 0) {
+                key ^= PIECE_SQUARE[piece][Long.numberOfTrailingZeros(bitboard)];
+                bitboard &= bitboard - 1;
+            }
+        }
+        return key;
+    }
+}
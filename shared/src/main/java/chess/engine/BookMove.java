@@ -0,0 +1,13 @@
+package chess.engine;
+
+import chess.ChessMove;
+
+/**
+ * One move an OpeningBook has for a position.
+ *
+ * @param move   the move
+ * @param weight how often to play it compared to the position's other book moves
+ * @param learn  whatever the book's author stored for learning; not used here
+ */
+public record BookMove(ChessMove move, int weight, int learn) {
+}
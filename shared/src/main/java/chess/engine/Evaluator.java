@@ -0,0 +1,292 @@
+package chess.engine;
+
+import chess.Attacks;
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.PieceSquareTables;
+
+/**
+ * Scores a position in centipawns from one team's point of view, so positive
+ * means that team is ahead.
+ * <p>
+ * Material and piece-square values come straight from the running totals the board
+ * keeps (see PieceSquareTables), so they cost nothing here. On top of that it looks at
+ * pawn structure (doubled, isolated, and passed pawns), mobility, and king safety. Each
+ * term has a middlegame and an endgame weight, and the two totals get blended by the
+ * game phase, so e.g. a passed pawn counts for more once the pieces come off. It only
+ * reads bitboards and never makes any objects, since the search calls it at every leaf.
+ */
+public final class Evaluator {
+
+    // indexed by PieceType ordinal: KING, QUEEN, BISHOP, KNIGHT, ROOK, PAWN. The search orders captures by these
+    static final int[] PIECE_VALUES = {0, 900, 330, 320, 500, 100};
+
+    // values() makes a new array every call, so keep one around
+    private static final ChessPiece.PieceType[] PIECE_TYPES = ChessPiece.PieceType.values();
+    private static final ChessGame.TeamColor WHITE = ChessGame.TeamColor.WHITE;
+    private static final ChessGame.TeamColor BLACK = ChessGame.TeamColor.BLACK;
+
+    // pawn structure, per pawn
+    private static final int DOUBLED_MIDGAME = -10;
+    private static final int DOUBLED_ENDGAME = -20;
+    private static final int ISOLATED_MIDGAME = -10;
+    private static final int ISOLATED_ENDGAME = -15;
+    // by how far the pawn has come, 0 being its own back row
+    private static final int[] PASSED_MIDGAME = {0, 5, 10, 15, 25, 40, 60, 0};
+    private static final int[] PASSED_ENDGAME = {0, 10, 15, 25, 45, 75, 120, 0};
+
+    // per square a piece could move to, past how many it has on an average square. By PieceType ordinal
+    private static final int[] MOBILITY_MIDGAME = {0, 1, 4, 4, 2, 0};
+    private static final int[] MOBILITY_ENDGAME = {0, 2, 5, 4, 4, 0};
+    private static final int[] MOBILITY_BASELINE = {0, 14, 7, 4, 7, 0};
+
+    // king safety only matters in the middlegame. Each of our pawns right in front of the king (or one row
+    // further up) is worth this much, and each enemy piece hitting the squares around the king adds to an
+    // attack count that costs more the bigger it gets
+    private static final int SHIELD_CLOSE = 10;
+    private static final int SHIELD_FAR = 5;
+    private static final int[] KING_ATTACK_WEIGHTS = {0, 5, 2, 2, 3, 0};
+    private static final int MAX_KING_DANGER = 500;
+
+    private static final long FILE_A = 0x0101010101010101L;
+    private static final long[] FILE_MASKS = new long[8];
+    private static final long[] ADJACENT_FILE_MASKS = new long[8];
+    // [team ordinal][square]: the squares in front of a pawn on its own and neighboring files. If no enemy pawn
+    // is on any of them, it's passed
+    private static final long[][] PASSED_MASKS = new long[2][64];
+
+    static {
+        for (int file = 0; file < 8; file++) {
+            FILE_MASKS[file] = FILE_A << file;
+        }
+        for (int file = 0; file < 8; file++) {
+            ADJACENT_FILE_MASKS[file] = ((file > 0) ? FILE_MASKS[file - 1] : 0L) | ((file < 7) ? FILE_MASKS[file + 1] : 0L);
+        }
+        for (int square = 0; square < 64; square++) {
+            int file = square & 7;
+            int row = square >>> 3;
+            long files = FILE_MASKS[file] | ADJACENT_FILE_MASKS[file];
+            long above = (row == 7) ? 0L : -1L << ((row + 1) * 8);
+            long below = (row == 0) ? 0L : -1L >>> ((8 - row) * 8);
+            PASSED_MASKS[WHITE.ordinal()][square] = files & above;
+            PASSED_MASKS[BLACK.ordinal()][square] = files & below;
+        }
+    }
+
+    private Evaluator() {
+    }
+
+    /**
+     * @param board the position
+     * @param team  whose point of view to score it from
+     * @return the score, where positive is good for team
+     */
+    public static int evaluate(ChessBoard board, ChessGame.TeamColor team) {
+        return evaluate(board, team, null);
+    }
+
+    /**
+     * Same as evaluate(board, team), but looks up the pawn structure in a PawnHashTable
+     * first, and saves it there if it wasn't already
+     *
+     * @param pawnTable the table to use, or null to work the pawns out every time
+     */
+    public static int evaluate(ChessBoard board, ChessGame.TeamColor team, PawnHashTable pawnTable) {
+        int midgame = board.getMidgameScore();
+        int endgame = board.getEndgameScore();
+
+        long pawnScore;
+        long passedPawns;
+        int entry = (pawnTable == null) ? -1 : pawnTable.probe(board.getPawnKey());
+        if (entry != -1) {
+            pawnScore = pawnTable.score(entry);
+            passedPawns = pawnTable.passedPawns(entry);
+        } else {
+            long whitePassed = passedPawns(board, WHITE);
+            long blackPassed = passedPawns(board, BLACK);
+            pawnScore = pawnStructure(board, WHITE, whitePassed) - pawnStructure(board, BLACK, blackPassed);
+            passedPawns = whitePassed | blackPassed;
+            if (pawnTable != null) {
+                pawnTable.store(board.getPawnKey(), pawnScore, passedPawns);
+            }
+        }
+
+        // everything below is added up as white's minus black's, with the middlegame part in the high half
+        // of the long and the endgame part in the low half
+        long terms = pawnScore
+                + blockedPassers(board, WHITE, passedPawns) - blockedPassers(board, BLACK, passedPawns)
+                + mobility(board, WHITE) - mobility(board, BLACK)
+                + kingSafety(board, WHITE) - kingSafety(board, BLACK);
+        midgame += midgamePart(terms);
+        endgame += endgamePart(terms);
+
+        int phase = Math.min(board.getGamePhase(), PieceSquareTables.MAX_PHASE);
+        int score = (midgame * phase + endgame * (PieceSquareTables.MAX_PHASE - phase)) / PieceSquareTables.MAX_PHASE;
+        return (team == WHITE) ? score : -score;
+    }
+
+    // only depends on where the pawns are, so it's what goes in the pawn hash table
+    private static long pawnStructure(ChessBoard board, ChessGame.TeamColor team, long passedPawns) {
+        long ourPawns = board.getBitboard(team, ChessPiece.PieceType.PAWN);
+        int midgame = 0;
+        int endgame = 0;
+
+        for (int file = 0; file < 8; file++) {
+            int onFile = Long.bitCount(ourPawns & FILE_MASKS[file]);
+            if (onFile == 0) {
+                continue;
+            }
+            if (onFile > 1) {
+                midgame += DOUBLED_MIDGAME * (onFile - 1);
+                endgame += DOUBLED_ENDGAME * (onFile - 1);
+            }
+            if ((ourPawns & ADJACENT_FILE_MASKS[file]) == 0) {
+                midgame += ISOLATED_MIDGAME * onFile;
+                endgame += ISOLATED_ENDGAME * onFile;
+            }
+        }
+
+        long passed = passedPawns;
+        while (passed != 0) {
+            int advanced = advanced(team, Long.numberOfTrailingZeros(passed));
+            passed &= passed - 1;
+            midgame += PASSED_MIDGAME[advanced];
+            endgame += PASSED_ENDGAME[advanced];
+        }
+        return pack(midgame, endgame);
+    }
+
+    private static long passedPawns(ChessBoard board, ChessGame.TeamColor team) {
+        long theirPawns = board.getBitboard(other(team), ChessPiece.PieceType.PAWN);
+        long passed = 0L;
+        long pawns = board.getBitboard(team, ChessPiece.PieceType.PAWN);
+        while (pawns != 0) {
+            int square = Long.numberOfTrailingZeros(pawns);
+            pawns &= pawns - 1;
+            if ((theirPawns & PASSED_MASKS[team.ordinal()][square]) == 0) {
+                passed |= 1L << square;
+            }
+        }
+        return passed;
+    }
+
+    // a passed pawn with something sitting right in front of it isn't going anywhere for now, so it loses
+    // half its endgame bonus. This depends on the other pieces, so it can't be cached with the pawns
+    private static long blockedPassers(ChessBoard board, ChessGame.TeamColor team, long passedPawns) {
+        long ours = passedPawns & board.getBitboard(team, ChessPiece.PieceType.PAWN);
+        long occupied = board.getOccupiedBitboard();
+        int endgame = 0;
+        while (ours != 0) {
+            int square = Long.numberOfTrailingZeros(ours);
+            ours &= ours - 1;
+            int inFront = (team == WHITE) ? square + 8 : square - 8;
+            if ((occupied & (1L << inFront)) != 0) {
+                endgame -= PASSED_ENDGAME[advanced(team, square)] / 2;
+            }
+        }
+        return pack(0, endgame);
+    }
+
+    // how far a pawn has come, 0 being its own back row
+    private static int advanced(ChessGame.TeamColor team, int square) {
+        return (team == WHITE) ? (square >>> 3) : 7 - (square >>> 3);
+    }
+
+    private static long mobility(ChessBoard board, ChessGame.TeamColor team) {
+        long occupied = board.getOccupiedBitboard();
+        long notOurs = ~board.getTeamBitboard(team);
+        int midgame = 0;
+        int endgame = 0;
+
+        for (int type = ChessPiece.PieceType.QUEEN.ordinal(); type <= ChessPiece.PieceType.ROOK.ordinal(); type++) {
+            long pieces = board.getBitboard(team, PIECE_TYPES[type]);
+            while (pieces != 0) {
+                int square = Long.numberOfTrailingZeros(pieces);
+                pieces &= pieces - 1;
+                int moves = Long.bitCount(attacks(type, square, occupied) & notOurs) - MOBILITY_BASELINE[type];
+                midgame += moves * MOBILITY_MIDGAME[type];
+                endgame += moves * MOBILITY_ENDGAME[type];
+            }
+        }
+        return pack(midgame, endgame);
+    }
+
+    private static long kingSafety(ChessBoard board, ChessGame.TeamColor team) {
+        long king = board.getBitboard(team, ChessPiece.PieceType.KING);
+        if (king == 0) {
+            return 0L;
+        }
+        int kingSquare = Long.numberOfTrailingZeros(king);
+        int kingRow = kingSquare >>> 3;
+        int kingFile = kingSquare & 7;
+        int midgame = 0;
+
+        // pawns on the king's file and the ones next to it, one and two rows up
+        long ourPawns = board.getBitboard(team, ChessPiece.PieceType.PAWN);
+        long shieldFiles = FILE_MASKS[kingFile] | ADJACENT_FILE_MASKS[kingFile];
+        int forward = (team == WHITE) ? 1 : -1;
+        int closeRow = kingRow + forward;
+        int farRow = kingRow + 2 * forward;
+        if (closeRow >= 0 && closeRow <= 7) {
+            midgame += SHIELD_CLOSE * Long.bitCount(ourPawns & shieldFiles & (0xFFL << (closeRow * 8)));
+        }
+        if (farRow >= 0 && farRow <= 7) {
+            midgame += SHIELD_FAR * Long.bitCount(ourPawns & shieldFiles & (0xFFL << (farRow * 8)));
+        }
+
+        // enemy pieces that hit the king or the squares around it. One attacker on its own isn't much of a threat
+        ChessGame.TeamColor enemy = other(team);
+        long kingZone = Attacks.king(kingSquare) | king;
+        long occupied = board.getOccupiedBitboard();
+        int attackers = 0;
+        int attackWeight = 0;
+        for (int type = ChessPiece.PieceType.QUEEN.ordinal(); type <= ChessPiece.PieceType.ROOK.ordinal(); type++) {
+            long pieces = board.getBitboard(enemy, PIECE_TYPES[type]);
+            while (pieces != 0) {
+                int square = Long.numberOfTrailingZeros(pieces);
+                pieces &= pieces - 1;
+                int hits = Long.bitCount(attacks(type, square, occupied) & kingZone);
+                if (hits > 0) {
+                    attackers++;
+                    attackWeight += KING_ATTACK_WEIGHTS[type] * hits;
+                }
+            }
+        }
+        if (attackers >= 2) {
+            midgame -= Math.min(attackWeight * attackWeight, MAX_KING_DANGER);
+        }
+        return pack(midgame, 0);
+    }
+
+    private static long attacks(int type, int square, long occupied) {
+        if (type == ChessPiece.PieceType.QUEEN.ordinal()) {
+            return Attacks.queen(square, occupied);
+        } else if (type == ChessPiece.PieceType.BISHOP.ordinal()) {
+            return Attacks.bishop(square, occupied);
+        } else if (type == ChessPiece.PieceType.KNIGHT.ordinal()) {
+            return Attacks.knight(square);
+        } else {
+            return Attacks.rook(square, occupied);
+        }
+    }
+
+    // two ints in one long so each term can return both halves without making an object. Adding and
+    // subtracting packed values works on both halves at once, since the low half borrows from the high one
+    // exactly the way unpacking expects
+    private static long pack(int midgame, int endgame) {
+        return ((long) midgame << 32) + endgame;
+    }
+
+    private static int midgamePart(long packed) {
+        return (int) ((packed + 0x80000000L) >> 32);
+    }
+
+    private static int endgamePart(long packed) {
+        return (int) packed;
+    }
+
+    private static ChessGame.TeamColor other(ChessGame.TeamColor team) {
+        return (team == WHITE) ? BLACK : WHITE;
+    }
+}
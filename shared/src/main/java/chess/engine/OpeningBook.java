@@ -0,0 +1,204 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * A book of opening moves, so bots don't have to search positions everyone already knows.
+ * <p>
+ * The file is a standard Polyglot book: 16 byte big-endian entries sorted by position key,
+ * each one a 64 bit key (see PolyglotKey), a 16 bit move, a 16 bit weight, and a 32 bit learn
+ * value. Moves use Polyglot's encoding, with castling written as the king taking its own rook.
+ * Books from anywhere else work, and OpeningBookWriter makes new ones.
+ * <p>
+ * The file is memory-mapped and looked up with a binary search right on the mapping, so
+ * opening a book takes no time and none of it ends up on the heap no matter how big it is;
+ * the OS pages in what gets used and shares it between everything reading it. Lookups only
+ * read from the mapping, so any number of games can use one book at once.
+ */
+public class OpeningBook {
+
+    public static final int ENTRY_BYTES = 16;
+    // one mapping can't be over 2 GB, so big books get mapped in 1 GB pieces
+    private static final int ENTRIES_PER_MAPPING_BITS = 26;
+    private static final int ENTRIES_PER_MAPPING = 1 << ENTRIES_PER_MAPPING_BITS;
+
+    // promotion piece in bits 12-14 of a move, where 0 means none
+    private static final ChessPiece.PieceType[] PROMOTIONS = {null, ChessPiece.PieceType.KNIGHT,
+            ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.ROOK, ChessPiece.PieceType.QUEEN};
+
+    private final MappedByteBuffer[] mappings;
+    private final long entryCount;
+
+    private OpeningBook(MappedByteBuffer[] mappings, long entryCount) {
+        this.mappings = mappings;
+        this.entryCount = entryCount;
+    }
+
+    /**
+     * Maps a book file into memory. The file shouldn't be changed while it's open.
+     *
+     * @throws IOException if it can't be read, or its size isn't a whole number of entries
+     */
+    public static OpeningBook open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size % ENTRY_BYTES != 0) {
+                throw new IOException(path + " isn't an opening book, its size isn't a multiple of " + ENTRY_BYTES);
+            }
+            long entryCount = size / ENTRY_BYTES;
+            int mappingCount = (int) ((entryCount + ENTRIES_PER_MAPPING - 1) >>> ENTRIES_PER_MAPPING_BITS);
+            MappedByteBuffer[] mappings = new MappedByteBuffer[mappingCount];
+            for (int i = 0; i < mappingCount; i++) {
+                long start = (long) i * ENTRIES_PER_MAPPING * ENTRY_BYTES;
+                mappings[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(size - start, (long) ENTRIES_PER_MAPPING * ENTRY_BYTES));
+            }
+            // the mappings stay good after the channel is closed
+            return new OpeningBook(mappings, entryCount);
+        }
+    }
+
+    /**
+     * @return how many entries the book has
+     */
+    public long size() {
+        return entryCount;
+    }
+
+    /**
+     * Gets every book move for a game's current position that's actually legal there. Bad
+     * entries (and the odd key collision) just get skipped.
+     *
+     * @return the moves, in the order they're in the book, or an empty list if the position isn't in it
+     */
+    public List<BookMove> lookup(ChessGame game) {
+        long key = PolyglotKey.of(game);
+        List<BookMove> moves = new ArrayList<>();
+        for (long entry = firstEntry(key); entry < entryCount && keyAt(entry) == key; entry++) {
+            ChessMove move = decodeMove(game, moveAt(entry));
+            Collection<ChessMove> validMoves = game.validMoves(move.getStartPosition());
+            if (validMoves != null && validMoves.contains(move)
+                    && game.getBoard().getPiece(move.getStartPosition()).getTeamColor() == game.getTeamTurn()) {
+                moves.add(new BookMove(move, weightAt(entry), learnAt(entry)));
+            }
+        }
+        return moves;
+    }
+
+    /**
+     * Picks one of the position's book moves at random, more likely the higher its weight
+     *
+     * @return the move, or null if the book doesn't have one for this position
+     */
+    public ChessMove pickMove(ChessGame game, RandomGenerator random) {
+        List<BookMove> moves = lookup(game);
+        int totalWeight = 0;
+        for (BookMove move : moves) {
+            totalWeight += move.weight();
+        }
+        if (totalWeight == 0) {
+            // no weights at all still means they're book moves, so just pick evenly
+            return moves.isEmpty() ? null : moves.get(random.nextInt(moves.size())).move();
+        }
+        int pick = random.nextInt(totalWeight);
+        for (BookMove move : moves) {
+            pick -= move.weight();
+            if (pick < 0) {
+                return move.move();
+            }
+        }
+        return null;
+    }
+
+    // the first entry whose key is at least key. Keys are sorted as unsigned numbers
+    private long firstEntry(long key) {
+        long low = 0;
+        long high = entryCount;
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            if (Long.compareUnsigned(keyAt(middle), key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private long keyAt(long entry) {
+        return mappingFor(entry).getLong(offsetOf(entry));
+    }
+
+    private int moveAt(long entry) {
+        return Short.toUnsignedInt(mappingFor(entry).getShort(offsetOf(entry) + 8));
+    }
+
+    private int weightAt(long entry) {
+        return Short.toUnsignedInt(mappingFor(entry).getShort(offsetOf(entry) + 10));
+    }
+
+    private int learnAt(long entry) {
+        return mappingFor(entry).getInt(offsetOf(entry) + 12);
+    }
+
+    private MappedByteBuffer mappingFor(long entry) {
+        return mappings[(int) (entry >>> ENTRIES_PER_MAPPING_BITS)];
+    }
+
+    private static int offsetOf(long entry) {
+        return (int) (entry & (ENTRIES_PER_MAPPING - 1)) * ENTRY_BYTES;
+    }
+
+    /**
+     * Turns a move into the book's 16 bit form: the to column and row in bits 0-5, the from
+     * column and row in bits 6-11, and the promotion piece in bits 12-14. Castling is the king
+     * moving onto its own rook.
+     */
+    static int encodeMove(ChessGame game, ChessMove move) {
+        ChessPosition start = move.getStartPosition();
+        ChessPosition end = move.getEndPosition();
+        int endColumn = end.getColumn();
+        ChessPiece piece = game.getBoard().getPiece(start);
+        if (piece != null && piece.getPieceType() == ChessPiece.PieceType.KING
+                && Math.abs(endColumn - start.getColumn()) == 2) {
+            endColumn = (endColumn > start.getColumn()) ? 8 : 1;
+        }
+        int promotion = 0;
+        for (int i = 1; i < PROMOTIONS.length; i++) {
+            if (PROMOTIONS[i] == move.getPromotionPiece()) {
+                promotion = i;
+            }
+        }
+        return (endColumn - 1) | ((end.getRow() - 1) << 3)
+                | ((start.getColumn() - 1) << 6) | ((start.getRow() - 1) << 9)
+                | (promotion << 12);
+    }
+
+    static ChessMove decodeMove(ChessGame game, int bookMove) {
+        ChessPosition start = new ChessPosition(((bookMove >>> 9) & 7) + 1, ((bookMove >>> 6) & 7) + 1);
+        int endRow = ((bookMove >>> 3) & 7) + 1;
+        int endColumn = (bookMove & 7) + 1;
+        ChessPiece.PieceType promotion = PROMOTIONS[Math.min((bookMove >>> 12) & 7, PROMOTIONS.length - 1)];
+
+        // a king "taking" its own rook is castling, which here is the king moving two squares
+        ChessPiece piece = game.getBoard().getPiece(start);
+        ChessPiece target = game.getBoard().getPiece(new ChessPosition(endRow, endColumn));
+        if (piece != null && target != null && piece.getPieceType() == ChessPiece.PieceType.KING
+                && target.getPieceType() == ChessPiece.PieceType.ROOK && target.getTeamColor() == piece.getTeamColor()) {
+            endColumn = (endColumn > start.getColumn()) ? start.getColumn() + 2 : start.getColumn() - 2;
+        }
+        return new ChessMove(start, new ChessPosition(endRow, endColumn), promotion);
+    }
+}
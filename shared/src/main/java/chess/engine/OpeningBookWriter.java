@@ -0,0 +1,70 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects positions and moves and writes them out as a Polyglot book, which OpeningBook
+ * (or anything else that reads Polyglot books) can read. Adding the same move for the same
+ * position again just adds to its weight, so feeding it a pile of games makes the popular
+ * moves come up more often.
+ */
+public class OpeningBookWriter {
+
+    // the book's weights are 16 bits
+    private static final int MAX_WEIGHT = 0xFFFF;
+
+    private record Entry(long key, int move) {
+    }
+
+    private final Map<Entry, Integer> weights = new LinkedHashMap<>();
+
+    /**
+     * Adds a move for a game's current position
+     *
+     * @param weight how much to add to the move's weight
+     */
+    public void add(ChessGame game, ChessMove move, int weight) {
+        Entry entry = new Entry(PolyglotKey.of(game), OpeningBook.encodeMove(game, move));
+        weights.merge(entry, weight, (oldWeight, extra) -> Math.min(oldWeight + extra, MAX_WEIGHT));
+    }
+
+    /**
+     * @return how many entries the book will have
+     */
+    public int size() {
+        return weights.size();
+    }
+
+    /**
+     * Writes the book, sorted by key the way OpeningBook looks things up, with each
+     * position's moves heaviest first
+     */
+    public void write(Path path) throws IOException {
+        List<Map.Entry<Entry, Integer>> entries = new ArrayList<>(weights.entrySet());
+        entries.sort(Comparator.<Map.Entry<Entry, Integer>, Long>comparing(e -> e.getKey().key(), Long::compareUnsigned)
+                .thenComparing(Map.Entry::getValue, Comparator.reverseOrder()));
+
+        try (OutputStream file = Files.newOutputStream(path);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+            for (Map.Entry<Entry, Integer> entry : entries) {
+                out.writeLong(entry.getKey().key());
+                out.writeShort(entry.getKey().move());
+                out.writeShort(entry.getValue());
+                out.writeInt(0);
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package chess.engine;
+
+import chess.ChessGame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs a search on several threads at once using Lazy SMP: every thread searches the same
+ * root position on its own board, and the only thing they share is the transposition table.
+ * The helpers start at staggered depths so they fill the table with results the main thread
+ * can use when it gets there, which is where the speedup comes from. The main thread decides
+ * when to stop, the same way a single threaded search would, and then tells the helpers to stop too.
+ */
+public final class ParallelSearch {
+
+    private ParallelSearch() {
+    }
+
+    /**
+     * Searches a game's position with several threads
+     *
+     * @param game    the game to find a move in, which won't be changed
+     * @param limits  when the main thread should stop; the helpers stop when it does
+     * @param table   the table every thread shares
+     * @param threads how many threads to use, including the calling thread
+     * @return the best move and how each thread did
+     */
+    public static ParallelSearchResult findBestMove(ChessGame game, SearchLimits limits,
+                                                    TranspositionTable table, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("A search needs at least one thread");
+        }
+
+        AtomicBoolean stop = new AtomicBoolean();
+        // helpers go until the main thread is done, whatever limit that ends up being
+        SearchLimits helperLimits = new SearchLimits(SearchLimits.MAX_DEPTH, limits.maxTimeMillis(), Long.MAX_VALUE);
+        SearchResult[] results = new SearchResult[threads];
+        List<Thread> helpers = new ArrayList<>();
+        for (int i = 1; i < threads; i++) {
+            int threadIndex = i;
+            Search helper = new Search(game, helperLimits, table, threadIndex, stop);
+            Thread thread = new Thread(() -> results[threadIndex] = helper.run(), "search-helper-" + threadIndex);
+            thread.setDaemon(true);
+            helpers.add(thread);
+        }
+
+        Search main = new Search(game, limits, table, 0, stop);
+        long startNanos = System.nanoTime();
+        helpers.forEach(Thread::start);
+        try {
+            results[0] = main.run();
+        } finally {
+            stop.set(true);
+        }
+        for (Thread helper : helpers) {
+            try {
+                helper.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        long elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000;
+
+        // go with the main thread unless a helper got all the way through a deeper iteration. A helper
+        // only has no result if we got interrupted before it finished
+        SearchResult best = results[0];
+        List<SearchResult> threadResults = new ArrayList<>();
+        for (SearchResult result : results) {
+            if (result == null) {
+                continue;
+            }
+            threadResults.add(result);
+            if (result.bestMove() != null && result.depth() > best.depth()) {
+                best = result;
+            }
+        }
+        return new ParallelSearchResult(best, threadResults, elapsedMillis);
+    }
+}
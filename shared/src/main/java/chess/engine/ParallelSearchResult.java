@@ -0,0 +1,45 @@
+package chess.engine;
+
+import java.util.List;
+
+/**
+ * What a ParallelSearch came up with.
+ *
+ * @param best          the result the move came from
+ * @param threadResults each thread's own result, main thread first
+ * @param elapsedMillis how long the whole search took
+ */
+public record ParallelSearchResult(SearchResult best, List<SearchResult> threadResults, long elapsedMillis) {
+
+    /**
+     * @return how many positions all the threads looked at together
+     */
+    public long totalNodes() {
+        long total = 0;
+        for (SearchResult result : threadResults) {
+            total += result.nodes();
+        }
+        return total;
+    }
+
+    /**
+     * @return how many positions all the threads looked at per second, together
+     */
+    public long nodesPerSecond() {
+        return totalNodes() * 1000 / Math.max(elapsedMillis, 1);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append("best move ").append(best.bestMove()).append(", score ").append(best.score())
+                .append(", depth ").append(best.depth()).append(", ").append(totalNodes()).append(" nodes, ")
+                .append(nodesPerSecond()).append(" nodes/sec\n");
+        for (int i = 0; i < threadResults.size(); i++) {
+            SearchResult result = threadResults.get(i);
+            report.append("  thread ").append(i).append(": depth ").append(result.depth()).append(", ")
+                    .append(result.nodes()).append(" nodes, ").append(result.nodesPerSecond()).append(" nodes/sec\n");
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,95 @@
+package chess.engine;
+
+/**
+ * Remembers the pawn structure part of the evaluation, keyed by the board's pawn key
+ * (see ChessBoard.getPawnKey). Pawns move a lot less often than everything else, so
+ * almost every position the search evaluates has the same pawns as one it's already
+ * seen, and the doubled/isolated/passed pawn work only has to happen once per pawn
+ * structure instead of once per position.
+ * <p>
+ * Each entry keeps the key, the packed middlegame and endgame score (white's minus
+ * black's), and a bitboard of which pawns are passed, so the rest of the evaluation can
+ * use those without working them out again. It's small and not thread safe, so every
+ * search keeps its own; a hit rate in the high 90s is normal.
+ */
+public class PawnHashTable {
+
+    // 3 longs per entry: the key, the score, and the passed pawns
+    private static final int LONGS_PER_ENTRY = 3;
+
+    private final long[] table;
+    private final int entryMask;
+    private long hits;
+    private long misses;
+
+    /**
+     * @param entries how many pawn structures to hold; it gets rounded down to a power of two
+     */
+    public PawnHashTable(int entries) {
+        if (entries < 1) {
+            throw new IllegalArgumentException("Pawn hash table needs at least 1 entry");
+        }
+        int size = Integer.highestOneBit(entries);
+        this.table = new long[size * LONGS_PER_ENTRY];
+        this.entryMask = size - 1;
+    }
+
+    /**
+     * Looks up a pawn structure
+     *
+     * @param pawnKey the board's pawn key
+     * @return the entry to read with score and passedPawns, or -1 if it isn't there
+     */
+    public int probe(long pawnKey) {
+        int index = entryIndex(pawnKey);
+        // an empty slot has key 0 and a score of 0, which is right for a board with no pawns anyway
+        if (table[index] == pawnKey) {
+            hits++;
+            return index;
+        }
+        misses++;
+        return -1;
+    }
+
+    /**
+     * Saves a pawn structure's evaluation, replacing whatever was in its slot
+     *
+     * @param pawnKey     the board's pawn key
+     * @param score       the packed middlegame and endgame score, white's minus black's
+     * @param passedPawns every passed pawn on the board, both colors
+     */
+    public void store(long pawnKey, long score, long passedPawns) {
+        int index = entryIndex(pawnKey);
+        table[index] = pawnKey;
+        table[index + 1] = score;
+        table[index + 2] = passedPawns;
+    }
+
+    public long score(int entry) {
+        return table[entry + 1];
+    }
+
+    public long passedPawns(int entry) {
+        return table[entry + 2];
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the share of probes that found their entry, from 0 to 1
+     */
+    public double hitRate() {
+        long probes = hits + misses;
+        return (probes == 0) ? 0.0 : (double) hits / probes;
+    }
+
+    private int entryIndex(long pawnKey) {
+        return (int) (pawnKey & entryMask) * LONGS_PER_ENTRY;
+    }
+}
@@ -0,0 +1,533 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.MoveList;
+import chess.PackedMove;
+import chess.Zobrist;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Finds a good move for whoever's turn it is, for computer opponents.
+ * <p>
+ * It's a negamax alpha-beta search with iterative deepening: search 1 move ahead, then 2,
+ * then 3, and so on until the time, node, or depth limit runs out, then play the best move
+ * from the deepest search that finished. Each iteration tries the last one's best move first,
+ * which makes alpha-beta cut off a lot more. The rest of the moves are ordered captures first
+ * (most valuable victim, least valuable attacker), then killer moves (quiet moves that caused
+ * a cutoff at the same ply), then by the history heuristic (how often a move has caused
+ * cutoffs anywhere). At the end of the main search, a quiescence search keeps following
+ * captures so it doesn't stop right in the middle of a trade.
+ * <p>
+ * Results get saved in a TranspositionTable, so a position reached again through a different
+ * move order can be cut off right away, or at least have its best move tried first.
+ * <p>
+ * Every search works on its own copy of the board with its own preallocated move lists, so
+ * lots of bot games can search at the same time. The only thing they share is the
+ * transposition table, which is lock-free; each one keeps its own PawnHashTable for the
+ * evaluation. The inner loop doesn't make any objects.
+ */
+public class Search {
+
+    // a mate found at ply n scores MATE_SCORE - n, so quicker mates score higher
+    public static final int MATE_SCORE = 100_000;
+    private static final int INFINITY = 1_000_000;
+    // the main search plus quiescence never goes deeper than this
+    static final int MAX_PLY = 128;
+    // how often to look at the clock, since System.nanoTime isn't free
+    private static final int TIME_CHECK_INTERVAL = 1024;
+
+    // move ordering scores, highest first
+    private static final int BEST_MOVE_SCORE = 1_000_000;
+    private static final int CAPTURE_SCORE = 100_000;
+    private static final int PROMOTION_SCORE = 90_000;
+    private static final int FIRST_KILLER_SCORE = 80_000;
+    private static final int SECOND_KILLER_SCORE = 79_000;
+    // history scores get halved once any of them reaches this, so they stay below the killers
+    private static final int HISTORY_LIMIT = 50_000;
+    // pawn structures each search remembers, about 400 KB worth
+    private static final int PAWN_TABLE_ENTRIES = 1 << 14;
+
+    // what findBestMove uses when it isn't given a table, shared by every search that does that
+    private static final int SHARED_TABLE_MB = 64;
+    private static volatile TranspositionTable sharedTable;
+    // endgames every search looks up instead of searching, once something sets it
+    private static volatile Tablebase tablebase;
+
+    // Lazy SMP helper threads skip some depths so they aren't all searching the same thing at once. Helper i
+    // uses row (i - 1) % 20, and skips a depth when (depth + phase) / size is odd
+    private static final int[] SKIP_SIZE = {1, 1, 2, 2, 2, 2, 3, 3, 3, 3, 3, 3, 4, 4, 4, 4, 4, 4, 4, 4};
+    private static final int[] SKIP_PHASE = {0, 1, 0, 1, 2, 3, 0, 1, 2, 3, 4, 5, 0, 1, 2, 3, 4, 5, 6, 7};
+
+    private final ChessBoard board;
+    private final ChessGame.TeamColor rootTeam;
+    private final SearchLimits limits;
+    private final TranspositionTable table;
+    // 0 for a normal search or the main thread of a parallel one, otherwise which helper this is
+    private final int threadIndex;
+    // set once a parallel search is done, so every thread stops
+    private final AtomicBoolean sharedStop;
+
+    // one move list and one set of ordering scores per ply so the recursion never makes new ones
+    private final MoveList[] movesAtPly = new MoveList[MAX_PLY + 1];
+    private final int[][] orderingScoresAtPly = new int[MAX_PLY + 1][];
+    // two quiet moves per ply that most recently caused a cutoff
+    private final int[][] killers = new int[MAX_PLY + 1][2];
+    // [team][from][to], bumped by depth squared every time a quiet move causes a cutoff
+    private final int[][][] history = new int[2][64][64];
+    // this search's own pawn structure cache, since it isn't thread safe like the transposition table
+    private final PawnHashTable pawnTable = new PawnHashTable(PAWN_TABLE_ENTRIES);
+
+    private long nodes;
+    private long deadlineNanos;
+    private boolean stopped;
+    // the best root move found so far in the iteration that's running
+    private int iterationBestMove;
+
+    /**
+     * Sets up a search of a game's current position. The game itself isn't touched; the
+     * search works on a copy of its board.
+     *
+     * @param table where to save and look up results; it can be shared with other searches
+     */
+    public Search(ChessGame game, SearchLimits limits, TranspositionTable table) {
+        this(game, limits, table, 0, new AtomicBoolean());
+    }
+
+    // one thread's share of a ParallelSearch
+    Search(ChessGame game, SearchLimits limits, TranspositionTable table, int threadIndex, AtomicBoolean sharedStop) {
+        this.board = new ChessBoard(game.getBoard());
+        this.rootTeam = game.getTeamTurn();
+        this.limits = limits;
+        this.table = table;
+        this.threadIndex = threadIndex;
+        this.sharedStop = sharedStop;
+        for (int ply = 0; ply <= MAX_PLY; ply++) {
+            movesAtPly[ply] = new MoveList(64);
+            orderingScoresAtPly[ply] = new int[64];
+        }
+    }
+
+    /**
+     * Finds the best move for whoever's turn it is in a game
+     *
+     * @param game   the game to find a move in, which won't be changed
+     * @param limits when to stop searching
+     * @return the move to play and some stats about the search
+     */
+    public static SearchResult findBestMove(ChessGame game, SearchLimits limits) {
+        return findBestMove(game, limits, sharedTable());
+    }
+
+    /**
+     * Same as findBestMove(game, limits), but with a specific transposition table instead
+     * of the shared one
+     */
+    public static SearchResult findBestMove(ChessGame game, SearchLimits limits, TranspositionTable table) {
+        return new Search(game, limits, table).run();
+    }
+
+    /**
+     * Plays a move from an opening book if the book has one for this position, and only
+     * searches (with the shared table) once the game is out of the book
+     *
+     * @param book the book to check first, or null to always search
+     * @return the move, which for a book move has a depth and node count of 0
+     */
+    public static SearchResult findBestMove(ChessGame game, SearchLimits limits, OpeningBook book) {
+        long startNanos = System.nanoTime();
+        ChessMove bookMove = (book == null) ? null : book.pickMove(game, ThreadLocalRandom.current());
+        if (bookMove != null) {
+            return new SearchResult(bookMove, 0, 0, 0, (System.nanoTime() - startNanos) / 1_000_000);
+        }
+        return findBestMove(game, limits);
+    }
+
+    // made the first time it's needed, since not every program that uses the rules wants 64 MB for a bot
+    private static TranspositionTable sharedTable() {
+        TranspositionTable table = sharedTable;
+        if (table == null) {
+            synchronized (Search.class) {
+                table = sharedTable;
+                if (table == null) {
+                    table = new TranspositionTable(SHARED_TABLE_MB);
+                    sharedTable = table;
+                }
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Sets the tablebase every search probes once there are few enough pieces left
+     *
+     * @param endgames the tablebase, or null to stop using one
+     */
+    public static void setTablebase(Tablebase endgames) {
+        tablebase = endgames;
+    }
+
+    /**
+     * Runs the search. Only call this once per Search.
+     */
+    public SearchResult run() {
+        long startNanos = System.nanoTime();
+        // helpers are part of the same search, so only the main thread starts a new one
+        if (threadIndex == 0) {
+            table.newSearch();
+        }
+        deadlineNanos = (limits.maxTimeMillis() == Long.MAX_VALUE)
+                ? Long.MAX_VALUE : startNanos + limits.maxTimeMillis() * 1_000_000;
+
+        // if time runs out before even the first iteration finishes, any legal move beats nothing
+        int bestMove = firstLegalMove();
+        if (bestMove == PackedMove.NONE) {
+            return new SearchResult(null, board.isInCheck(rootTeam) ? -MATE_SCORE : 0, 0, 0, 0);
+        }
+        int bestScore = 0;
+        int completedDepth = 0;
+
+        for (int depth = 1; depth <= limits.maxDepth(); depth++) {
+            if (skipsDepth(depth)) {
+                continue;
+            }
+            iterationBestMove = PackedMove.NONE;
+            int score = negamax(depth, -INFINITY, INFINITY, 0, rootTeam, bestMove);
+
+            // a stopped iteration still searched the last best move first, so anything it found that
+            // beat that got a full search and can be trusted
+            if (iterationBestMove != PackedMove.NONE) {
+                bestMove = iterationBestMove;
+            }
+            if (stopped) {
+                break;
+            }
+            bestScore = score;
+            completedDepth = depth;
+
+            // no point looking further once a forced mate is found, and the next iteration usually takes
+            // several times longer than this one, so don't start one that can't finish
+            if (Math.abs(score) >= MATE_SCORE - MAX_PLY) {
+                break;
+            }
+            long elapsed = System.nanoTime() - startNanos;
+            if (threadIndex == 0 && deadlineNanos != Long.MAX_VALUE && elapsed > (deadlineNanos - startNanos) / 2) {
+                break;
+            }
+        }
+
+        long elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000;
+        return new SearchResult(PackedMove.toChessMove(bestMove), bestScore, completedDepth, nodes, elapsedMillis);
+    }
+
+    private boolean skipsDepth(int depth) {
+        if (threadIndex == 0) {
+            return false;
+        }
+        int row = (threadIndex - 1) % SKIP_SIZE.length;
+        return ((depth + SKIP_PHASE[row]) / SKIP_SIZE[row]) % 2 != 0;
+    }
+
+    private int negamax(int depth, int alpha, int beta, int ply, ChessGame.TeamColor team, int bestMoveHint) {
+        if (countNodeAndCheckLimits()) {
+            return 0;
+        }
+
+        // don't let a check end the search, there's always something forced going on
+        boolean inCheck = board.isInCheck(team);
+        if (inCheck) {
+            depth++;
+        }
+        if (depth <= 0) {
+            return quiescence(alpha, beta, ply, team);
+        }
+        if (ply >= MAX_PLY) {
+            return Evaluator.evaluate(board, team, pawnTable);
+        }
+
+        // few enough pieces left that the tablebase knows the exact answer
+        Tablebase endgames = tablebase;
+        if (endgames != null && ply > 0 && Long.bitCount(board.getOccupiedBitboard()) <= Tablebase.MAX_PIECES) {
+            int result = endgames.probe(board, team);
+            if (result != Tablebase.NOT_FOUND) {
+                return tablebaseScore(result, ply);
+            }
+        }
+
+        // if this position was already searched at least this deep, that result might settle it. Not at the
+        // root though, since the root has to come up with an actual move
+        long key = board.getZobristKey() ^ Zobrist.sideKey(team);
+        long entry = table.probe(key);
+        if (entry != 0) {
+            if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                int storedScore = scoreFromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER_BOUND && storedScore >= beta)
+                        || (bound == TranspositionTable.UPPER_BOUND && storedScore <= alpha)) {
+                    return storedScore;
+                }
+            }
+            // the move only gets used for ordering, so a bad one from a key collision can't hurt
+            if (bestMoveHint == PackedMove.NONE) {
+                bestMoveHint = TranspositionTable.move(entry);
+            }
+        }
+
+        MoveList moves = movesAtPly[ply];
+        moves.clear();
+        board.generateMoves(team, moves);
+        int[] orderingScores = scoreMoves(moves, ply, team, bestMoveHint);
+
+        ChessGame.TeamColor enemy = other(team);
+        int originalAlpha = alpha;
+        int legalMoves = 0;
+        int bestScore = -INFINITY;
+        int bestMove = PackedMove.NONE;
+        for (int i = 0; i < moves.size(); i++) {
+            pickNextMove(moves, orderingScores, i);
+            int move = moves.get(i);
+
+            board.makeMove(move);
+            if (board.isInCheck(team)) {
+                board.unmakeMove(move);
+                continue;
+            }
+            legalMoves++;
+            int score = -negamax(depth - 1, -beta, -alpha, ply + 1, enemy, PackedMove.NONE);
+            board.unmakeMove(move);
+
+            if (stopped) {
+                return 0;
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+                if (ply == 0) {
+                    iterationBestMove = move;
+                }
+            }
+            if (score > alpha) {
+                alpha = score;
+            }
+            if (alpha >= beta) {
+                if (isQuiet(move)) {
+                    rememberCutoff(move, ply, team, depth);
+                }
+                break;
+            }
+        }
+
+        if (legalMoves == 0) {
+            // checkmate or stalemate
+            return inCheck ? -MATE_SCORE + ply : 0;
+        }
+
+        int bound = (bestScore >= beta) ? TranspositionTable.LOWER_BOUND
+                : (bestScore > originalAlpha) ? TranspositionTable.EXACT : TranspositionTable.UPPER_BOUND;
+        table.store(key, bestMove, scoreToTable(bestScore, ply), depth, bound);
+        return bestScore;
+    }
+
+    // mate scores count plies from the root, but the table is shared between positions at different plies,
+    // so they get stored as plies from the position itself and turned back on the way out
+    private static int scoreToTable(int score, int ply) {
+        if (score >= MATE_SCORE - MAX_PLY) {
+            return score + ply;
+        }
+        if (score <= -MATE_SCORE + MAX_PLY) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    // a tablebase win or loss is a mate like any other, just one found without searching for it
+    private static int tablebaseScore(int result, int ply) {
+        int mateScore = MATE_SCORE - (ply + Tablebase.pliesToMate(result));
+        if (Tablebase.isWin(result)) {
+            return mateScore;
+        }
+        return Tablebase.isLoss(result) ? -mateScore : 0;
+    }
+
+    private static int scoreFromTable(int score, int ply) {
+        if (score >= MATE_SCORE - MAX_PLY) {
+            return score - ply;
+        }
+        if (score <= -MATE_SCORE + MAX_PLY) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    // keep following captures (and promotions) until things settle down, so the evaluation isn't
+    // taken in the middle of a trade
+    private int quiescence(int alpha, int beta, int ply, ChessGame.TeamColor team) {
+        if (countNodeAndCheckLimits()) {
+            return 0;
+        }
+
+        // the side to move can usually do at least as well as standing still, so that's the floor
+        int standPat = Evaluator.evaluate(board, team, pawnTable);
+        if (standPat >= beta || ply >= MAX_PLY) {
+            return standPat;
+        }
+        if (standPat > alpha) {
+            alpha = standPat;
+        }
+
+        MoveList moves = movesAtPly[ply];
+        moves.clear();
+        board.generateMoves(team, moves);
+        int tacticalCount = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            if (!isQuiet(moves.get(i))) {
+                moves.set(tacticalCount++, moves.get(i));
+            }
+        }
+        moves.truncate(tacticalCount);
+        int[] orderingScores = scoreMoves(moves, ply, team, PackedMove.NONE);
+
+        ChessGame.TeamColor enemy = other(team);
+        for (int i = 0; i < moves.size(); i++) {
+            pickNextMove(moves, orderingScores, i);
+            int move = moves.get(i);
+
+            board.makeMove(move);
+            if (board.isInCheck(team)) {
+                board.unmakeMove(move);
+                continue;
+            }
+            int score = -quiescence(-beta, -alpha, ply + 1, enemy);
+            board.unmakeMove(move);
+
+            if (stopped) {
+                return 0;
+            }
+            if (score >= beta) {
+                return score;
+            }
+            if (score > alpha) {
+                alpha = score;
+            }
+        }
+        return alpha;
+    }
+
+    // gives every move an ordering score; see the constants at the top for what goes first
+    private int[] scoreMoves(MoveList moves, int ply, ChessGame.TeamColor team, int bestMoveHint) {
+        int[] orderingScores = orderingScoresAtPly[ply];
+        if (orderingScores.length < moves.size()) {
+            orderingScores = new int[moves.size() * 2];
+            orderingScoresAtPly[ply] = orderingScores;
+        }
+
+        int[][] teamHistory = history[team.ordinal()];
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            int orderingScore;
+            if (move == bestMoveHint) {
+                orderingScore = BEST_MOVE_SCORE;
+            } else if (PackedMove.hasFlag(move, PackedMove.CAPTURE)) {
+                orderingScore = CAPTURE_SCORE + mvvLva(move);
+            } else if (PackedMove.promotion(move) == ChessPiece.PieceType.QUEEN) {
+                orderingScore = PROMOTION_SCORE;
+            } else if (move == killers[ply][0]) {
+                orderingScore = FIRST_KILLER_SCORE;
+            } else if (move == killers[ply][1]) {
+                orderingScore = SECOND_KILLER_SCORE;
+            } else {
+                orderingScore = teamHistory[PackedMove.from(move)][PackedMove.to(move)];
+            }
+            orderingScores[i] = orderingScore;
+        }
+        return orderingScores;
+    }
+
+    // most valuable victim, least valuable attacker: taking a queen with a pawn comes before taking a pawn with a queen
+    private int mvvLva(int move) {
+        ChessPiece attacker = board.getPiece(PackedMove.from(move));
+        ChessPiece victim = board.getPiece(PackedMove.to(move));
+        // en passant is the only capture where nothing's on the end square, and it's always a pawn
+        int victimValue = (victim == null) ? Evaluator.PIECE_VALUES[ChessPiece.PieceType.PAWN.ordinal()]
+                : Evaluator.PIECE_VALUES[victim.getPieceType().ordinal()];
+        return victimValue * 10 - Evaluator.PIECE_VALUES[attacker.getPieceType().ordinal()];
+    }
+
+    // one step of a selection sort: swap the best scoring move left in the list into spot index
+    private static void pickNextMove(MoveList moves, int[] orderingScores, int index) {
+        int bestIndex = index;
+        for (int i = index + 1; i < moves.size(); i++) {
+            if (orderingScores[i] > orderingScores[bestIndex]) {
+                bestIndex = i;
+            }
+        }
+        if (bestIndex != index) {
+            moves.swap(index, bestIndex);
+            int temp = orderingScores[index];
+            orderingScores[index] = orderingScores[bestIndex];
+            orderingScores[bestIndex] = temp;
+        }
+    }
+
+    private void rememberCutoff(int move, int ply, ChessGame.TeamColor team, int depth) {
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+
+        int[][] teamHistory = history[team.ordinal()];
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        teamHistory[from][to] += depth * depth;
+        if (teamHistory[from][to] >= HISTORY_LIMIT) {
+            for (int[] fromRow : teamHistory) {
+                for (int i = 0; i < fromRow.length; i++) {
+                    fromRow[i] /= 2;
+                }
+            }
+        }
+    }
+
+    private static boolean isQuiet(int move) {
+        return !PackedMove.hasFlag(move, PackedMove.CAPTURE) && !PackedMove.isPromotion(move);
+    }
+
+    // returns true once the search should stop
+    private boolean countNodeAndCheckLimits() {
+        if (stopped) {
+            return true;
+        }
+        nodes++;
+        if (nodes >= limits.maxNodes()) {
+            stopped = true;
+        } else if (nodes % TIME_CHECK_INTERVAL == 0) {
+            stopped = sharedStop.get() || (deadlineNanos != Long.MAX_VALUE && System.nanoTime() - deadlineNanos > 0);
+        }
+        return stopped;
+    }
+
+    private int firstLegalMove() {
+        MoveList moves = movesAtPly[0];
+        moves.clear();
+        board.generateMoves(rootTeam, moves);
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            board.makeMove(move);
+            boolean legal = !board.isInCheck(rootTeam);
+            board.unmakeMove(move);
+            if (legal) {
+                return move;
+            }
+        }
+        return PackedMove.NONE;
+    }
+
+    private static ChessGame.TeamColor other(ChessGame.TeamColor team) {
+        return (team == ChessGame.TeamColor.WHITE) ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+    }
+}
@@ -0,0 +1,43 @@
+package chess.engine;
+
+/**
+ * How long a search is allowed to go. Whichever limit is hit first stops it, and the
+ * best move from the deepest finished iteration gets played.
+ *
+ * @param maxDepth      how many moves ahead to look at most
+ * @param maxTimeMillis how long to think, in milliseconds
+ * @param maxNodes      how many positions to look at, at most
+ */
+public record SearchLimits(int maxDepth, long maxTimeMillis, long maxNodes) {
+
+    // deeper than any search will actually get
+    public static final int MAX_DEPTH = 64;
+
+    public SearchLimits {
+        if (maxDepth < 1 || maxTimeMillis < 1 || maxNodes < 1) {
+            throw new IllegalArgumentException("Search limits have to be positive");
+        }
+        maxDepth = Math.min(maxDepth, MAX_DEPTH);
+    }
+
+    /**
+     * @return limits that only stop after thinking for this long
+     */
+    public static SearchLimits ofTime(long maxTimeMillis) {
+        return new SearchLimits(MAX_DEPTH, maxTimeMillis, Long.MAX_VALUE);
+    }
+
+    /**
+     * @return limits that only stop after looking this many moves ahead
+     */
+    public static SearchLimits ofDepth(int maxDepth) {
+        return new SearchLimits(maxDepth, Long.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * @return limits that only stop after looking at this many positions
+     */
+    public static SearchLimits ofNodes(long maxNodes) {
+        return new SearchLimits(MAX_DEPTH, Long.MAX_VALUE, maxNodes);
+    }
+}
@@ -0,0 +1,30 @@
+package chess.engine;
+
+import chess.ChessMove;
+
+/**
+ * What a search came up with.
+ *
+ * @param bestMove      the move to play, or null if there aren't any legal moves
+ * @param score         how good the position is for the side that moved, in centipawns
+ *                      (100 is about a pawn). Mates are scored near Search.MATE_SCORE
+ * @param depth         the deepest iteration that finished
+ * @param nodes         how many positions were looked at
+ * @param elapsedMillis how long it took
+ */
+public record SearchResult(ChessMove bestMove, int score, int depth, long nodes, long elapsedMillis) {
+
+    /**
+     * @return true if the score means one side can force checkmate
+     */
+    public boolean isMate() {
+        return Math.abs(score) >= Search.MATE_SCORE - Search.MAX_PLY;
+    }
+
+    /**
+     * @return how many positions the search looked at per second
+     */
+    public long nodesPerSecond() {
+        return nodes * 1000 / Math.max(elapsedMillis, 1);
+    }
+}
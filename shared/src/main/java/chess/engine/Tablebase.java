@@ -0,0 +1,287 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Exact results for endgames with just a king and one other piece against a lone king: who
+ * wins (or that it's a draw) and in how many plies the mate comes with best play on both
+ * sides. With this, the search doesn't have to think about those positions.
+ * <p>
+ * The tables cover king and queen, king and rook, and king and pawn against a king, worked
+ * out ahead of time by TablebaseGenerator. King and bishop or knight against a king, and
+ * two bare kings, can't be won, so those are just draws. Each table has a byte for every
+ * arrangement of the three pieces with either side to move, about 512 KB each, and they're
+ * saved in one file that gets memory-mapped, so probing is a single read and none of it is
+ * on the heap. Probing only reads the mapping, so everyone can share one Tablebase.
+ * <p>
+ * Like TranspositionTable, probe hands back a packed int, read with isWin, isLoss, isDraw,
+ * and pliesToMate, so the search can use it without making objects.
+ */
+public class Tablebase {
+
+    // probe's answer for positions this doesn't cover
+    public static final int NOT_FOUND = -1;
+    // the most pieces (kings included) a covered position can have
+    public static final int MAX_PIECES = 3;
+
+    // the packed result: plies to mate in bits 0-7, and whether the side to move wins or loses in bits 8-9
+    private static final int WIN = 1 << 8;
+    private static final int LOSS = 2 << 8;
+    private static final int DRAW_RESULT = 0;
+
+    // the tables, in the order they're in the file
+    private static final ChessPiece.PieceType[] TABLE_PIECES = {
+            ChessPiece.PieceType.QUEEN, ChessPiece.PieceType.ROOK, ChessPiece.PieceType.PAWN};
+    static final int TABLE_SIZE = 2 * 64 * 64 * 64;
+    static final int STRONG_TO_MOVE = 0;
+    static final int WEAK_TO_MOVE = 1;
+    // what's in each table's bytes, besides plies to mate + 1 for decided positions
+    static final byte DRAW = 0;
+    static final byte ILLEGAL = (byte) 0xFF;
+
+    // "CHESSTB" and a version number, then the table size, then the tables
+    private static final long MAGIC = 0x4348455353544201L;
+    private static final int HEADER_BYTES = 16;
+    private static final String DEFAULT_FILE_NAME = "chess-tablebase-v1.bin";
+
+    /**
+     * The system property that says where getDefault keeps its file, or "none" to not have one
+     */
+    public static final String PATH_PROPERTY = "chess.tablebase.path";
+
+    private static volatile Tablebase defaultTablebase;
+
+    private final MappedByteBuffer data;
+
+    private Tablebase(MappedByteBuffer data) {
+        this.data = data;
+    }
+
+    /**
+     * Maps a tablebase file made by generate into memory
+     *
+     * @throws IOException if it can't be read or isn't a tablebase file
+     */
+    public static Tablebase open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long expectedSize = HEADER_BYTES + (long) TABLE_PIECES.length * TABLE_SIZE;
+            if (channel.size() != expectedSize) {
+                throw new IOException(path + " isn't a tablebase file, it's the wrong size");
+            }
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, expectedSize);
+            if (data.getLong(0) != MAGIC || data.getInt(8) != TABLE_SIZE) {
+                throw new IOException(path + " isn't a tablebase file, or is from a different version");
+            }
+            return new Tablebase(data);
+        }
+    }
+
+    /**
+     * Works out every table, which takes a few seconds, saves them to a file, and opens it
+     */
+    public static Tablebase generate(Path path) throws IOException {
+        byte[] queenTable = TablebaseGenerator.generate(ChessPiece.PieceType.QUEEN, null, null);
+        byte[] rookTable = TablebaseGenerator.generate(ChessPiece.PieceType.ROOK, null, null);
+        byte[] pawnTable = TablebaseGenerator.generate(ChessPiece.PieceType.PAWN, queenTable, rookTable);
+
+        // write it to a file of its own next to where it's going and move it over in one step, so nobody can
+        // open a half written file, and two programs making it at the same time can't write into each other's
+        Path absolutePath = path.toAbsolutePath();
+        Files.createDirectories(absolutePath.getParent());
+        Path partial = Files.createTempFile(absolutePath.getParent(), absolutePath.getFileName() + ".", ".partial");
+        try {
+            try (OutputStream file = Files.newOutputStream(partial);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+                out.writeLong(MAGIC);
+                out.writeInt(TABLE_SIZE);
+                out.writeInt(0);
+                out.write(queenTable);
+                out.write(rookTable);
+                out.write(pawnTable);
+            }
+            try {
+                Files.move(partial, absolutePath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(partial, absolutePath, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(partial);
+        }
+        return open(absolutePath);
+    }
+
+    /**
+     * Opens the file if it's there and good, otherwise generates it there first
+     */
+    public static Tablebase load(Path path) throws IOException {
+        if (Files.exists(path)) {
+            try {
+                return open(path);
+            } catch (IOException e) {
+                // probably from an older version, so just make it again
+            }
+        }
+        return generate(path);
+    }
+
+    /**
+     * @return where getDefault keeps its file: the chess.tablebase.path system property if it's set,
+     * otherwise the system temp directory. Null if the property is "none"
+     */
+    public static Path getDefaultPath() {
+        String configured = System.getProperty(PATH_PROPERTY);
+        if (configured == null || configured.isBlank()) {
+            return Path.of(System.getProperty("java.io.tmpdir"), DEFAULT_FILE_NAME);
+        }
+        return configured.trim().equalsIgnoreCase("none") ? null : Path.of(configured.trim());
+    }
+
+    /**
+     * @return the tablebase at getDefaultPath, made the first time anything in this JVM (or any
+     * earlier one) asks for it
+     * @throws IllegalStateException if the default tablebase is turned off
+     */
+    public static Tablebase getDefault() {
+        Tablebase tablebase = defaultTablebase;
+        if (tablebase == null) {
+            synchronized (Tablebase.class) {
+                tablebase = defaultTablebase;
+                if (tablebase == null) {
+                    Path path = getDefaultPath();
+                    if (path == null) {
+                        throw new IllegalStateException("The default tablebase is turned off with " + PATH_PROPERTY + "=none");
+                    }
+                    try {
+                        tablebase = load(path);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Couldn't load the tablebase", e);
+                    }
+                    defaultTablebase = tablebase;
+                }
+            }
+        }
+        return tablebase;
+    }
+
+    /**
+     * Looks up a position
+     *
+     * @param board      the position
+     * @param sideToMove whose turn it is
+     * @return the packed result (read it with isWin, isLoss, isDraw, and pliesToMate), or NOT_FOUND
+     * if the position has too many pieces, castling is still possible, or it isn't a legal position
+     */
+    public int probe(ChessBoard board, ChessGame.TeamColor sideToMove) {
+        long occupied = board.getOccupiedBitboard();
+        int pieceCount = Long.bitCount(occupied);
+        if (pieceCount > MAX_PIECES) {
+            return NOT_FOUND;
+        }
+        long kings = board.getBitboard(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING)
+                | board.getBitboard(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING);
+        if (Long.bitCount(kings) != 2 || (kings & occupied) != kings) {
+            return NOT_FOUND;
+        }
+        if (pieceCount == 2) {
+            return DRAW_RESULT;
+        }
+
+        int pieceSquare = Long.numberOfTrailingZeros(occupied & ~kings);
+        ChessPiece piece = board.getPiece(pieceSquare);
+        int table = tableFor(piece.getPieceType());
+        if (table == -1) {
+            // a lone bishop or knight can't mate
+            return DRAW_RESULT;
+        }
+        if (castlingPossible(board)) {
+            return NOT_FOUND;
+        }
+
+        // the tables have the stronger side as white, so flip black's positions upside down
+        ChessGame.TeamColor strong = piece.getTeamColor();
+        ChessGame.TeamColor weak = (strong == ChessGame.TeamColor.WHITE) ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        int flip = (strong == ChessGame.TeamColor.WHITE) ? 0 : 56;
+        int strongKing = Long.numberOfTrailingZeros(board.getBitboard(strong, ChessPiece.PieceType.KING)) ^ flip;
+        int weakKing = Long.numberOfTrailingZeros(board.getBitboard(weak, ChessPiece.PieceType.KING)) ^ flip;
+        int toMove = (sideToMove == strong) ? STRONG_TO_MOVE : WEAK_TO_MOVE;
+
+        byte value = data.get(HEADER_BYTES + table * TABLE_SIZE + index(toMove, strongKing, weakKing, pieceSquare ^ flip));
+        if (value == ILLEGAL) {
+            return NOT_FOUND;
+        }
+        if (value == DRAW) {
+            return DRAW_RESULT;
+        }
+        int plies = (value & 0xFF) - 1;
+        return ((toMove == STRONG_TO_MOVE) ? WIN : LOSS) | plies;
+    }
+
+    /**
+     * @return true if the side to move wins
+     */
+    public static boolean isWin(int result) {
+        return result != NOT_FOUND && (result & WIN) != 0;
+    }
+
+    /**
+     * @return true if the side to move gets mated
+     */
+    public static boolean isLoss(int result) {
+        return result != NOT_FOUND && (result & LOSS) != 0;
+    }
+
+    public static boolean isDraw(int result) {
+        return result == DRAW_RESULT;
+    }
+
+    /**
+     * @return how many plies until mate with best play, counting both sides' moves, or 0 for a draw
+     * (and for a position that's already checkmate)
+     */
+    public static int pliesToMate(int result) {
+        return result & 0xFF;
+    }
+
+    // [side to move][stronger king][lone king][other piece], all as white
+    static int index(int toMove, int strongKing, int weakKing, int piece) {
+        return (toMove << 18) | (strongKing << 12) | (weakKing << 6) | piece;
+    }
+
+    private static int tableFor(ChessPiece.PieceType type) {
+        for (int i = 0; i < TABLE_PIECES.length; i++) {
+            if (TABLE_PIECES[i] == type) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // the tables don't know about castling, so a king and rook that still could castle aren't covered
+    private static boolean castlingPossible(ChessBoard board) {
+        int rights = board.getCastlingRights();
+        return (rights & (ChessBoard.WHITE_KINGSIDE | ChessBoard.WHITE_QUEENSIDE)) != 0 && canCastle(board, ChessGame.TeamColor.WHITE, 1)
+                || (rights & (ChessBoard.BLACK_KINGSIDE | ChessBoard.BLACK_QUEENSIDE)) != 0 && canCastle(board, ChessGame.TeamColor.BLACK, 8);
+    }
+
+    private static boolean canCastle(ChessBoard board, ChessGame.TeamColor team, int row) {
+        long king = board.getBitboard(team, ChessPiece.PieceType.KING);
+        long rooks = board.getBitboard(team, ChessPiece.PieceType.ROOK);
+        long corners = (1L << ChessBoard.squareIndex(row, 1)) | (1L << ChessBoard.squareIndex(row, 8));
+        return king == (1L << ChessBoard.squareIndex(row, 5)) && (rooks & corners) != 0;
+    }
+}
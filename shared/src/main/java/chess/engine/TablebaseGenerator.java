@@ -0,0 +1,203 @@
+package chess.engine;
+
+import chess.Attacks;
+import chess.ChessGame;
+import chess.ChessPiece;
+
+/**
+ * Works out the tables in a Tablebase by retrograde analysis: start from every checkmate, then
+ * go backwards one ply at a time. A position where the stronger side is to move is won in n
+ * plies if it has a move to a position lost in n - 1, and a position where the lone king is to
+ * move is lost in n if every move it has goes to a position already won. Whatever never gets
+ * marked once that stops changing is a draw.
+ * <p>
+ * It works straight on square numbers instead of a ChessBoard, since every table has the same
+ * shape: the stronger side (always white here; Tablebase flips black ones over) has its king and
+ * one other piece, and the other side just has a king.
+ */
+final class TablebaseGenerator {
+
+    private TablebaseGenerator() {
+    }
+
+    /**
+     * @param type       the stronger side's extra piece
+     * @param queenTable the finished queen table, for pawns that promote (ignored otherwise)
+     * @param rookTable  the finished rook table, for pawns that promote (ignored otherwise)
+     * @return one byte per Tablebase.index: DRAW, ILLEGAL, or plies to mate + 1
+     */
+    static byte[] generate(ChessPiece.PieceType type, byte[] queenTable, byte[] rookTable) {
+        byte[] table = new byte[Tablebase.TABLE_SIZE];
+        markIllegalPositions(table, type);
+
+        // pawns can promote into a position that's only mate a long way down, so keep going at least
+        // until those could have been reached, even if nothing changes for a few plies before that
+        int minimumPlies = 2;
+        if (type == ChessPiece.PieceType.PAWN) {
+            minimumPlies = Math.max(highestPlies(queenTable), highestPlies(rookTable)) + 3;
+        }
+
+        int quietPlies = 0;
+        for (int plies = 0; quietPlies < 2 || plies <= minimumPlies; plies++) {
+            boolean changed = (plies % 2 == 0)
+                    ? markLosses(table, type, plies)
+                    : markWins(table, type, plies, queenTable, rookTable);
+            quietPlies = changed ? 0 : quietPlies + 1;
+        }
+        return table;
+    }
+
+    private static void markIllegalPositions(byte[] table, ChessPiece.PieceType type) {
+        for (int index = 0; index < Tablebase.TABLE_SIZE; index++) {
+            int strongToMove = index >>> 18;
+            int strongKing = (index >>> 12) & 63;
+            int weakKing = (index >>> 6) & 63;
+            int piece = index & 63;
+            boolean legal = strongKing != weakKing && strongKing != piece && weakKing != piece
+                    && (Attacks.king(strongKing) & (1L << weakKing)) == 0
+                    && !(type == ChessPiece.PieceType.PAWN && (piece < 8 || piece >= 56))
+                    // with the stronger side to move, the lone king can't be sitting in check
+                    && !(strongToMove == Tablebase.STRONG_TO_MOVE
+                    && (pieceAttacks(type, piece, bit(strongKing) | bit(piece)) & bit(weakKing)) != 0);
+            table[index] = legal ? Tablebase.DRAW : Tablebase.ILLEGAL;
+        }
+    }
+
+    // lone king to move: lost in plies if it's checkmated (plies 0) or everything it can do is already lost
+    private static boolean markLosses(byte[] table, ChessPiece.PieceType type, int plies) {
+        boolean changed = false;
+        int base = Tablebase.WEAK_TO_MOVE << 18;
+        for (int position = 0; position < 64 * 64 * 64; position++) {
+            int index = base | position;
+            if (table[index] != Tablebase.DRAW) {
+                continue;
+            }
+            int strongKing = position >>> 12;
+            int weakKing = (position >>> 6) & 63;
+            int piece = position & 63;
+
+            // see through the lone king, so it can't step back along a line it's being checked on
+            long attacked = Attacks.king(strongKing) | pieceAttacks(type, piece, bit(strongKing) | bit(piece));
+            long escapes = Attacks.king(weakKing) & ~attacked;
+            if (escapes == 0) {
+                // checkmate, or stalemate which stays a draw
+                if (plies == 0 && (attacked & bit(weakKing)) != 0) {
+                    table[index] = resolved(0);
+                    changed = true;
+                }
+                continue;
+            }
+            if (plies == 0 || (escapes & bit(piece)) != 0) {
+                // taking the piece is always a draw
+                continue;
+            }
+
+            boolean allLost = true;
+            while (escapes != 0) {
+                int to = Long.numberOfTrailingZeros(escapes);
+                escapes &= escapes - 1;
+                if (table[Tablebase.index(Tablebase.STRONG_TO_MOVE, strongKing, to, piece)] == Tablebase.DRAW) {
+                    allLost = false;
+                    break;
+                }
+            }
+            if (allLost) {
+                table[index] = resolved(plies);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    // stronger side to move: won in plies if some move gets to a position lost in plies - 1
+    private static boolean markWins(byte[] table, ChessPiece.PieceType type, int plies, byte[] queenTable, byte[] rookTable) {
+        boolean changed = false;
+        byte target = resolved(plies - 1);
+        int base = Tablebase.STRONG_TO_MOVE << 18;
+        for (int position = 0; position < 64 * 64 * 64; position++) {
+            int index = base | position;
+            if (table[index] != Tablebase.DRAW) {
+                continue;
+            }
+            int strongKing = position >>> 12;
+            int weakKing = (position >>> 6) & 63;
+            int piece = position & 63;
+            if (hasWinningMove(table, type, strongKing, weakKing, piece, target, queenTable, rookTable)) {
+                table[index] = resolved(plies);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private static boolean hasWinningMove(byte[] table, ChessPiece.PieceType type, int strongKing, int weakKing, int piece,
+                                          byte target, byte[] queenTable, byte[] rookTable) {
+        // king moves, staying away from the other king
+        long kingMoves = Attacks.king(strongKing) & ~Attacks.king(weakKing) & ~bit(piece);
+        while (kingMoves != 0) {
+            int to = Long.numberOfTrailingZeros(kingMoves);
+            kingMoves &= kingMoves - 1;
+            if (table[Tablebase.index(Tablebase.WEAK_TO_MOVE, to, weakKing, piece)] == target) {
+                return true;
+            }
+        }
+
+        if (type != ChessPiece.PieceType.PAWN) {
+            long pieceMoves = pieceAttacks(type, piece, bit(strongKing) | bit(weakKing)) & ~bit(strongKing) & ~bit(weakKing);
+            while (pieceMoves != 0) {
+                int to = Long.numberOfTrailingZeros(pieceMoves);
+                pieceMoves &= pieceMoves - 1;
+                if (table[Tablebase.index(Tablebase.WEAK_TO_MOVE, strongKing, weakKing, to)] == target) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // the pawn can only push, since there's nothing to take but the king
+        long occupied = bit(strongKing) | bit(weakKing);
+        int push = piece + 8;
+        if ((occupied & bit(push)) != 0) {
+            return false;
+        }
+        if (push >= 56) {
+            int promotedIndex = Tablebase.index(Tablebase.WEAK_TO_MOVE, strongKing, weakKing, push);
+            return queenTable[promotedIndex] == target || rookTable[promotedIndex] == target;
+        }
+        if (table[Tablebase.index(Tablebase.WEAK_TO_MOVE, strongKing, weakKing, push)] == target) {
+            return true;
+        }
+        int doublePush = piece + 16;
+        return piece < 16 && (occupied & bit(doublePush)) == 0
+                && table[Tablebase.index(Tablebase.WEAK_TO_MOVE, strongKing, weakKing, doublePush)] == target;
+    }
+
+    private static long pieceAttacks(ChessPiece.PieceType type, int square, long occupied) {
+        return switch (type) {
+            case QUEEN -> Attacks.queen(square, occupied);
+            case ROOK -> Attacks.rook(square, occupied);
+            case BISHOP -> Attacks.bishop(square, occupied);
+            case KNIGHT -> Attacks.knight(square);
+            case PAWN -> Attacks.pawn(ChessGame.TeamColor.WHITE, square);
+            case KING -> Attacks.king(square);
+        };
+    }
+
+    private static int highestPlies(byte[] table) {
+        int highest = 0;
+        for (byte value : table) {
+            if (value != Tablebase.DRAW && value != Tablebase.ILLEGAL) {
+                highest = Math.max(highest, (value & 0xFF) - 1);
+            }
+        }
+        return highest;
+    }
+
+    private static byte resolved(int plies) {
+        return (byte) (plies + 1);
+    }
+
+    private static long bit(int square) {
+        return 1L << square;
+    }
+}
@@ -0,0 +1,177 @@
+package chess.engine;
+
+import java.util.Arrays;
+
+/**
+ * Remembers what the search found out about positions it's already been to, keyed by
+ * Zobrist key, so reaching the same position through a different move order can reuse
+ * the result instead of searching it again.
+ * <p>
+ * It's a fixed size flat long[] with no locks, so any number of search threads and bot
+ * games can share one. Each entry is two longs: the data (best move, score, depth, bound,
+ * and age packed together) and the key XORed with the data. A probe only counts as a hit
+ * if XORing those back gives the key it was looking for, so if two threads write the same
+ * entry at once and the two longs end up from different writes, it just looks like a miss
+ * instead of handing back someone else's data.
+ * <p>
+ * Entries come in buckets of two. The first slot keeps whichever entry is deepest, unless
+ * it's from an older search, and the second slot always takes whatever didn't go in the
+ * first, so recent results always have somewhere to go.
+ */
+public class TranspositionTable {
+
+    // the score is exact, at least this much (the search failed high), or at most this much (it failed low).
+    // None of them are 0, so a real entry never has all zero data
+    public static final int EXACT = 1;
+    public static final int LOWER_BOUND = 2;
+    public static final int UPPER_BOUND = 3;
+
+    // data layout: move in bits 0-19, score (signed) in 20-39, depth in 40-47, bound in 48-49, age in 50-57
+    private static final int MOVE_BITS = 20;
+    private static final int SCORE_SHIFT = 20;
+    private static final int SCORE_BITS = 20;
+    private static final int DEPTH_SHIFT = 40;
+    private static final int BOUND_SHIFT = 48;
+    private static final int AGE_SHIFT = 50;
+
+    // 2 longs per entry and 2 entries per bucket
+    private static final int LONGS_PER_BUCKET = 4;
+    private static final int BYTES_PER_BUCKET = LONGS_PER_BUCKET * Long.BYTES;
+
+    private final long[] table;
+    private final long bucketMask;
+    // bumped for each new search so old entries can be told apart from new ones. Races on it don't matter,
+    // it only has to be roughly right
+    private volatile int age = 0;
+
+    /**
+     * @param sizeMb roughly how much memory to use; it gets rounded down to a power of two number of buckets
+     */
+    public TranspositionTable(int sizeMb) {
+        if (sizeMb < 1) {
+            throw new IllegalArgumentException("Transposition table needs at least 1 MB");
+        }
+        long buckets = Long.highestOneBit(sizeMb * 1024L * 1024L / BYTES_PER_BUCKET);
+        if (buckets * LONGS_PER_BUCKET > Integer.MAX_VALUE - 8) {
+            buckets = Long.highestOneBit((Integer.MAX_VALUE - 8) / LONGS_PER_BUCKET);
+        }
+        this.table = new long[(int) (buckets * LONGS_PER_BUCKET)];
+        this.bucketMask = buckets - 1;
+    }
+
+    /**
+     * Marks the start of a new search, so entries from before count as old
+     */
+    public void newSearch() {
+        age = (age + 1) & 0xFF;
+    }
+
+    /**
+     * Empties the table
+     */
+    public void clear() {
+        Arrays.fill(table, 0L);
+    }
+
+    /**
+     * Looks up a position
+     *
+     * @param key the position's Zobrist key, including whose turn it is
+     * @return the entry's packed data (read it with move, score, depth, and bound), or 0 if there isn't one
+     */
+    public long probe(long key) {
+        int index = bucketIndex(key);
+        for (int slot = 0; slot < LONGS_PER_BUCKET; slot += 2) {
+            long data = table[index + slot + 1];
+            if ((table[index + slot] ^ data) == key && data != 0) {
+                return data;
+            }
+        }
+        return 0L;
+    }
+
+    /**
+     * Saves what the search found out about a position
+     *
+     * @param key   the position's Zobrist key, including whose turn it is
+     * @param move  the best move found as a packed move, or PackedMove.NONE
+     * @param score the score, already adjusted for mate distance
+     * @param depth how deep the search from here was
+     * @param bound EXACT, LOWER_BOUND, or UPPER_BOUND
+     */
+    public void store(long key, int move, int score, int depth, int bound) {
+        int index = bucketIndex(key);
+        int currentAge = age;
+
+        // the first slot is for deep entries, but a stale one, or the same position again, always gets replaced
+        long firstData = table[index + 1];
+        boolean samePosition = (table[index] ^ firstData) == key;
+        int slot;
+        if (firstData == 0 || samePosition || ageOf(firstData) != currentAge || depth(firstData) <= depth) {
+            slot = 0;
+        } else {
+            slot = 2;
+        }
+
+        // keep the old best move if we don't have one, since it's still the best guess for ordering
+        if (move == 0 && samePosition && slot == 0) {
+            move = move(firstData);
+        }
+
+        long data = pack(move, score, depth, bound, currentAge);
+        table[index + slot] = key ^ data;
+        table[index + slot + 1] = data;
+    }
+
+    /**
+     * @return roughly how full the table is with entries from the current search, out of 1000
+     */
+    public int hashfull() {
+        int sampleBuckets = (int) Math.min(500, bucketMask + 1);
+        int used = 0;
+        int currentAge = age;
+        for (int bucket = 0; bucket < sampleBuckets; bucket++) {
+            for (int slot = 0; slot < LONGS_PER_BUCKET; slot += 2) {
+                long data = table[bucket * LONGS_PER_BUCKET + slot + 1];
+                if (data != 0 && ageOf(data) == currentAge) {
+                    used++;
+                }
+            }
+        }
+        return used * 1000 / (sampleBuckets * 2);
+    }
+
+    public static int move(long data) {
+        return (int) (data & ((1L << MOVE_BITS) - 1));
+    }
+
+    public static int score(long data) {
+        // shift left then right to get the sign back
+        return (int) (data << (64 - SCORE_SHIFT - SCORE_BITS) >> (64 - SCORE_BITS));
+    }
+
+    public static int depth(long data) {
+        return (int) ((data >>> DEPTH_SHIFT) & 0xFF);
+    }
+
+    public static int bound(long data) {
+        return (int) ((data >>> BOUND_SHIFT) & 0x3);
+    }
+
+    private static int ageOf(long data) {
+        return (int) ((data >>> AGE_SHIFT) & 0xFF);
+    }
+
+    private static long pack(int move, int score, int depth, int bound, int age) {
+        return (move & ((1L << MOVE_BITS) - 1))
+                | ((score & ((1L << SCORE_BITS) - 1)) << SCORE_SHIFT)
+                | ((long) (depth & 0xFF) << DEPTH_SHIFT)
+                | ((long) (bound & 0x3) << BOUND_SHIFT)
+                | ((long) (age & 0xFF) << AGE_SHIFT);
+    }
+
+    private int bucketIndex(long key) {
+        // the low bits of a Zobrist key are as random as the high ones
+        return (int) (key & bucketMask) * LONGS_PER_BUCKET;
+    }
+}
@@ -0,0 +1,196 @@
+package chess.perft;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.MoveList;
+import chess.PackedMove;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Counts every legal move sequence down to a fixed depth ("perft"). The totals for
+ * well known positions are published, so if ours match, the move generator and
+ * make/unmake are right, and if they don't, divide() shows which root move is off.
+ * <p>
+ * Run it from the command line with:
+ * <pre>
+ *   java chess.perft.Perft [depth] [position name or FEN] [--divide] [--threads n]
+ * </pre>
+ */
+public class Perft {
+
+    private final ChessBoard board;
+    // one move list per ply so the recursion never makes new ones
+    private final MoveList[] movesAtPly;
+
+    public Perft(ChessBoard board, int maxDepth) {
+        this.board = board;
+        this.movesAtPly = new MoveList[Math.max(maxDepth, 1) + 1];
+        for (int ply = 0; ply < movesAtPly.length; ply++) {
+            movesAtPly[ply] = new MoveList();
+        }
+    }
+
+    /**
+     * @return how many leaf positions there are after depth moves from the board's current position
+     */
+    public long count(ChessGame.TeamColor team, int depth) {
+        return count(team, depth, 0);
+    }
+
+    private long count(ChessGame.TeamColor team, int depth, int ply) {
+        if (depth == 0) {
+            return 1;
+        }
+        MoveList moves = movesAtPly[ply];
+        moves.clear();
+        board.generateMoves(team, moves);
+
+        ChessGame.TeamColor enemy = other(team);
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            board.makeMove(move);
+            if (!board.isInCheck(team)) {
+                // at the last ply every legal move is one leaf, so there's no need to go any deeper
+                nodes += (depth == 1) ? 1 : count(enemy, depth - 1, ply + 1);
+            }
+            board.unmakeMove(move);
+        }
+        return nodes;
+    }
+
+    /**
+     * Same as count, but broken down by which move was made first. Comparing this against
+     * another engine's output is the quickest way to narrow down a generator bug.
+     *
+     * @return each legal root move (like "e2e4") and how many leaves are under it, in generation order
+     */
+    public Map<String, Long> divide(ChessGame.TeamColor team, int depth) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (int move : legalRootMoves(board, team)) {
+            board.makeMove(move);
+            counts.put(PackedMove.toString(move), count(other(team), depth - 1, 1));
+            board.unmakeMove(move);
+        }
+        return counts;
+    }
+
+    /**
+     * Counts leaves like count, but hands each root move to its own thread with its
+     * own copy of the board, since make/unmake changes the board in place.
+     *
+     * @param threads how many threads to spread the root moves across
+     */
+    public static long countParallel(ChessBoard board, ChessGame.TeamColor team, int depth, int threads) {
+        if (depth <= 1 || threads <= 1) {
+            return new Perft(new ChessBoard(board), depth).count(team, depth);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Long>> results = new ArrayList<>();
+            for (int move : legalRootMoves(board, team)) {
+                ChessBoard boardCopy = new ChessBoard(board);
+                results.add(executor.submit(() -> {
+                    boardCopy.makeMove(move);
+                    return new Perft(boardCopy, depth - 1).count(other(team), depth - 1);
+                }));
+            }
+
+            long nodes = 0;
+            for (Future<Long> result : results) {
+                nodes += result.get();
+            }
+            return nodes;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Perft was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Perft failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static List<Integer> legalRootMoves(ChessBoard board, ChessGame.TeamColor team) {
+        MoveList moves = new MoveList();
+        board.generateMoves(team, moves);
+        List<Integer> legalMoves = new ArrayList<>();
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            board.makeMove(move);
+            if (!board.isInCheck(team)) {
+                legalMoves.add(move);
+            }
+            board.unmakeMove(move);
+        }
+        return legalMoves;
+    }
+
+    private static ChessGame.TeamColor other(ChessGame.TeamColor team) {
+        return (team == ChessGame.TeamColor.WHITE) ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+    }
+
+    public static void main(String[] args) {
+        int depth = 5;
+        String positionName = "start";
+        boolean divide = false;
+        int threads = 1;
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--divide")) {
+                divide = true;
+            } else if (arg.equals("--threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (arg.matches("\\d+")) {
+                depth = Integer.parseInt(arg);
+            } else {
+                positionName = arg;
+            }
+        }
+
+        // a name from the suite, or any FEN
+        PerftPosition position = PerftPosition.named(positionName);
+        if (position == null) {
+            try {
+                position = new PerftPosition("custom", positionName, new long[0]);
+                position.toBoard();
+            } catch (IllegalArgumentException e) {
+                System.out.println("No perft position called " + positionName + ", and it isn't a FEN either: " + e.getMessage());
+                return;
+            }
+        }
+
+        ChessBoard board = position.toBoard();
+        ChessGame.TeamColor team = position.sideToMove();
+        long startTime = System.nanoTime();
+        long nodes;
+        if (divide) {
+            nodes = 0;
+            for (Map.Entry<String, Long> entry : new Perft(board, depth).divide(team, depth).entrySet()) {
+                System.out.println(entry.getKey() + ": " + entry.getValue());
+                nodes += entry.getValue();
+            }
+        } else {
+            nodes = countParallel(board, team, depth, threads);
+        }
+        long elapsedNanos = Math.max(System.nanoTime() - startTime, 1);
+
+        System.out.println("Position: " + position.name() + ", depth " + depth);
+        System.out.println("Nodes: " + nodes);
+        if (depth <= position.expectedCounts().length) {
+            long expected = position.expectedCounts()[depth - 1];
+            System.out.println("Expected: " + expected + (expected == nodes ? " (matches)" : " (MISMATCH)"));
+        }
+        System.out.printf("Time: %.3f s, %.0f nodes/sec%n", elapsedNanos / 1e9, nodes * 1e9 / elapsedNanos);
+    }
+}
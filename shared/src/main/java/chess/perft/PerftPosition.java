@@ -0,0 +1,59 @@
+package chess.perft;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+
+import java.util.List;
+
+/**
+ * A position with known perft counts, used to check the move generator against
+ * numbers everyone else's generators agree on. expectedCounts[i] is the number of
+ * leaf positions at depth i + 1.
+ */
+public record PerftPosition(String name, String fen, long[] expectedCounts) {
+
+    // the standard positions from the chess programming wiki, which between them hit castling,
+    // en passant, promotions, and discovered checks
+    public static final List<PerftPosition> SUITE = List.of(
+            new PerftPosition("start", "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                    new long[]{20, 400, 8_902, 197_281, 4_865_609}),
+            new PerftPosition("kiwipete", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                    new long[]{48, 2_039, 97_862, 4_085_603}),
+            new PerftPosition("position3", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+                    new long[]{14, 191, 2_812, 43_238, 674_624}),
+            new PerftPosition("position4", "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                    new long[]{6, 264, 9_467, 422_333}),
+            new PerftPosition("position5", "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+                    new long[]{44, 1_486, 62_379, 2_103_487}),
+            new PerftPosition("position6", "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+                    new long[]{46, 2_079, 89_890, 3_894_594})
+    );
+
+    /**
+     * Finds a position in the suite by name
+     *
+     * @return the position, or null if there isn't one called that
+     */
+    public static PerftPosition named(String name) {
+        for (PerftPosition position : SUITE) {
+            if (position.name().equalsIgnoreCase(name)) {
+                return position;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return a fresh board set up in this position
+     */
+    public ChessBoard toBoard() {
+        return ChessBoard.fromFen(fen);
+    }
+
+    /**
+     * @return whose turn it is in this position
+     */
+    public ChessGame.TeamColor sideToMove() {
+        return ChessGame.fromFen(fen).getTeamTurn();
+    }
+}
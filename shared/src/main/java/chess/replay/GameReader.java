@@ -0,0 +1,223 @@
+package chess.replay;
+
+import chess.MoveNotation;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads games out of an archive one at a time, so only the game being read is ever in
+ * memory no matter how big the file is. It handles two formats, and can tell them apart
+ * game by game:
+ * <ul>
+ *   <li>PGN: optional [Tag "value"] lines, then the moves in SAN. Move numbers, comments,
+ *   variations, annotation glyphs, and the result are skipped. A FEN tag sets where the
+ *   game starts.</li>
+ *   <li>UCI move lists: one game per line, like "e2e4 e7e5 g1f3". The line can also start
+ *   like a UCI position command, with "startpos moves" or "fen [FEN] moves".</li>
+ * </ul>
+ */
+public class GameReader implements Closeable {
+
+    private final BufferedReader input;
+    private long gamesRead = 0;
+    // a line that was read but belongs to the next game
+    private String pendingLine = null;
+
+    public GameReader(BufferedReader input) {
+        this.input = input;
+    }
+
+    /**
+     * @return the next game in the file, or null once there aren't any more
+     */
+    public GameRecord next() throws IOException {
+        String line = nextNonBlankLine();
+        if (line == null) {
+            return null;
+        }
+        if (line.startsWith("[") || !isUciLine(line)) {
+            return readPgnGame(line);
+        }
+        return readUciGame(line);
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+    private GameRecord readPgnGame(String line) throws IOException {
+        String white = null;
+        String black = null;
+        String startFen = null;
+        while (line != null && line.startsWith("[")) {
+            String tagName = tagName(line);
+            String tagValue = tagValue(line);
+            switch (tagName) {
+                case "White" -> white = tagValue;
+                case "Black" -> black = tagValue;
+                case "FEN" -> startFen = tagValue;
+                default -> {
+                }
+            }
+            line = nextNonBlankLine();
+        }
+
+        MovetextScanner scanner = new MovetextScanner();
+        while (line != null && !scanner.finished) {
+            if (line.startsWith("[") && !scanner.inComment()) {
+                // the next game's tags, with no result or blank line before them
+                pendingLine = line;
+                break;
+            }
+            if (line.isBlank() && !scanner.inComment() && !scanner.moves.isEmpty()) {
+                break;
+            }
+            scanner.scan(line);
+            line = scanner.finished ? null : input.readLine();
+        }
+
+        String name = (white != null && black != null) ? white + " vs " + black : null;
+        return new GameRecord(++gamesRead, name, startFen, scanner.moves, true);
+    }
+
+    private GameRecord readUciGame(String line) {
+        String[] tokens = line.trim().split("\\s+");
+        List<String> moves = new ArrayList<>(tokens.length);
+        String startFen = null;
+        int i = 0;
+        if (tokens[i].equals("position")) {
+            i++;
+        }
+        if (i < tokens.length && tokens[i].equals("startpos")) {
+            i++;
+        } else if (i < tokens.length && tokens[i].equals("fen")) {
+            StringBuilder fen = new StringBuilder();
+            for (i++; i < tokens.length && !tokens[i].equals("moves"); i++) {
+                fen.append(fen.isEmpty() ? "" : " ").append(tokens[i]);
+            }
+            startFen = fen.toString();
+        }
+        if (i < tokens.length && tokens[i].equals("moves")) {
+            i++;
+        }
+        for (; i < tokens.length; i++) {
+            moves.add(tokens[i]);
+        }
+        return new GameRecord(++gamesRead, null, startFen, moves, false);
+    }
+
+    private String nextNonBlankLine() throws IOException {
+        String line = pendingLine;
+        pendingLine = null;
+        if (line == null) {
+            line = input.readLine();
+        }
+        // lines starting with % are PGN's escape for anything a reader should ignore
+        while (line != null && (line.isBlank() || line.startsWith("%"))) {
+            line = input.readLine();
+        }
+        return line;
+    }
+
+    // PGN movetext doesn't start with a UCI-looking move or keyword, so the first word is enough to tell
+    private static boolean isUciLine(String line) {
+        String trimmed = line.trim();
+        int end = trimmed.indexOf(' ');
+        String firstWord = (end == -1) ? trimmed : trimmed.substring(0, end);
+        return firstWord.equals("position") || firstWord.equals("startpos") || firstWord.equals("fen")
+                || firstWord.equals("moves") || MoveNotation.looksLikeUci(firstWord);
+    }
+
+    private static String tagName(String line) {
+        int end = 1;
+        while (end < line.length() && !Character.isWhitespace(line.charAt(end)) && line.charAt(end) != ']') {
+            end++;
+        }
+        return line.substring(1, end);
+    }
+
+    private static String tagValue(String line) {
+        int start = line.indexOf('"');
+        int end = line.lastIndexOf('"');
+        return (start == -1 || end <= start) ? "" : line.substring(start + 1, end);
+    }
+
+    // pulls the moves out of PGN movetext a line at a time, keeping track of comments and variations across lines
+    private static class MovetextScanner {
+        private final List<String> moves = new ArrayList<>();
+        private final StringBuilder token = new StringBuilder();
+        private int commentDepth = 0;
+        private int variationDepth = 0;
+        private boolean finished = false;
+
+        boolean inComment() {
+            return commentDepth > 0 || variationDepth > 0;
+        }
+
+        void scan(String line) {
+            for (int i = 0; i < line.length() && !finished; i++) {
+                char c = line.charAt(i);
+                if (commentDepth > 0) {
+                    if (c == '}') {
+                        commentDepth = 0;
+                    }
+                } else if (c == '{') {
+                    endToken();
+                    commentDepth = 1;
+                } else if (c == ';') {
+                    // a comment to the end of the line
+                    break;
+                } else if (c == '(') {
+                    endToken();
+                    variationDepth++;
+                } else if (c == ')') {
+                    endToken();
+                    variationDepth = Math.max(variationDepth - 1, 0);
+                } else if (Character.isWhitespace(c)) {
+                    endToken();
+                } else {
+                    token.append(c);
+                }
+            }
+            endToken();
+        }
+
+        private void endToken() {
+            if (token.isEmpty()) {
+                return;
+            }
+            String text = token.toString();
+            token.setLength(0);
+            if (variationDepth > 0 || finished) {
+                return;
+            }
+
+            // move numbers like "12." or "12..." can be stuck to the move after them
+            int digits = 0;
+            while (digits < text.length() && Character.isDigit(text.charAt(digits))) {
+                digits++;
+            }
+            if (digits > 0 && digits < text.length() && text.charAt(digits) == '.') {
+                int dots = digits;
+                while (dots < text.length() && text.charAt(dots) == '.') {
+                    dots++;
+                }
+                text = text.substring(dots);
+            }
+
+            if (text.isEmpty() || text.startsWith("$") || text.matches("\\d+")) {
+                return;
+            }
+            if (text.equals("1-0") || text.equals("0-1") || text.equals("1/2-1/2") || text.equals("*")) {
+                finished = true;
+                return;
+            }
+            moves.add(text);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package chess.replay;
+
+import java.util.List;
+
+/**
+ * One game read out of an archive, before it's been replayed
+ *
+ * @param number   which game in the file it is, starting at 1
+ * @param name     who played, from the PGN tags, or null if there weren't any
+ * @param startFen the position the game starts from, or null for the normal starting position
+ * @param moves    the moves as they were written, in SAN for PGN games or like e2e4 for UCI ones
+ * @param san      whether the moves are in SAN
+ */
+public record GameRecord(long number, String name, String startFen, List<String> moves, boolean san) {
+}
@@ -0,0 +1,191 @@
+package chess.replay;
+
+import chess.ChessGame;
+import chess.MoveNotation;
+import chess.PackedMove;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Replays whole archives of games (see GameReader for the formats) to check that every move
+ * in them is legal, for seeding the server with games from somewhere else.
+ * <p>
+ * Moves are read with MoveNotation, which matches them against the side to move's generated
+ * moves, and made with ChessGame.makeLegalMove, so the board is never copied per move like it
+ * is when going through validMoves. Games are handed to a fork-join pool in batches, and only
+ * a couple of batches per thread are ever waiting at once, so it runs in the same memory
+ * whether the file has a hundred games or a hundred million.
+ * <p>
+ * Run it from the command line with:
+ * <pre>
+ *   java chess.replay.GameReplayer [file, or - for stdin] [--threads n] [--all]
+ * </pre>
+ * It prints every game with a problem (or every game, with --all), then the totals.
+ */
+public class GameReplayer {
+
+    // games per task; big enough that handing them out isn't the slow part
+    static final int BATCH_SIZE = 256;
+    // batches waiting or running per thread before the reader stops to let them catch up
+    private static final int BATCHES_PER_THREAD = 2;
+
+    private GameReplayer() {
+    }
+
+    /**
+     * Replays one game from its start position
+     *
+     * @return whether every move was legal, and where it ended up
+     */
+    public static ReplayResult replay(GameRecord record) {
+        ChessGame game;
+        try {
+            game = (record.startFen() == null) ? new ChessGame() : ChessGame.fromFen(record.startFen());
+        } catch (IllegalArgumentException e) {
+            return new ReplayResult(record.number(), record.name(), 0, "bad starting position: " + e.getMessage(), null);
+        }
+
+        List<String> moves = record.moves();
+        for (int ply = 0; ply < moves.size(); ply++) {
+            int move;
+            try {
+                move = record.san() ? MoveNotation.parseSan(game, moves.get(ply)) : MoveNotation.parseUci(game, moves.get(ply));
+            } catch (RuntimeException e) {
+                // a FEN can describe a board that isn't really a chess position, like one with no king
+                String error = "couldn't replay " + moveNumber(game) + moves.get(ply) + ": " + e;
+                return new ReplayResult(record.number(), record.name(), ply, error, game.toFen());
+            }
+            if (move == PackedMove.NONE) {
+                String error = "illegal move " + moveNumber(game) + moves.get(ply);
+                return new ReplayResult(record.number(), record.name(), ply, error, game.toFen());
+            }
+            game.makeLegalMove(move);
+        }
+        return new ReplayResult(record.number(), record.name(), moves.size(), null, game.toFen());
+    }
+
+    /**
+     * Replays every game the reader has, spread over a fork-join pool
+     *
+     * @param reader  where the games come from
+     * @param threads how many threads to replay on
+     * @param results gets every game's result as it finishes, from whichever thread replayed it, so it
+     *                has to be thread safe. Games don't finish in file order
+     * @return the totals
+     * @throws IOException if the reader fails
+     */
+    public static ReplaySummary replayAll(GameReader reader, int threads, Consumer<ReplayResult> results) throws IOException {
+        threads = Math.max(threads, 1);
+        int maxBatches = threads * BATCHES_PER_THREAD;
+        Semaphore batchesInFlight = new Semaphore(maxBatches);
+        LongAdder games = new LongAdder();
+        LongAdder invalidGames = new LongAdder();
+        LongAdder moves = new LongAdder();
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+        long startTime = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            List<GameRecord> batch = new ArrayList<>(BATCH_SIZE);
+            boolean moreGames = true;
+            while (moreGames && failure.get() == null) {
+                GameRecord next = reader.next();
+                moreGames = next != null;
+                if (moreGames) {
+                    batch.add(next);
+                }
+                if (batch.size() < BATCH_SIZE && (moreGames || batch.isEmpty())) {
+                    continue;
+                }
+
+                List<GameRecord> gamesToReplay = batch;
+                batch = new ArrayList<>(BATCH_SIZE);
+                batchesInFlight.acquire();
+                pool.execute(() -> {
+                    try {
+                        for (GameRecord game : gamesToReplay) {
+                            ReplayResult result = replay(game);
+                            games.increment();
+                            moves.add(result.movesPlayed());
+                            if (!result.isValid()) {
+                                invalidGames.increment();
+                            }
+                            results.accept(result);
+                        }
+                    } catch (RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        batchesInFlight.release();
+                    }
+                });
+            }
+            // once every permit is back, every batch is done
+            batchesInFlight.acquire(maxBatches);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Replay was interrupted", e);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        if (failure.get() != null) {
+            throw new RuntimeException("Replay failed", failure.get());
+        }
+        return new ReplaySummary(games.sum(), invalidGames.sum(), moves.sum(), System.nanoTime() - startTime);
+    }
+
+    // like "12. " or "12... ", for saying where in the game a move was
+    private static String moveNumber(ChessGame game) {
+        return game.getFullmoveNumber() + (game.getTeamTurn() == ChessGame.TeamColor.WHITE ? ". " : "... ");
+    }
+
+    public static void main(String[] args) throws IOException {
+        String fileName = "-";
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean printAll = false;
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (arg.equals("--all")) {
+                printAll = true;
+            } else {
+                fileName = arg;
+            }
+        }
+
+        BufferedReader input = fileName.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in))
+                : Files.newBufferedReader(Path.of(fileName));
+        boolean finalPrintAll = printAll;
+        ReplaySummary summary;
+        try (GameReader reader = new GameReader(input)) {
+            summary = replayAll(reader, threads, result -> {
+                if (finalPrintAll || !result.isValid()) {
+                    String name = (result.name() == null) ? "" : " (" + result.name() + ")";
+                    String outcome = result.isValid() ? result.movesPlayed() + " plies" : result.error();
+                    synchronized (System.out) {
+                        System.out.println("Game " + result.number() + name + ": " + outcome + ", ended at " + result.finalFen());
+                    }
+                }
+            });
+        }
+
+        System.out.println("Games: " + summary.games() + ", " + summary.invalidGames() + " with problems");
+        System.out.println("Moves: " + summary.moves());
+        System.out.printf("Time: %.3f s, %.0f games/sec, %.0f moves/sec%n",
+                summary.elapsedNanos() / 1e9, summary.gamesPerSecond(), summary.movesPerSecond());
+    }
+}
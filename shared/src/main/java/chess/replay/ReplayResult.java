@@ -0,0 +1,17 @@
+package chess.replay;
+
+/**
+ * How replaying one game went
+ *
+ * @param number      which game in the file it was
+ * @param name        who played, or null if the file didn't say
+ * @param movesPlayed how many plies were made before the end of the game or the first bad move
+ * @param error       what was wrong with the game (like an illegal move), or null if every move was legal
+ * @param finalFen    the position after the last move that was made
+ */
+public record ReplayResult(long number, String name, int movesPlayed, String error, String finalFen) {
+
+    public boolean isValid() {
+        return error == null;
+    }
+}
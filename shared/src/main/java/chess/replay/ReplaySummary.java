@@ -0,0 +1,20 @@
+package chess.replay;
+
+/**
+ * The totals from replaying a whole archive
+ *
+ * @param games        how many games were read
+ * @param invalidGames how many of them had an illegal move or something else wrong
+ * @param moves        how many plies were made across every game
+ * @param elapsedNanos how long it all took
+ */
+public record ReplaySummary(long games, long invalidGames, long moves, long elapsedNanos) {
+
+    public double gamesPerSecond() {
+        return games * 1e9 / Math.max(elapsedNanos, 1);
+    }
+
+    public double movesPerSecond() {
+        return moves * 1e9 / Math.max(elapsedNanos, 1);
+    }
+}
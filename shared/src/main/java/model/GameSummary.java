@@ -0,0 +1,9 @@
+package model;
+
+/**
+ * What the game list shows about a game, without the board. Listing these instead of
+ * GameData keeps the list small, since the whole game never gets sent or even loaded.
+ */
+public record GameSummary(int gameID, String whiteUsername, String blackUsername, String gameName, boolean gameOver) {
+
+}
@@ -0,0 +1,70 @@
+package chess;
+
+import chess.perft.PerftPosition;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FenTests {
+
+    @Test
+    @DisplayName("fen - starting position matches a reset board")
+    void testStartingPosition() {
+        ChessGame game = ChessGame.fromFen(Fen.STARTING_POSITION);
+        assertEquals(new ChessGame(), game);
+        assertEquals(Fen.STARTING_POSITION, new ChessGame().toFen());
+    }
+
+    @Test
+    @DisplayName("fen - every suite position writes back out the same")
+    void testRoundTrip() {
+        for (PerftPosition position : PerftPosition.SUITE) {
+            assertEquals(position.fen(), ChessGame.fromFen(position.fen()).toFen());
+        }
+    }
+
+    @Test
+    @DisplayName("fen - counters, castling, and en passant follow the moves")
+    void testAfterMoves() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        assertEquals("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1", game.toFen());
+
+        game.makeMove(new ChessMove(new ChessPosition(8, 7), new ChessPosition(6, 6), null));
+        game.makeMove(new ChessMove(new ChessPosition(1, 5), new ChessPosition(2, 5), null));
+        assertEquals("rnbqkb1r/pppppppp/5n2/8/4P3/8/PPPPKPPP/RNBQ1BNR b kq - 2 2", game.toFen());
+        assertEquals("rnbqkb1r/pppppppp/5n2/8/4P3/8/PPPPKPPP/RNBQ1BNR", game.getBoard().toFen());
+    }
+
+    @Test
+    @DisplayName("fen - counters are optional")
+    void testShortFen() {
+        ChessGame game = ChessGame.fromFen("8/8/8/8/8/8/k7/K7 b - -");
+        assertEquals(ChessGame.TeamColor.BLACK, game.getTeamTurn());
+        assertEquals(0, game.getHalfmoveClock());
+        assertEquals(1, game.getFullmoveNumber());
+    }
+
+    @Test
+    @DisplayName("fen - invalid strings are rejected")
+    void testInvalid() {
+        String[] invalid = {
+                null,
+                "",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP w KQkq - 0 1",
+                "rnbqkbnr/pppppppp/9/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                "rnbqkbnr/ppppppxp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                "rnbq1bnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQ - 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR x KQkq - 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkX - 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq e4 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - x 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 0",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1 extra",
+                "Pnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1"
+        };
+        for (String fen : invalid) {
+            assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen(fen), String.valueOf(fen));
+        }
+    }
+}
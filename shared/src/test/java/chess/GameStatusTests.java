@@ -0,0 +1,118 @@
+package chess;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameStatusTests {
+
+    @Test
+    @DisplayName("game status - knights going out and back three times is a threefold repetition")
+    void testThreefoldRepetition() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        assertEquals(1, game.getRepetitionCount());
+        for (int round = 2; round <= 3; round++) {
+            shuffleKnights(game);
+            assertEquals(round, game.getRepetitionCount());
+        }
+        assertEquals(ChessGame.GameStatus.THREEFOLD_REPETITION, game.getStatus());
+        assertTrue(game.isGameOver());
+    }
+
+    @Test
+    @DisplayName("game status - a pawn move means earlier positions can't repeat")
+    void testPawnMoveClearsHistory() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        shuffleKnights(game);
+        assertEquals(2, game.getRepetitionCount());
+
+        move(game, 2, 5, 3, 5);
+        move(game, 7, 5, 6, 5);
+        assertEquals(1, game.getRepetitionCount());
+        assertEquals(0, game.positionHistorySize);
+        shuffleKnights(game);
+        assertEquals(2, game.getRepetitionCount());
+        assertEquals(ChessGame.GameStatus.IN_PROGRESS, game.getStatus());
+    }
+
+    @Test
+    @DisplayName("game status - a hundred moves without a capture or pawn move is a draw")
+    void testFiftyMoveRule() throws InvalidMoveException {
+        ChessGame game = ChessGame.fromFen("4k3/8/8/8/8/8/4P3/R3K3 w - - 99 80");
+        assertEquals(ChessGame.GameStatus.IN_PROGRESS, game.getStatus());
+        move(game, 1, 1, 1, 2);
+        assertEquals(ChessGame.GameStatus.FIFTY_MOVE_RULE, game.getStatus());
+
+        // a pawn move right at the end resets it instead
+        game = ChessGame.fromFen("4k3/8/8/8/8/8/4P3/R3K3 w - - 99 80");
+        move(game, 2, 5, 3, 5);
+        assertEquals(ChessGame.GameStatus.IN_PROGRESS, game.getStatus());
+    }
+
+    @Test
+    @DisplayName("game status - insufficient material")
+    void testInsufficientMaterial() {
+        assertTrue(ChessGame.fromFen("4k3/8/8/8/8/8/8/4K3 w - -").hasInsufficientMaterial());
+        assertTrue(ChessGame.fromFen("4k3/8/8/8/8/8/8/2B1K3 w - -").hasInsufficientMaterial());
+        assertTrue(ChessGame.fromFen("4k3/8/8/8/8/8/8/1N2K3 w - -").hasInsufficientMaterial());
+        // bishops that are all on light squares
+        assertTrue(ChessGame.fromFen("2b1k3/8/8/8/8/8/8/4KB2 w - -").hasInsufficientMaterial());
+        assertEquals(ChessGame.GameStatus.INSUFFICIENT_MATERIAL, ChessGame.fromFen("4k3/8/8/8/8/8/8/4K3 w - -").getStatus());
+
+        assertFalse(ChessGame.fromFen("4k3/8/8/8/8/8/8/1NB1K3 w - -").hasInsufficientMaterial());
+        assertFalse(ChessGame.fromFen("4k3/8/8/8/8/8/8/2B1KB2 w - -").hasInsufficientMaterial());
+        assertFalse(ChessGame.fromFen("4k3/8/8/8/8/8/4P3/4K3 w - -").hasInsufficientMaterial());
+        assertFalse(ChessGame.fromFen("1n2k3/8/8/8/8/8/8/1N2K3 w - -").hasInsufficientMaterial());
+        assertFalse(new ChessGame().hasInsufficientMaterial());
+    }
+
+    @Test
+    @DisplayName("game status - checkmate and stalemate")
+    void testCheckmateAndStalemate() {
+        assertEquals(ChessGame.GameStatus.CHECKMATE, ChessGame.fromFen("R5k1/5ppp/8/8/8/8/8/6K1 b - -").getStatus());
+        assertEquals(ChessGame.GameStatus.STALEMATE, ChessGame.fromFen("k7/2Q5/1K6/8/8/8/8/8 b - -").getStatus());
+        assertEquals(ChessGame.GameStatus.IN_PROGRESS, new ChessGame().getStatus());
+        assertFalse(new ChessGame().isGameOver());
+    }
+
+    @Test
+    @DisplayName("game status - a recorded status is kept, even through JSON")
+    void testRecordedStatus() {
+        ChessGame game = ChessGame.fromFen("R5k1/5ppp/8/8/8/8/8/6K1 b - -");
+        assertFalse(game.isFinished());
+        assertEquals(ChessGame.GameStatus.CHECKMATE, game.recordStatus());
+        assertTrue(game.isFinished());
+
+        Gson gson = new GsonBuilder().registerTypeAdapter(ChessBoard.class, new ChessBoardJSONAdapter()).create();
+        assertTrue(gson.fromJson(gson.toJson(game), ChessGame.class).isFinished());
+    }
+
+    @Test
+    @DisplayName("game status - a copied game keeps its history and plays on separately")
+    void testCopy() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        shuffleKnights(game);
+        ChessGame copy = new ChessGame(game);
+        assertEquals(game, copy);
+        assertEquals(2, copy.getRepetitionCount());
+
+        shuffleKnights(copy);
+        assertEquals(ChessGame.GameStatus.THREEFOLD_REPETITION, copy.getStatus());
+        assertEquals(ChessGame.GameStatus.IN_PROGRESS, game.getStatus());
+        assertEquals(2, game.getRepetitionCount());
+    }
+
+    // knights out and back for both sides, which comes back to the same position
+    private void shuffleKnights(ChessGame game) throws InvalidMoveException {
+        move(game, 1, 7, 3, 6);
+        move(game, 8, 7, 6, 6);
+        move(game, 3, 6, 1, 7);
+        move(game, 6, 6, 8, 7);
+    }
+
+    private void move(ChessGame game, int fromRow, int fromColumn, int toRow, int toColumn) throws InvalidMoveException {
+        game.makeMove(new ChessMove(new ChessPosition(fromRow, fromColumn), new ChessPosition(toRow, toColumn), null));
+    }
+}
@@ -0,0 +1,137 @@
+package chess;
+
+import org.junit.jupiter.api.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MakeUnmakeTests {
+
+    // castling both ways, en passant, promotions with and without a capture, and checks
+    private static final String[] FENS = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/Pp2P3/2N2Q1p/1PPBBPPP/R3K2R b KQkq a3 0 1",
+            "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3",
+            "1r2k3/P6P/8/8/8/8/p6p/1R2K3 w - - 0 1",
+            "1r2k3/P6P/8/8/8/8/p6p/1R2K3 b - - 0 1",
+    };
+
+    @Test
+    @DisplayName("make/unmake - taking back a packed move puts everything back")
+    void testPackedRoundTrip() {
+        for (String fen : FENS) {
+            ChessGame game = ChessGame.fromFen(fen);
+            ChessBoard board = game.getBoard();
+            MoveList moves = new MoveList();
+            board.generateMoves(game.getTeamTurn(), moves);
+            assertFalse(moves.isEmpty(), fen);
+
+            for (int i = 0; i < moves.size(); i++) {
+                int move = moves.get(i);
+                ChessBoard before = new ChessBoard(board);
+                long keyBefore = board.getZobristKey();
+
+                board.makeMove(move);
+                assertNotEquals(keyBefore, board.getZobristKey(), PackedMove.toString(move));
+                board.unmakeMove(move);
+
+                String what = fen + " " + PackedMove.toString(move);
+                assertEquals(before, board, what);
+                assertEquals(keyBefore, board.getZobristKey(), what);
+                assertEquals(before.toFen(), board.toFen(), what);
+                assertEquals(0, board.getUndoDepth(), what);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("make/unmake - taking back a ChessMove puts the pieces map back too")
+    void testChessMoveRoundTrip() {
+        for (String fen : FENS) {
+            ChessGame game = ChessGame.fromFen(fen);
+            ChessBoard board = game.getBoard();
+            MoveList moves = new MoveList();
+            board.generateMoves(game.getTeamTurn(), moves);
+
+            for (int i = 0; i < moves.size(); i++) {
+                Map<ChessPosition, ChessPiece> piecesBefore = occupiedSquares(board);
+                String fenBefore = board.toFen();
+
+                MoveUndo undo = board.makeMove(PackedMove.toChessMove(moves.get(i)));
+                board.unmakeMove(undo);
+
+                String what = fen + " " + PackedMove.toString(moves.get(i));
+                assertEquals(piecesBefore, occupiedSquares(board), what);
+                assertEquals(fenBefore, board.toFen(), what);
+                assertEquals(0, board.getUndoDepth(), what);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("make/unmake - a ChessMove is taken back from its record, even with packed moves made since")
+    void testChessMoveUndoRecord() {
+        ChessGame game = ChessGame.fromFen(FENS[1]);
+        ChessBoard board = game.getBoard();
+        String fenBefore = board.toFen();
+
+        // castling, then a packed move and its take back on top
+        MoveUndo undo = board.makeMove(PackedMove.toChessMove(MoveNotation.parseUci(game, "e1g1")));
+        assertEquals(0, board.getUndoDepth());
+        MoveList replies = new MoveList();
+        board.generateMoves(ChessGame.TeamColor.BLACK, replies);
+        int reply = PackedMove.NONE;
+        for (int i = 0; i < replies.size(); i++) {
+            if (PackedMove.hasFlag(replies.get(i), PackedMove.CASTLE) && PackedMove.to(replies.get(i)) == 58) {
+                reply = replies.get(i);
+            }
+        }
+        assertNotEquals(PackedMove.NONE, reply);
+        board.makeMove(reply);
+        board.unmakeMove(reply);
+        board.unmakeMove(undo);
+        assertEquals(fenBefore, board.toFen());
+    }
+
+    @Test
+    @DisplayName("make/unmake - taking back a packed move that was never made throws")
+    void testUnmakeWithNothingMade() {
+        ChessGame game = new ChessGame();
+        MoveUndo undo = game.getBoard().makeMove(PackedMove.toChessMove(MoveNotation.parseUci(game, "e2e4")));
+        assertThrows(IllegalStateException.class, () -> game.getBoard().unmakeMove(undo.packedMove()));
+    }
+
+    @Test
+    @DisplayName("make/unmake - moves a game keeps don't leave anything on the undo stack")
+    void testCommittedMovesDontPileUp() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        String[] moves = {"g1f3", "g8f6", "f3g1", "f6g8"};
+        for (int round = 0; round < 40; round++) {
+            for (String uci : moves) {
+                game.makeMove(PackedMove.toChessMove(MoveNotation.parseUci(game, uci)));
+                // asking questions tries moves out, but takes them all back
+                game.getStatus();
+                game.isInCheck(ChessGame.TeamColor.WHITE);
+                assertEquals(0, game.getBoard().getUndoDepth());
+            }
+        }
+
+        game.makeLegalMove(MoveNotation.parseUci(game, "e2e4"));
+        assertEquals(0, game.getBoard().getUndoDepth());
+        assertEquals("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 81", game.toFen());
+    }
+
+    // the map can have empty squares in it as null, which don't count
+    private static Map<ChessPosition, ChessPiece> occupiedSquares(ChessBoard board) {
+        Map<ChessPosition, ChessPiece> occupied = new HashMap<>();
+        for (Map.Entry<ChessPosition, ChessPiece> entry : board.pieces.entrySet()) {
+            if (entry.getValue() != null) {
+                occupied.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return occupied;
+    }
+}
@@ -0,0 +1,56 @@
+package chess;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MoveCacheTests {
+
+    @Test
+    @DisplayName("move cache - changing the board directly is picked up")
+    void testAddPieceInvalidates() {
+        ChessGame game = ChessGame.fromFen("4k3/8/8/8/8/8/8/4K3 w - - 0 1");
+        ChessPosition whiteKing = new ChessPosition(1, 5);
+        assertEquals(5, game.validMoves(whiteKing).size());
+        assertFalse(game.isInCheck(ChessGame.TeamColor.WHITE));
+
+        // a rook on the king's column puts it in check and takes away e2
+        game.getBoard().addPiece(new ChessPosition(8, 5), null);
+        game.getBoard().addPiece(new ChessPosition(8, 1), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        game.getBoard().addPiece(new ChessPosition(5, 5), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
+        assertTrue(game.isInCheck(ChessGame.TeamColor.WHITE));
+        assertEquals(4, game.validMoves(whiteKing).size());
+    }
+
+    @Test
+    @DisplayName("move cache - setBoard and makeMove are picked up")
+    void testSetBoardAndMakeMove() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        assertEquals(2, game.validMoves(new ChessPosition(2, 5)).size());
+
+        game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        assertEquals(1, game.validMoves(new ChessPosition(4, 5)).size());
+        assertNull(game.validMoves(new ChessPosition(2, 5)));
+
+        game.setBoard(ChessBoard.fromFen("4k3/8/8/8/8/8/8/R3K3 w Q - 0 1"));
+        game.setTeamTurn(ChessGame.TeamColor.WHITE);
+        // five king steps plus castling queenside
+        assertEquals(6, game.validMoves(new ChessPosition(1, 5)).size());
+    }
+
+    @Test
+    @DisplayName("move cache - checkmate queries agree with each other")
+    void testStatusQueries() {
+        // fool's mate
+        ChessGame game = ChessGame.fromFen("rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3");
+        assertTrue(game.isInCheck(ChessGame.TeamColor.WHITE));
+        assertTrue(game.isInCheckmate(ChessGame.TeamColor.WHITE));
+        assertFalse(game.isInStalemate(ChessGame.TeamColor.WHITE));
+        assertFalse(game.isInCheck(ChessGame.TeamColor.BLACK));
+        assertFalse(game.isInCheckmate(ChessGame.TeamColor.BLACK));
+
+        MoveList moves = new MoveList();
+        game.legalMoves(ChessGame.TeamColor.WHITE, moves);
+        assertTrue(moves.isEmpty());
+    }
+}
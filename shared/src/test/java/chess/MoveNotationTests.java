@@ -0,0 +1,129 @@
+package chess;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MoveNotationTests {
+
+    @Test
+    @DisplayName("move notation - UCI goes both ways")
+    void testUci() {
+        ChessGame game = new ChessGame();
+        int move = MoveNotation.parseUci(game, "e2e4");
+        assertEquals("e2e4", MoveNotation.toUci(move));
+        assertTrue(PackedMove.hasFlag(move, PackedMove.DOUBLE_PUSH));
+        assertEquals(PackedMove.NONE, MoveNotation.parseUci(game, "e2e5"));
+        assertEquals(PackedMove.NONE, MoveNotation.parseUci(game, "e7e5"));
+        assertEquals(PackedMove.NONE, MoveNotation.parseUci(game, "nonsense"));
+
+        ChessGame promotion = ChessGame.fromFen("4k3/P7/8/8/8/8/8/4K3 w - -");
+        int toKnight = MoveNotation.parseUci(promotion, "a7a8n");
+        assertEquals(ChessPiece.PieceType.KNIGHT, PackedMove.promotion(toKnight));
+        assertEquals("a7a8n", MoveNotation.toUci(toKnight));
+        assertEquals(PackedMove.NONE, MoveNotation.parseUci(promotion, "a7a8"));
+        assertEquals("a7a8q", MoveNotation.toUci(new ChessMove(new ChessPosition(7, 1), new ChessPosition(8, 1), ChessPiece.PieceType.QUEEN)));
+    }
+
+    @Test
+    @DisplayName("move notation - reads SAN however it's written")
+    void testParseSan() {
+        ChessGame game = new ChessGame();
+        assertEquals(MoveNotation.parseUci(game, "g1f3"), MoveNotation.parseSan(game, "Nf3"));
+        assertEquals(MoveNotation.parseUci(game, "e2e4"), MoveNotation.parseSan(game, "e4!?"));
+        assertEquals(PackedMove.NONE, MoveNotation.parseSan(game, "Nd2"));
+        assertEquals(PackedMove.NONE, MoveNotation.parseSan(game, "Ke2"));
+        assertEquals(PackedMove.NONE, MoveNotation.parseSan(game, "Zf3"));
+
+        ChessGame castling = ChessGame.fromFen("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1");
+        assertEquals(MoveNotation.parseUci(castling, "e1g1"), MoveNotation.parseSan(castling, "O-O"));
+        assertEquals(MoveNotation.parseUci(castling, "e1c1"), MoveNotation.parseSan(castling, "0-0-0"));
+
+        ChessGame promotion = ChessGame.fromFen("1r2k3/P7/8/8/8/8/8/4K3 w - -");
+        assertEquals(MoveNotation.parseUci(promotion, "a7b8q"), MoveNotation.parseSan(promotion, "axb8=Q+"));
+        assertEquals(MoveNotation.parseUci(promotion, "a7a8r"), MoveNotation.parseSan(promotion, "a8R"));
+        assertEquals(PackedMove.NONE, MoveNotation.parseSan(promotion, "a8=K"));
+
+        // two rooks that can both get to e1, told apart by file, and two knights told apart by row
+        ChessGame rooks = ChessGame.fromFen("3k4/8/8/8/8/8/7K/R6R w - - 0 1");
+        assertEquals(PackedMove.NONE, MoveNotation.parseSan(rooks, "Re1"));
+        assertEquals(MoveNotation.parseUci(rooks, "h1e1"), MoveNotation.parseSan(rooks, "Rhe1"));
+        ChessGame knights = ChessGame.fromFen("4k3/8/8/8/8/N7/8/N3K3 w - - 0 1");
+        assertEquals(MoveNotation.parseUci(knights, "a1b3"), MoveNotation.parseSan(knights, "N1b3"));
+    }
+
+    @Test
+    @DisplayName("move notation - writes SAN with captures, disambiguation, and check marks")
+    void testToSan() {
+        ChessGame game = new ChessGame();
+        assertEquals("Nf3", san(game, "g1f3"));
+        assertEquals("e4", san(game, "e2e4"));
+
+        ChessGame pawns = ChessGame.fromFen("4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 1");
+        assertEquals("exd6", san(pawns, "e5d6"));
+
+        ChessGame rooks = ChessGame.fromFen("3k4/8/8/8/8/8/7K/R6R w - - 0 1");
+        assertEquals("Rhe1", san(rooks, "h1e1"));
+        assertEquals("Rab1", san(rooks, "a1b1"));
+        assertEquals("Ra8+", san(rooks, "a1a8"));
+
+        ChessGame stackedRooks = ChessGame.fromFen("4k3/8/8/R7/8/8/8/R3K3 w - - 0 1");
+        assertEquals("R5a3", san(stackedRooks, "a5a3"));
+
+        // another queen on the same file and another on the same row, so it takes both
+        ChessGame queens = ChessGame.fromFen("1k6/8/8/8/4Q2Q/8/8/K6Q w - - 0 1");
+        assertEquals("Qh4e1", san(queens, "h4e1"));
+
+        ChessGame castling = ChessGame.fromFen("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1");
+        assertEquals("O-O", san(castling, "e1g1"));
+        assertEquals("O-O-O", san(castling, "e1c1"));
+
+        ChessGame mate = ChessGame.fromFen("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+        assertEquals("Ra8#", san(mate, "a1a8"));
+
+        ChessGame promotion = ChessGame.fromFen("1r2k3/P7/8/8/8/8/8/4K3 w - -");
+        assertEquals("axb8=Q+", san(promotion, "a7b8q"));
+    }
+
+    @Test
+    @DisplayName("move notation - a ChessMove that isn't legal is turned down without touching the board")
+    void testToSanIllegalMove() {
+        // the king going two squares looks like castling, but there's no rook to go with it
+        ChessGame game = ChessGame.fromFen("4k3/8/8/8/8/8/8/4K3 w - - 0 1");
+        ChessMove fakeCastle = new ChessMove(new ChessPosition(1, 5), new ChessPosition(1, 7), null);
+        assertThrows(IllegalArgumentException.class, () -> MoveNotation.toSan(game, fakeCastle));
+        assertEquals("4k3/8/8/8/8/8/8/4K3 w - - 0 1", game.toFen());
+        assertEquals(0, game.getBoard().getUndoDepth());
+
+        ChessMove kingStep = new ChessMove(new ChessPosition(1, 5), new ChessPosition(2, 5), null);
+        assertEquals("Ke2", MoveNotation.toSan(game, kingStep));
+    }
+
+    @Test
+    @DisplayName("move notation - every legal move's SAN reads back as the same move")
+    void testRoundTrip() {
+        String[] fens = {
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+        };
+        MoveList moves = new MoveList();
+        for (String fen : fens) {
+            ChessGame game = ChessGame.fromFen(fen);
+            game.legalMoves(game.getTeamTurn(), moves);
+            for (int i = 0; i < moves.size(); i++) {
+                int move = moves.get(i);
+                String san = MoveNotation.toSan(game, move);
+                assertEquals(move, MoveNotation.parseSan(game, san), fen + " " + san);
+                assertEquals(move, MoveNotation.parse(game, MoveNotation.toUci(move)), fen + " " + san);
+            }
+            assertEquals(fen, game.toFen());
+        }
+    }
+
+    private String san(ChessGame game, String uci) {
+        int move = MoveNotation.parseUci(game, uci);
+        assertNotEquals(PackedMove.NONE, move, uci);
+        return MoveNotation.toSan(game, move);
+    }
+}
@@ -0,0 +1,81 @@
+package chess;
+
+import chess.perft.PerftPosition;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ZobristTests {
+
+    @Test
+    @DisplayName("zobrist - incremental key matches a full recompute through make/unmake")
+    void testIncrementalKey() {
+        for (PerftPosition position : PerftPosition.SUITE) {
+            ChessBoard board = position.toBoard();
+            assertEquals(Zobrist.computePieceKey(board), board.getPieceKey(), position.name());
+            assertEquals(Zobrist.computePawnKey(board), board.getPawnKey(), position.name());
+            walk(board, position.sideToMove(), 3);
+            assertEquals(Zobrist.computePieceKey(board), board.getPieceKey(), position.name());
+        }
+    }
+
+    // go through every move to a depth, checking the key after each one
+    private void walk(ChessBoard board, ChessGame.TeamColor team, int depth) {
+        if (depth == 0) {
+            return;
+        }
+        MoveList moves = new MoveList();
+        board.generateMoves(team, moves);
+        ChessGame.TeamColor enemy = (team == ChessGame.TeamColor.WHITE) ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        for (int i = 0; i < moves.size(); i++) {
+            long keyBefore = board.getZobristKey();
+            board.makeMove(moves.get(i));
+            assertEquals(Zobrist.computePieceKey(board), board.getPieceKey(), PackedMove.toString(moves.get(i)));
+            assertEquals(Zobrist.computePawnKey(board), board.getPawnKey(), PackedMove.toString(moves.get(i)));
+            walk(board, enemy, depth - 1);
+            board.unmakeMove(moves.get(i));
+            assertEquals(keyBefore, board.getZobristKey());
+        }
+    }
+
+    @Test
+    @DisplayName("zobrist - transpositions get the same key")
+    void testTransposition() throws InvalidMoveException {
+        ChessGame knightsFirst = new ChessGame();
+        knightsFirst.makeMove(new ChessMove(new ChessPosition(1, 2), new ChessPosition(3, 3), null));
+        knightsFirst.makeMove(new ChessMove(new ChessPosition(8, 7), new ChessPosition(6, 6), null));
+        knightsFirst.makeMove(new ChessMove(new ChessPosition(1, 7), new ChessPosition(3, 6), null));
+
+        ChessGame otherKnightFirst = new ChessGame();
+        otherKnightFirst.makeMove(new ChessMove(new ChessPosition(1, 7), new ChessPosition(3, 6), null));
+        otherKnightFirst.makeMove(new ChessMove(new ChessPosition(8, 7), new ChessPosition(6, 6), null));
+        otherKnightFirst.makeMove(new ChessMove(new ChessPosition(1, 2), new ChessPosition(3, 3), null));
+
+        assertEquals(knightsFirst.getZobristKey(), otherKnightFirst.getZobristKey());
+        assertEquals(knightsFirst, otherKnightFirst);
+        assertEquals(knightsFirst.hashCode(), otherKnightFirst.hashCode());
+    }
+
+    @Test
+    @DisplayName("zobrist - side to move and castling rights change the game key but not board equality")
+    void testStateKeys() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        ChessGame blackToMove = new ChessGame();
+        blackToMove.setTeamTurn(ChessGame.TeamColor.BLACK);
+        assertNotEquals(game.getZobristKey(), blackToMove.getZobristKey());
+        assertNotEquals(game, blackToMove);
+
+        ChessBoard noCastling = new ChessBoard();
+        noCastling.resetBoard();
+        noCastling.setCastlingRights(0);
+        assertEquals(game.getBoard(), noCastling);
+        assertNotEquals(game.getBoard().getZobristKey(), noCastling.getZobristKey());
+
+        // a double push sets an en passant square, which shows up in the key
+        long before = game.getBoard().getZobristKey();
+        game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        assertEquals(ChessBoard.squareIndex(3, 5), game.getBoard().getEnPassantSquare());
+        assertNotEquals(before ^ Zobrist.pieceKey(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN, 12)
+                ^ Zobrist.pieceKey(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN, 28), game.getBoard().getZobristKey());
+    }
+}
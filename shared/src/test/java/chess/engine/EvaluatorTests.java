@@ -0,0 +1,116 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.MoveList;
+import chess.PackedMove;
+import chess.PieceSquareTables;
+import chess.perft.PerftPosition;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EvaluatorTests {
+
+    @Test
+    @DisplayName("evaluator - incremental piece-square scores match a full recompute through make/unmake")
+    void testIncrementalScores() {
+        for (PerftPosition position : PerftPosition.SUITE) {
+            ChessBoard board = position.toBoard();
+            assertScoresMatch(board, position.name());
+            walk(board, position.sideToMove(), 2);
+            assertScoresMatch(board, position.name());
+        }
+    }
+
+    private void walk(ChessBoard board, ChessGame.TeamColor team, int depth) {
+        if (depth == 0) {
+            return;
+        }
+        MoveList moves = new MoveList();
+        board.generateMoves(team, moves);
+        for (int i = 0; i < moves.size(); i++) {
+            board.makeMove(moves.get(i));
+            assertScoresMatch(board, PackedMove.toString(moves.get(i)));
+            walk(board, other(team), depth - 1);
+            board.unmakeMove(moves.get(i));
+        }
+    }
+
+    private void assertScoresMatch(ChessBoard board, String message) {
+        int midgame = 0;
+        int endgame = 0;
+        int phase = 0;
+        int[] phaseWeights = {0, 4, 1, 1, 2, 0};
+        for (int square = 0; square < 64; square++) {
+            ChessPiece piece = board.getPiece(square);
+            if (piece == null) {
+                continue;
+            }
+            int sign = (piece.getTeamColor() == ChessGame.TeamColor.WHITE) ? 1 : -1;
+            midgame += sign * PieceSquareTables.midgameValue(piece.getTeamColor(), piece.getPieceType(), square);
+            endgame += sign * PieceSquareTables.endgameValue(piece.getTeamColor(), piece.getPieceType(), square);
+            phase += phaseWeights[piece.getPieceType().ordinal()];
+        }
+        assertEquals(midgame, board.getMidgameScore(), message);
+        assertEquals(endgame, board.getEndgameScore(), message);
+        assertEquals(phase, board.getGamePhase(), message);
+    }
+
+    @Test
+    @DisplayName("evaluator - the same position with colors swapped scores the same for the other side")
+    void testSymmetry() {
+        for (PerftPosition position : PerftPosition.SUITE) {
+            ChessBoard board = position.toBoard();
+            ChessBoard mirrored = board(mirror(board));
+            assertEquals(Evaluator.evaluate(board, ChessGame.TeamColor.WHITE),
+                    Evaluator.evaluate(mirrored, ChessGame.TeamColor.BLACK), position.name());
+        }
+    }
+
+    @Test
+    @DisplayName("evaluator - the starting position is even")
+    void testStartingPosition() {
+        assertEquals(0, Evaluator.evaluate(new ChessGame().getBoard(), ChessGame.TeamColor.WHITE));
+    }
+
+    @Test
+    @DisplayName("evaluator - an advanced passed pawn counts for more than one at home")
+    void testPassedPawn() {
+        int advanced = Evaluator.evaluate(board("4k3/8/1P6/8/8/8/8/4K3"), ChessGame.TeamColor.WHITE);
+        int home = Evaluator.evaluate(board("4k3/8/8/8/8/8/1P6/4K3"), ChessGame.TeamColor.WHITE);
+        assertTrue(advanced > home, advanced + " vs " + home);
+    }
+
+    @Test
+    @DisplayName("evaluator - a pawn shield is better than an open king")
+    void testKingShield() {
+        int sheltered = Evaluator.evaluate(board("r2qk2r/pppppppp/8/8/8/PPPPP3/5PPP/R2Q1RK1"), ChessGame.TeamColor.WHITE);
+        int open = Evaluator.evaluate(board("r2qk2r/pppppppp/8/8/5PPP/PPPPP3/8/R2Q1RK1"), ChessGame.TeamColor.WHITE);
+        assertTrue(sheltered > open, sheltered + " vs " + open);
+    }
+
+    private ChessBoard board(String placement) {
+        return ChessBoard.fromFen(placement + " w - -");
+    }
+
+    // the placement with the rows flipped and white and black swapped
+    private String mirror(ChessBoard board) {
+        String[] rows = board.toFen().split("/");
+        StringBuilder mirrored = new StringBuilder();
+        for (int i = rows.length - 1; i >= 0; i--) {
+            for (char symbol : rows[i].toCharArray()) {
+                mirrored.append(Character.isUpperCase(symbol) ? Character.toLowerCase(symbol) : Character.toUpperCase(symbol));
+            }
+            if (i > 0) {
+                mirrored.append('/');
+            }
+        }
+        return mirrored.toString();
+    }
+
+    private ChessGame.TeamColor other(ChessGame.TeamColor team) {
+        return (team == ChessGame.TeamColor.WHITE) ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+    }
+}
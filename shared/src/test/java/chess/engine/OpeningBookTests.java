@@ -0,0 +1,158 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import chess.MoveNotation;
+import chess.PackedMove;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OpeningBookTests {
+
+    private static final ChessMove E4 = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+    private static final ChessMove D4 = new ChessMove(new ChessPosition(2, 4), new ChessPosition(4, 4), null);
+    private static final ChessMove E5 = new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("opening book - finds the moves written for a position, heaviest first")
+    void testLookup() throws IOException, InvalidMoveException {
+        OpeningBookWriter writer = new OpeningBookWriter();
+        ChessGame game = new ChessGame();
+        writer.add(game, D4, 3);
+        writer.add(game, E4, 5);
+        writer.add(game, E4, 5);
+        ChessGame afterE4 = new ChessGame();
+        afterE4.makeMove(E4);
+        writer.add(afterE4, E5, 1);
+
+        OpeningBook book = OpeningBook.open(write(writer));
+        assertEquals(3, book.size());
+
+        List<BookMove> moves = book.lookup(game);
+        assertEquals(List.of(new BookMove(E4, 10, 0), new BookMove(D4, 3, 0)), moves);
+        assertEquals(List.of(new BookMove(E5, 1, 0)), book.lookup(afterE4));
+
+        // not in the book
+        ChessGame afterD4 = new ChessGame();
+        afterD4.makeMove(D4);
+        assertTrue(book.lookup(afterD4).isEmpty());
+        assertNull(book.pickMove(afterD4, new Random(1)));
+    }
+
+    @Test
+    @DisplayName("opening book - picks moves by weight")
+    void testPickMove() throws IOException {
+        OpeningBookWriter writer = new OpeningBookWriter();
+        ChessGame game = new ChessGame();
+        writer.add(game, E4, 1);
+        writer.add(game, D4, 0);
+        OpeningBook book = OpeningBook.open(write(writer));
+
+        Random random = new Random(7);
+        for (int i = 0; i < 20; i++) {
+            assertEquals(E4, book.pickMove(game, random));
+        }
+    }
+
+    @Test
+    @DisplayName("opening book - castling is stored as the king taking its rook")
+    void testCastling() throws IOException {
+        ChessGame game = ChessGame.fromFen("r3k2r/pppppppp/8/8/8/8/PPPPPPPP/R3K2R w KQkq - 0 1");
+        ChessMove kingside = new ChessMove(new ChessPosition(1, 5), new ChessPosition(1, 7), null);
+        ChessMove queenside = new ChessMove(new ChessPosition(1, 5), new ChessPosition(1, 3), null);
+        assertEquals(7, OpeningBook.encodeMove(game, kingside) & 7);
+        assertEquals(0, OpeningBook.encodeMove(game, queenside) & 7);
+
+        OpeningBookWriter writer = new OpeningBookWriter();
+        writer.add(game, kingside, 2);
+        writer.add(game, queenside, 1);
+        OpeningBook book = OpeningBook.open(write(writer));
+        assertEquals(List.of(new BookMove(kingside, 2, 0), new BookMove(queenside, 1, 0)), book.lookup(game));
+    }
+
+    @Test
+    @DisplayName("opening book - the search plays book moves without searching")
+    void testSearchUsesBook() throws IOException {
+        OpeningBookWriter writer = new OpeningBookWriter();
+        writer.add(new ChessGame(), D4, 1);
+        OpeningBook book = OpeningBook.open(write(writer));
+
+        SearchResult result = Search.findBestMove(new ChessGame(), SearchLimits.ofDepth(3), book);
+        assertEquals(D4, result.bestMove());
+        assertEquals(0, result.nodes());
+    }
+
+    @Test
+    @DisplayName("opening book - keys match Polyglot's published test positions")
+    void testPolyglotKeys() {
+        ChessGame game = new ChessGame();
+        assertEquals(0x463b96181691fc9cL, PolyglotKey.of(game));
+
+        // the sequence from the Polyglot format description, key after each move
+        String[] moves = {"e2e4", "d7d5", "e4e5", "f7f5", "e1e2", "e8f7"};
+        long[] keys = {0x823c9b50fd114196L, 0x0756b94461c50fb0L, 0x662fafb965db29d4L,
+                0x22a48b5a8e47ff78L, 0x652a607ca3f242c1L, 0x00fdd303c946bdd9L};
+        for (int i = 0; i < moves.length; i++) {
+            play(game, moves[i]);
+            assertEquals(keys[i], PolyglotKey.of(game), moves[i]);
+        }
+
+        // en passant that can be taken, then a capture that loses a castling right
+        ChessGame other = new ChessGame();
+        for (String move : new String[]{"a2a4", "b7b5", "h2h4", "b5b4", "c2c4"}) {
+            play(other, move);
+        }
+        assertEquals(0x3c8123ea7b067637L, PolyglotKey.of(other));
+        play(other, "b4c3");
+        play(other, "a1a3");
+        assertEquals(0x5c3f9b829b279560L, PolyglotKey.of(other));
+    }
+
+    @Test
+    @DisplayName("opening book - reads an entry written by another Polyglot tool")
+    void testStandardEntry() throws IOException {
+        // the start position and 1. e4 (from e2, to e4) with weight 5, written out by hand
+        Path path = tempDir.resolve("standard.bin");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(path))) {
+            out.writeLong(0x463b96181691fc9cL);
+            out.writeShort(4 | (3 << 3) | (4 << 6) | (1 << 9));
+            out.writeShort(5);
+            out.writeInt(0);
+        }
+        assertEquals(List.of(new BookMove(E4, 5, 0)), OpeningBook.open(path).lookup(new ChessGame()));
+    }
+
+    @Test
+    @DisplayName("opening book - rejects files that aren't whole entries")
+    void testBadFile() throws IOException {
+        Path path = tempDir.resolve("bad.bin");
+        Files.write(path, new byte[OpeningBook.ENTRY_BYTES + 3]);
+        assertThrows(IOException.class, () -> OpeningBook.open(path));
+    }
+
+    private static void play(ChessGame game, String uci) {
+        int move = MoveNotation.parseUci(game, uci);
+        assertNotEquals(PackedMove.NONE, move, uci);
+        game.makeLegalMove(move);
+    }
+
+    private Path write(OpeningBookWriter writer) throws IOException {
+        Path path = tempDir.resolve("book.bin");
+        writer.write(path);
+        return path;
+    }
+}
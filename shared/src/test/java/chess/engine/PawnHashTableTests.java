@@ -0,0 +1,54 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.MoveList;
+import chess.perft.PerftPosition;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PawnHashTableTests {
+
+    @Test
+    @DisplayName("pawn hash table - stores and finds an entry")
+    void testRoundTrip() {
+        PawnHashTable table = new PawnHashTable(1024);
+        long key = 0x123456789ABCDEF0L;
+        assertEquals(-1, table.probe(key));
+        table.store(key, -42, 0xFF00L);
+
+        int entry = table.probe(key);
+        assertNotEquals(-1, entry);
+        assertEquals(-42, table.score(entry));
+        assertEquals(0xFF00L, table.passedPawns(entry));
+        assertEquals(1, table.getHits());
+        assertEquals(1, table.getMisses());
+    }
+
+    @Test
+    @DisplayName("pawn hash table - evaluating with the table gives the same scores as without")
+    void testSameScores() {
+        PawnHashTable table = new PawnHashTable(1024);
+        for (PerftPosition position : PerftPosition.SUITE) {
+            walk(position.toBoard(), position.sideToMove(), 2, table);
+        }
+        // most moves don't touch a pawn
+        assertTrue(table.hitRate() > 0.5, "hit rate " + table.hitRate());
+    }
+
+    private void walk(ChessBoard board, ChessGame.TeamColor team, int depth, PawnHashTable table) {
+        assertEquals(Evaluator.evaluate(board, team), Evaluator.evaluate(board, team, table));
+        if (depth == 0) {
+            return;
+        }
+        MoveList moves = new MoveList();
+        board.generateMoves(team, moves);
+        ChessGame.TeamColor enemy = (team == ChessGame.TeamColor.WHITE) ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        for (int i = 0; i < moves.size(); i++) {
+            board.makeMove(moves.get(i));
+            walk(board, enemy, depth - 1, table);
+            board.unmakeMove(moves.get(i));
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SearchTests {
+
+    @Test
+    @DisplayName("search - finds mate in one")
+    void testMateInOne() {
+        // back rank mate with Ra8#
+        ChessGame game = ChessGame.fromFen("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+        SearchResult result = Search.findBestMove(game, SearchLimits.ofDepth(4));
+
+        assertEquals(new ChessMove(new ChessPosition(1, 1), new ChessPosition(8, 1), null), result.bestMove());
+        assertTrue(result.isMate());
+        assertTrue(result.score() > 0);
+    }
+
+    @Test
+    @DisplayName("search - takes a hanging queen")
+    void testWinsMaterial() {
+        ChessGame game = ChessGame.fromFen("4k3/8/8/3q4/8/8/3R4/4K3 w - - 0 1");
+        SearchResult result = Search.findBestMove(game, SearchLimits.ofDepth(3));
+
+        assertEquals(new ChessMove(new ChessPosition(2, 4), new ChessPosition(5, 4), null), result.bestMove());
+        assertTrue(result.score() > 300);
+    }
+
+    @Test
+    @DisplayName("search - doesn't take a defended pawn with the queen")
+    void testQuiescence() {
+        // Qxd5 loses the queen to exd5, which quiescence has to see even at depth 1
+        ChessGame game = ChessGame.fromFen("4k3/8/4p3/3p4/8/8/3Q4/4K3 w - - 0 1");
+        SearchResult result = Search.findBestMove(game, SearchLimits.ofDepth(1));
+
+        assertNotEquals(new ChessPosition(5, 4), result.bestMove().getEndPosition());
+    }
+
+    @Test
+    @DisplayName("search - stays inside the time budget and leaves the game alone")
+    void testTimeLimit() {
+        ChessGame game = ChessGame.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        String before = game.toFen();
+
+        SearchResult result = Search.findBestMove(game, SearchLimits.ofTime(200));
+
+        assertNotNull(result.bestMove());
+        assertTrue(result.elapsedMillis() < 400, "took " + result.elapsedMillis() + "ms");
+        assertTrue(game.isMoveValid(result.bestMove(), ChessGame.TeamColor.WHITE));
+        assertEquals(before, game.toFen());
+    }
+
+    @Test
+    @DisplayName("search - no moves means no best move")
+    void testNoMoves() {
+        // black is stalemated
+        ChessGame game = ChessGame.fromFen("k7/2Q5/1K6/8/8/8/8/8 b - - 0 1");
+        SearchResult result = Search.findBestMove(game, SearchLimits.ofNodes(10_000));
+
+        assertNull(result.bestMove());
+        assertEquals(0, result.score());
+    }
+
+    @Test
+    @DisplayName("parallel search - every thread reports and the move is legal")
+    void testParallelSearch() {
+        ChessGame game = ChessGame.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        ParallelSearchResult result = ParallelSearch.findBestMove(game, SearchLimits.ofTime(300),
+                new TranspositionTable(16), 4);
+
+        assertEquals(4, result.threadResults().size());
+        assertTrue(game.isMoveValid(result.best().bestMove(), ChessGame.TeamColor.WHITE));
+        assertTrue(result.elapsedMillis() < 600, "took " + result.elapsedMillis() + "ms");
+        for (SearchResult threadResult : result.threadResults()) {
+            assertTrue(threadResult.nodes() > 0);
+        }
+        assertEquals(result.totalNodes(), result.threadResults().stream().mapToLong(SearchResult::nodes).sum());
+    }
+
+    @Test
+    @DisplayName("parallel search - still finds mate")
+    void testParallelMate() {
+        ChessGame game = ChessGame.fromFen("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+        ParallelSearchResult result = ParallelSearch.findBestMove(game, SearchLimits.ofDepth(4),
+                new TranspositionTable(4), 3);
+
+        assertEquals(new ChessMove(new ChessPosition(1, 1), new ChessPosition(8, 1), null), result.best().bestMove());
+    }
+}
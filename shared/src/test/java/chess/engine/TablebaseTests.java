@@ -0,0 +1,210 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.InvalidMoveException;
+import chess.MoveList;
+import chess.PackedMove;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TablebaseTests {
+
+    @TempDir
+    static Path tempDir;
+
+    private static Tablebase tablebase;
+
+    @BeforeAll
+    static void generate() throws IOException {
+        tablebase = Tablebase.generate(tempDir.resolve("tablebase.bin"));
+    }
+
+    @Test
+    @DisplayName("tablebase - knows checkmate, wins, and draws")
+    void testKnownPositions() {
+        int mated = probe("k7/1Q6/1K6/8/8/8/8/8 b - -");
+        assertTrue(Tablebase.isLoss(mated));
+        assertEquals(0, Tablebase.pliesToMate(mated));
+
+        int mateInOne = probe("k7/8/1K6/8/8/8/8/6Q1 w - -");
+        assertTrue(Tablebase.isWin(mateInOne));
+        assertEquals(1, Tablebase.pliesToMate(mateInOne));
+
+        // the lone king gets to the corner in front of a rook pawn
+        assertTrue(Tablebase.isDraw(probe("k7/8/8/8/8/8/P7/K7 w - -")));
+        // king in front of its pawn on the sixth row wins no matter who moves
+        assertTrue(Tablebase.isWin(probe("4k3/8/4K3/4P3/8/8/8/8 w - -")));
+        assertTrue(Tablebase.isLoss(probe("4k3/8/4K3/4P3/8/8/8/8 b - -")));
+
+        // black as the stronger side
+        assertTrue(Tablebase.isLoss(probe("K7/1q6/1k6/8/8/8/8/8 w - -")));
+        assertTrue(Tablebase.isWin(probe("4k3/4p3/8/8/8/8/8/4K3 b - -")));
+    }
+
+    @Test
+    @DisplayName("tablebase - only covers what it should")
+    void testCoverage() {
+        assertTrue(Tablebase.isDraw(probe("8/8/8/4k3/8/8/8/4K3 w - -")));
+        assertTrue(Tablebase.isDraw(probe("8/8/8/4k3/8/8/8/2B1K3 w - -")));
+        assertEquals(Tablebase.NOT_FOUND, probe("8/8/8/4k3/8/8/P7/R3K3 w - -"));
+        // the queen is already checking the king that isn't moving
+        assertEquals(Tablebase.NOT_FOUND, probe("8/8/8/4k3/8/8/8/Q3K3 w - -"));
+        // castling is still possible
+        assertEquals(Tablebase.NOT_FOUND, probe("8/8/8/3k4/8/8/8/R3K3 w Q -"));
+        assertNotEquals(Tablebase.NOT_FOUND, probe("8/8/8/3k4/8/8/8/R3K3 w - -"));
+    }
+
+    @Test
+    @DisplayName("tablebase - every sampled result agrees with the results one move later")
+    void testConsistentWithMoveGenerator() {
+        Random random = new Random(17);
+        String[] pieces = {"Q", "R", "P", "q", "r", "p"};
+        int checked = 0;
+        while (checked < 400) {
+            String placement = randomPlacement(random, pieces[random.nextInt(pieces.length)]);
+            ChessGame game = ChessGame.fromFen(placement + (random.nextBoolean() ? " w - -" : " b - -"));
+            int result = tablebase.probe(game.getBoard(), game.getTeamTurn());
+            if (result == Tablebase.NOT_FOUND) {
+                continue;
+            }
+            checked++;
+            assertConsistent(game, result);
+        }
+    }
+
+    @Test
+    @DisplayName("tablebase - the search plays the shortest mate")
+    void testSearchUsesTablebase() {
+        Search.setTablebase(tablebase);
+        try {
+            ChessGame game = ChessGame.fromFen("8/8/8/3k4/8/8/8/R3K3 w - -");
+            SearchResult result = Search.findBestMove(game, SearchLimits.ofDepth(3), new TranspositionTable(1));
+            assertTrue(result.isMate());
+            int expectedPlies = Tablebase.pliesToMate(tablebase.probe(game.getBoard(), game.getTeamTurn()));
+            assertEquals(Search.MATE_SCORE - expectedPlies, result.score());
+        } finally {
+            Search.setTablebase(null);
+        }
+    }
+
+    @Test
+    @DisplayName("tablebase - making the file leaves nothing else behind, and where it goes can be set")
+    void testFileHandling() throws IOException {
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(List.of(tempDir.resolve("tablebase.bin")), files.toList());
+        }
+
+        String before = System.getProperty(Tablebase.PATH_PROPERTY);
+        try {
+            System.setProperty(Tablebase.PATH_PROPERTY, tempDir.resolve("other.bin").toString());
+            assertEquals(tempDir.resolve("other.bin"), Tablebase.getDefaultPath());
+            System.setProperty(Tablebase.PATH_PROPERTY, "none");
+            assertNull(Tablebase.getDefaultPath());
+            System.clearProperty(Tablebase.PATH_PROPERTY);
+            assertEquals(Path.of(System.getProperty("java.io.tmpdir")), Tablebase.getDefaultPath().getParent());
+        } finally {
+            if (before == null) {
+                System.clearProperty(Tablebase.PATH_PROPERTY);
+            } else {
+                System.setProperty(Tablebase.PATH_PROPERTY, before);
+            }
+        }
+    }
+
+    // a win in n has a move to a loss in n - 1 and none quicker, a loss in n only has moves to wins in n - 1
+    // or less, and a draw has no move to a loss and at least one that isn't a win for the other side
+    private void assertConsistent(ChessGame game, int result) {
+        ChessGame.TeamColor enemy = (game.getTeamTurn() == ChessGame.TeamColor.WHITE) ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        MoveList moves = new MoveList();
+        game.legalMoves(game.getTeamTurn(), moves);
+        int quickestLoss = Integer.MAX_VALUE;
+        int slowestWin = -1;
+        boolean anyNotWin = false;
+        for (int i = 0; i < moves.size(); i++) {
+            ChessGame after = ChessGame.fromFen(game.toFen());
+            try {
+                after.makeMove(PackedMove.toChessMove(moves.get(i)));
+            } catch (InvalidMoveException e) {
+                fail(e);
+            }
+            int next = tablebase.probe(after.getBoard(), enemy);
+            assertNotEquals(Tablebase.NOT_FOUND, next, after.toFen());
+            if (Tablebase.isLoss(next)) {
+                quickestLoss = Math.min(quickestLoss, Tablebase.pliesToMate(next));
+            }
+            if (Tablebase.isWin(next)) {
+                slowestWin = Math.max(slowestWin, Tablebase.pliesToMate(next));
+            } else {
+                anyNotWin = true;
+            }
+        }
+
+        String message = game.toFen();
+        int plies = Tablebase.pliesToMate(result);
+        if (Tablebase.isWin(result)) {
+            assertEquals(plies - 1, quickestLoss, message);
+        } else if (Tablebase.isLoss(result)) {
+            assertFalse(anyNotWin, message);
+            assertEquals(plies - 1, slowestWin, message);
+        } else {
+            assertEquals(Integer.MAX_VALUE, quickestLoss, message);
+            assertTrue(moves.isEmpty() || anyNotWin, message);
+        }
+    }
+
+    private String randomPlacement(Random random, String piece) {
+        char[] squares = new char[64];
+        Arrays.fill(squares, '.');
+        squares[random.nextInt(64)] = 'K';
+        placeOnEmpty(random, squares, 'k', 0, 64);
+        boolean pawn = piece.equalsIgnoreCase("P");
+        placeOnEmpty(random, squares, piece.charAt(0), pawn ? 8 : 0, pawn ? 56 : 64);
+
+        StringBuilder placement = new StringBuilder();
+        for (int row = 7; row >= 0; row--) {
+            int empty = 0;
+            for (int column = 0; column < 8; column++) {
+                char symbol = squares[row * 8 + column];
+                if (symbol == '.') {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    placement.append(empty);
+                    empty = 0;
+                }
+                placement.append(symbol);
+            }
+            if (empty > 0) {
+                placement.append(empty);
+            }
+            if (row > 0) {
+                placement.append('/');
+            }
+        }
+        return placement.toString();
+    }
+
+    private void placeOnEmpty(Random random, char[] squares, char symbol, int from, int to) {
+        int square;
+        do {
+            square = from + random.nextInt(to - from);
+        } while (squares[square] != '.');
+        squares[square] = symbol;
+    }
+
+    private int probe(String fen) {
+        ChessGame game = ChessGame.fromFen(fen);
+        return tablebase.probe(game.getBoard(), game.getTeamTurn());
+    }
+}
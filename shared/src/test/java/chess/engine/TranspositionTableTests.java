@@ -0,0 +1,97 @@
+package chess.engine;
+
+import chess.ChessGame;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TranspositionTableTests {
+
+    @Test
+    @DisplayName("transposition table - stores and finds an entry")
+    void testRoundTrip() {
+        TranspositionTable table = new TranspositionTable(1);
+        long key = 0x123456789ABCDEF0L;
+        table.store(key, 0x4ABC, -Search.MATE_SCORE + 7, 12, TranspositionTable.LOWER_BOUND);
+
+        long entry = table.probe(key);
+        assertEquals(0x4ABC, TranspositionTable.move(entry));
+        assertEquals(-Search.MATE_SCORE + 7, TranspositionTable.score(entry));
+        assertEquals(12, TranspositionTable.depth(entry));
+        assertEquals(TranspositionTable.LOWER_BOUND, TranspositionTable.bound(entry));
+
+        // same bucket, different key
+        assertEquals(0L, table.probe(key ^ (1L << 62)));
+    }
+
+    @Test
+    @DisplayName("transposition table - deep entries survive shallow ones until the next search")
+    void testReplacement() {
+        TranspositionTable table = new TranspositionTable(1);
+        long deepKey = 0x1000L;
+        long[] shallowKeys = {0x2000L << 32 | 0x1000L, 0x3000L << 32 | 0x1000L};
+
+        table.store(deepKey, 1, 50, 10, TranspositionTable.EXACT);
+        table.store(shallowKeys[0], 2, 0, 1, TranspositionTable.EXACT);
+        table.store(shallowKeys[1], 3, 0, 1, TranspositionTable.EXACT);
+        // the deep one stays, and the newest shallow one took the other slot
+        assertNotEquals(0L, table.probe(deepKey));
+        assertEquals(0L, table.probe(shallowKeys[0]));
+        assertNotEquals(0L, table.probe(shallowKeys[1]));
+
+        // once a new search starts, the old deep entry gives way
+        table.newSearch();
+        table.store(shallowKeys[0], 2, 0, 1, TranspositionTable.EXACT);
+        assertEquals(0L, table.probe(deepKey));
+        assertNotEquals(0L, table.probe(shallowKeys[0]));
+    }
+
+    @Test
+    @DisplayName("transposition table - threads writing at once never see the wrong entry")
+    void testConcurrentWrites() throws InterruptedException {
+        // a tiny table so every thread keeps writing over the others
+        TranspositionTable table = new TranspositionTable(1);
+        AtomicInteger mismatches = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int seed = t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 500_000; i++) {
+                    long key = (i * 0x9E3779B97F4A7C15L) ^ seed;
+                    // the move and score are worked out from the key, so a hit has to match it
+                    int move = (int) (key & 0xFFFFF);
+                    int score = (int) ((key >>> 20) & 0xFFF);
+                    table.store(key, move, score, 5, TranspositionTable.EXACT);
+                    long entry = table.probe(key ^ 0x5555);
+                    long otherKey = key ^ 0x5555;
+                    if (entry != 0 && (TranspositionTable.move(entry) != (int) (otherKey & 0xFFFFF)
+                            || TranspositionTable.score(entry) != (int) ((otherKey >>> 20) & 0xFFF))) {
+                        mismatches.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, mismatches.get());
+    }
+
+    @Test
+    @DisplayName("transposition table - a second search of the same position reuses the first")
+    void testSearchReuse() {
+        TranspositionTable table = new TranspositionTable(4);
+        ChessGame game = ChessGame.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+
+        SearchResult first = Search.findBestMove(game, SearchLimits.ofDepth(4), table);
+        SearchResult second = Search.findBestMove(game, SearchLimits.ofDepth(4), table);
+
+        assertEquals(first.bestMove(), second.bestMove());
+        assertTrue(second.nodes() < first.nodes() / 2, first.nodes() + " then " + second.nodes());
+    }
+}
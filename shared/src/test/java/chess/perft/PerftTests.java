@@ -0,0 +1,63 @@
+package chess.perft;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import org.junit.jupiter.api.*;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PerftTests {
+
+    // deep enough to go through castling, en passant, and promotions in every position, but still quick
+    private static final long MAX_NODES_PER_TEST = 200_000;
+
+    @Test
+    @DisplayName("perft - every suite position matches the published counts")
+    void testSuiteCounts() {
+        for (PerftPosition position : PerftPosition.SUITE) {
+            Perft perft = new Perft(position.toBoard(), position.expectedCounts().length);
+            for (int depth = 1; depth <= position.expectedCounts().length; depth++) {
+                long expected = position.expectedCounts()[depth - 1];
+                if (expected > MAX_NODES_PER_TEST) {
+                    break;
+                }
+                assertEquals(expected, perft.count(position.sideToMove(), depth),
+                        position.name() + " at depth " + depth);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("perft - board is left the way it started")
+    void testBoardUnchanged() {
+        PerftPosition kiwipete = PerftPosition.named("kiwipete");
+        ChessBoard board = kiwipete.toBoard();
+        ChessBoard before = new ChessBoard(board);
+
+        new Perft(board, 3).count(ChessGame.TeamColor.WHITE, 3);
+
+        assertEquals(before, board);
+        assertEquals(before.getCastlingRights(), board.getCastlingRights());
+        assertEquals(before.getEnPassantSquare(), board.getEnPassantSquare());
+    }
+
+    @Test
+    @DisplayName("perft - divide adds up to the full count")
+    void testDivide() {
+        PerftPosition start = PerftPosition.named("start");
+        Map<String, Long> divided = new Perft(start.toBoard(), 3).divide(ChessGame.TeamColor.WHITE, 3);
+
+        assertEquals(20, divided.size());
+        assertEquals(600, divided.get("e2e4"));
+        assertEquals(8_902, divided.values().stream().mapToLong(Long::longValue).sum());
+    }
+
+    @Test
+    @DisplayName("perft - parallel count matches the single thread count")
+    void testParallel() {
+        PerftPosition position3 = PerftPosition.named("position3");
+        assertEquals(43_238, Perft.countParallel(position3.toBoard(), ChessGame.TeamColor.WHITE, 4, 4));
+    }
+}
@@ -0,0 +1,114 @@
+package chess.replay;
+
+import chess.ChessGame;
+import org.junit.jupiter.api.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameReplayerTests {
+
+    // comments, a variation, annotation glyphs, castling both ways, en passant, and a promotion
+    private static final String PGN = """
+            [Event "Test"]
+            [White "Alice"]
+            [Black "Bob"]
+            [Result "1-0"]
+
+            1. e4 {the king's pawn} e5 2. Nf3 Nc6 (2... d6 3. d4) 3. Bc4 $1 Nf6 4. O-O d5
+            5. exd5 Nxd5 6. d4 exd4 7. Re1+ Be7 8. Nxd4 O-O 9. Nxc6 bxc6 ; rest of the line is a comment
+            10. Bxd5 cxd5 11. Qxd5 Qxd5 12. Nc3 Qd8 1-0
+
+            [Event "En passant and promotion"]
+            [White "Carol"]
+            [Black "Dave"]
+            [FEN "4k3/8/8/8/1p6/8/P6P/4K3 w - - 0 1"]
+
+            1. a4 bxa3 2. h4 a2 3. h5 a1=Q+ 4. Kd2 Qa5+ *
+            """;
+
+    @Test
+    @DisplayName("game replayer - replays PGN games with all the extra notation")
+    void testPgn() throws IOException {
+        List<ReplayResult> results = replayAll(PGN);
+        assertEquals(2, results.size());
+
+        ReplayResult first = results.get(0);
+        assertTrue(first.isValid(), first.error());
+        assertEquals("Alice vs Bob", first.name());
+        assertEquals(24, first.movesPlayed());
+        assertEquals("r1bq1rk1/p1p1bppp/8/8/8/2N5/PPP2PPP/R1B1R1K1 w - - 2 13", first.finalFen());
+
+        ReplayResult second = results.get(1);
+        assertTrue(second.isValid(), second.error());
+        assertEquals(8, second.movesPlayed());
+        assertEquals("4k3/8/8/q6P/8/8/3K4/8 w - - 2 5", second.finalFen());
+    }
+
+    @Test
+    @DisplayName("game replayer - replays UCI move lists, one game per line")
+    void testUci() throws IOException {
+        List<ReplayResult> results = replayAll("""
+                e2e4 e7e5 g1f3 b8c6
+                position startpos moves d2d4 d7d5
+                fen 4k3/P7/8/8/8/8/8/4K3 w - - 0 1 moves a7a8q e8d7
+                """);
+        assertEquals(3, results.size());
+        results.forEach(result -> assertTrue(result.isValid(), result.error()));
+        assertEquals("r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 2 3", results.get(0).finalFen());
+        assertEquals(2, results.get(1).movesPlayed());
+        assertEquals("Q7/3k4/8/8/8/8/8/4K3 w - - 1 2", results.get(2).finalFen());
+    }
+
+    @Test
+    @DisplayName("game replayer - reports the first illegal move and where the game was")
+    void testIllegalMoves() {
+        // the queen can't get through its own pawn
+        ReplayResult illegal = GameReplayer.replay(new GameRecord(1, null, null, List.of("d4", "e5", "Bf4", "Bb4+", "c3", "Qxd4"), true));
+        assertFalse(illegal.isValid());
+        assertEquals(5, illegal.movesPlayed());
+        assertEquals("illegal move 3... Qxd4", illegal.error());
+
+        // moving into check, and a knight move that could be either knight
+        assertFalse(GameReplayer.replay(new GameRecord(3, null, "4k3/8/8/8/8/8/3r4/4K3 w - - 0 1", List.of("Kd1"), true)).isValid());
+        assertFalse(GameReplayer.replay(new GameRecord(4, null, "4k3/8/8/8/8/8/8/1N2KN2 w - - 0 1", List.of("Nd2"), true)).isValid());
+        assertTrue(GameReplayer.replay(new GameRecord(5, null, "4k3/8/8/8/8/8/8/1N2KN2 w - - 0 1", List.of("Nbd2"), true)).isValid());
+
+        ReplayResult badUci = GameReplayer.replay(new GameRecord(6, null, null, List.of("e2e5"), false));
+        assertEquals("illegal move 1. e2e5", badUci.error());
+        assertEquals(new ChessGame().toFen(), badUci.finalFen());
+    }
+
+    @Test
+    @DisplayName("game replayer - totals come out the same on any number of threads")
+    void testSummary() throws IOException {
+        StringBuilder archive = new StringBuilder();
+        for (int i = 0; i < GameReplayer.BATCH_SIZE * 3 + 5; i++) {
+            archive.append(i % 10 == 0 ? "e2e4 e7e5 e1e3\n" : "d2d4 d7d5 c2c4\n");
+        }
+        for (int threads : new int[]{1, 4}) {
+            GameReader reader = new GameReader(new BufferedReader(new StringReader(archive.toString())));
+            List<ReplayResult> results = Collections.synchronizedList(new ArrayList<>());
+            ReplaySummary summary = GameReplayer.replayAll(reader, threads, results::add);
+            assertEquals(GameReplayer.BATCH_SIZE * 3 + 5, summary.games());
+            assertEquals(results.size(), summary.games());
+            assertEquals(78, summary.invalidGames());
+            assertEquals(78 * 2 + (summary.games() - 78) * 3, summary.moves());
+            assertTrue(summary.gamesPerSecond() > 0);
+        }
+    }
+
+    private List<ReplayResult> replayAll(String archive) throws IOException {
+        List<ReplayResult> results = Collections.synchronizedList(new ArrayList<>());
+        GameReader reader = new GameReader(new BufferedReader(new StringReader(archive)));
+        GameReplayer.replayAll(reader, 1, results::add);
+        results.sort((a, b) -> Long.compare(a.number(), b.number()));
+        return results;
+    }
+}